@@ -0,0 +1,22 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mutable training state that can be written to a checkpoint and read back, so an interrupted training run can
+ * resume where it stopped. readState() is called on an instance configured the same way as the one that wrote the
+ * state, and replaces its state entirely.
+ */
+public interface Checkpointable {
+
+    void writeState(DataOutput out) throws IOException;
+
+    void readState(DataInput in) throws IOException;
+}
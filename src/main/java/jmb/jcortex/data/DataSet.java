@@ -35,9 +35,16 @@ public class DataSet implements Copyable<DataSet> {
     }
 
     public DataSet shuffleRows() {
+        return shuffleRows(new XorShiftRandom());
+    }
+
+    /** Returns the rows in an order drawn from random, so a seeded or restored generator gives the same order. */
+    public DataSet shuffleRows(XorShiftRandom random) {
         int numRows = features.numRows();
         List<Integer> rowNums = IntStream.range(0, features.numRows()).boxed().collect(toList());
-        Collections.shuffle(rowNums);
+        for (int i = numRows - 1; i > 0; i--) {
+            Collections.swap(rowNums, i, random.nextInt(i + 1));
+        }
 
         double[][] shuffledFeatures = new double[numRows][];
         double[][] shuffledLabels = new double[numRows][];
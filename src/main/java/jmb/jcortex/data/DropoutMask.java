@@ -0,0 +1,94 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+/**
+ * An inverted dropout mask for a matrix of node values, stored as one bit per element (in the same column-major
+ * order as SynMatrix) rather than a matrix of doubles. Kept elements are scaled by 1 / (1 - dropoutPercent) during
+ * training, so the expected value of every node is unchanged and inference needs no dropout work at all.
+ * Immutable, and thus threadsafe.
+ */
+public class DropoutMask {
+
+    private final int numRows;
+    private final int numCols;
+    private final long[] bits;
+    private final double scale;
+
+    /**
+     * @param bits one bit per element, set if the element is kept. Bit i is (bits[i / 64] >>> (i % 64)) & 1.
+     * @param scale the factor to multiply kept elements by
+     */
+    public DropoutMask(int numRows, int numCols, long[] bits, double scale) {
+        if (bits.length < numWords(numRows * numCols)) {
+            throw new IllegalArgumentException("Not enough bits for a " + numRows + " x " + numCols + " mask");
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.bits = bits;
+        this.scale = scale;
+    }
+
+    /** Randomly drops each element with probability dropoutPercent, and scales the rest to compensate. */
+    public static DropoutMask generate(int numRows, int numCols, double dropoutPercent, XorShiftRandom random) {
+        int numElements = numRows * numCols;
+        long[] bits = new long[numWords(numElements)];
+        // Compare 53 random bits against the threshold, the same resolution as nextDouble() < dropoutPercent
+        long threshold = (long) (dropoutPercent * (1L << 53));
+        for (int i = 0; i < numElements; i++) {
+            if ((random.nextLong() >>> 11) >= threshold) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return new DropoutMask(numRows, numCols, bits, 1.0 / (1.0 - dropoutPercent));
+    }
+
+    /** A mask with the same shape as the given matrix that keeps its non-zero elements, unscaled. */
+    public static DropoutMask fromMatrix(SynMatrix mask) {
+        double[] values = mask.getAll();
+        long[] bits = new long[numWords(values.length)];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return new DropoutMask(mask.numRows(), mask.numCols(), bits, 1.0);
+    }
+
+    private static int numWords(int numElements) {
+        return (numElements + 63) >>> 6;
+    }
+
+    /** Zeroes the dropped elements of the matrix and scales the kept ones, in place. Returns the same matrix. */
+    public SynMatrix applyInPlace(SynMatrix synMatrix) {
+        if (synMatrix.numRows() != numRows || synMatrix.numCols() != numCols) {
+            throw new IllegalArgumentException(String.format("Mask is %s x %s, the passed matrix is %s x %s",
+                    numRows, numCols, synMatrix.numRows(), synMatrix.numCols()));
+        }
+        return synMatrix.applyInPlace((data, fromInclusive, toExclusive) -> {
+            for (int i = fromInclusive; i < toExclusive; i++) {
+                data[i] = ((bits[i >>> 6] >>> i) & 1L) != 0 ? data[i] * scale : 0.0;
+            }
+        });
+    }
+
+    public boolean isKept(int row, int col) {
+        int index = col * numRows + row;
+        return ((bits[index >>> 6] >>> index) & 1L) != 0;
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public int numCols() {
+        return numCols;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+}
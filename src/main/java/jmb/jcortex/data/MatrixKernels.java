@@ -0,0 +1,105 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+/**
+ * Tight loops over raw double arrays used by SynMatrix and the activation functions. All ranges are given as
+ * fromInclusive/toExclusive indexes into the array.
+ * <p>
+ * The default implementation is plain scalar Java. When packaged as a multi-release jar and run on Java 17+ with
+ * --add-modules jdk.incubator.vector, an implementation using the Vector API is used instead. Setting the system
+ * property jcortex.vectorKernels=false forces the scalar implementation.
+ */
+public interface MatrixKernels {
+
+    static MatrixKernels getInstance() {
+        return MatrixKernelsProvider.INSTANCE;
+    }
+
+    /** Returns the sum of the values in the range. */
+    double sum(double[] data, int fromInclusive, int toExclusive);
+
+    /** Returns the largest value in the range, or negative infinity for an empty range. */
+    double max(double[] data, int fromInclusive, int toExclusive);
+
+    /** Returns the sum of (value - mean)^2 over the range. */
+    double sumSquaredDeviations(double[] data, int fromInclusive, int toExclusive, double mean);
+
+    /** Returns the dot product of length values of a, starting at aOffset, and length values of b, starting at bOffset. */
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /** Adds length values of source, starting at sourceOffset, to length values of target starting at targetOffset. */
+    void addInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length);
+
+    /** Subtracts length values of source from length values of target (target = target - source). */
+    void subtractInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length);
+
+    /** Multiplies length values of target by the corresponding values of source. */
+    void multiplyInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length);
+
+    /** Replaces each target value with the larger of itself and the corresponding source value. */
+    void maxInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length);
+
+    /**
+     * Adds (source - mean)^2 to each target value, where the means line up with the target (i.e. the mean for
+     * target[targetOffset + i] is means[targetOffset + i]).
+     */
+    void addSquaredDeviationsInto(double[] target, int targetOffset, double[] source, int sourceOffset,
+                                  double[] means, int length);
+
+    /**
+     * One step of an online (single pass) softmax over a sequence of vectors. maxes holds the running max and sums
+     * the running sum of e^(x - max). For each source value x the max is raised if needed, rescaling the sum to
+     * match, and e^(x - max) is added to the sum. Start with maxes of negative infinity and sums of zero.
+     */
+    void softMaxAccumulate(double[] maxes, double[] sums, int targetOffset, double[] source, int sourceOffset,
+                           int length);
+
+    /**
+     * Second softmax step: replaces each data value x with e^(x - max) / sum, using the maxes and sums from
+     * softMaxAccumulate (which line up with targetOffset).
+     */
+    void softMaxNormalize(double[] data, int dataOffset, double[] maxes, double[] sums, int targetOffset, int length);
+
+    /**
+     * Running argmax across a sequence of vectors. Wherever a source value is greater than the corresponding entry
+     * in maxes, the max is replaced and the matching entry of indexes is set to sourceIndex. Ties keep the earlier
+     * index.
+     */
+    void argMaxInto(double[] maxes, int[] indexes, int targetOffset, double[] source, int sourceOffset, int length,
+                    int sourceIndex);
+
+    /** Adds value to every value in the range. */
+    void add(double[] data, int fromInclusive, int toExclusive, double value);
+
+    /** Multiplies every value in the range by factor. */
+    void scale(double[] data, int fromInclusive, int toExclusive, double factor);
+
+    /** Divides every value in the range by divisor. */
+    void divide(double[] data, int fromInclusive, int toExclusive, double divisor);
+
+    /** Replaces every value x in the range with 1 - x. */
+    void oneMinus(double[] data, int fromInclusive, int toExclusive);
+
+    /** Replaces every value x in the range with 1 / (1 + e^-x). */
+    void sigmoid(double[] data, int fromInclusive, int toExclusive);
+
+    /** Replaces every sigmoid output y in the range with the sigmoid derivative y * (1 - y). */
+    void sigmoidDerivative(double[] data, int fromInclusive, int toExclusive);
+
+    /** Replaces every value x in the range with its sigmoid y, and writes y * (1 - y) to the same index of derivatives. */
+    void sigmoidWithDerivative(double[] data, double[] derivatives, int fromInclusive, int toExclusive);
+
+    /** Replaces every value x in the range with max(0, x). */
+    void rectifiedLinear(double[] data, int fromInclusive, int toExclusive);
+
+    /** Replaces every rectified linear output y in the range with its derivative, 1 if y > 0, otherwise 0. */
+    void rectifiedLinearDerivative(double[] data, int fromInclusive, int toExclusive);
+
+    /** Replaces every value x in the range with max(0, x), and writes 1 if x > 0, otherwise 0, to derivatives. */
+    void rectifiedLinearWithDerivative(double[] data, double[] derivatives, int fromInclusive, int toExclusive);
+
+}
@@ -0,0 +1,17 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+/**
+ * Chooses the MatrixKernels implementation. This is the Java 8 version, which always uses scalar loops. The
+ * multi-release jar replaces this class on Java 17+ (see src/main/java17).
+ */
+final class MatrixKernelsProvider {
+
+    static final MatrixKernels INSTANCE = new ScalarMatrixKernels();
+
+    private MatrixKernelsProvider() {}
+}
@@ -0,0 +1,98 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Controls how SynMatrix splits element-wise operations and reductions across threads. Work on fewer elements than
+ * the threshold runs on the calling thread, since forking costs more than it saves on small batches. Larger work
+ * is split in half recursively and run on the ForkJoinPool.
+ * <p>
+ * These are global settings. By default the common pool is used, with a threshold of 64k elements.
+ */
+public final class MatrixParallelism {
+
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+    private static volatile int threshold = 1 << 16;
+
+    public static ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool used for all parallel matrix operations. Use a dedicated pool to keep matrix work off the
+     * common pool, or a pool with a parallelism of 1 to force everything onto the calling thread.
+     */
+    public static void setPool(ForkJoinPool pool) {
+        MatrixParallelism.pool = pool;
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the number of elements below which operations run sequentially on the calling thread.
+     */
+    public static void setThreshold(int threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        MatrixParallelism.threshold = threshold;
+    }
+
+    /**
+     * Splits the indexes 0 to count-1 into ranges and calls the consumer with each range, in parallel if the
+     * total work is over the threshold. Each index represents elementsPerIndex elements of work. The consumer must
+     * be safe to call concurrently with disjoint ranges.
+     */
+    static void forEachRange(int count, int elementsPerIndex, IndexRangeConsumer consumer) {
+        long numElements = (long) count * elementsPerIndex;
+        ForkJoinPool pool = MatrixParallelism.pool;
+        int threshold = MatrixParallelism.threshold;
+        if (numElements < threshold || count < 2 || pool.getParallelism() < 2) {
+            consumer.accept(0, count);
+            return;
+        }
+        // Aim for a few ranges per thread so work stealing can even out the load, but never split so small that
+        // a range is less than a quarter of the threshold
+        long targetElements = Math.max(threshold / 4, numElements / (4L * pool.getParallelism()));
+        int rangeSize = (int) Math.max(1, targetElements / Math.max(1, elementsPerIndex));
+        pool.invoke(new RangeTask(0, count, rangeSize, consumer));
+    }
+
+    interface IndexRangeConsumer {
+        void accept(int fromInclusive, int toExclusive);
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+        private final IndexRangeConsumer consumer;
+
+        RangeTask(int from, int to, int rangeSize, IndexRangeConsumer consumer) {
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= rangeSize) {
+                consumer.accept(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, rangeSize, consumer), new RangeTask(middle, to, rangeSize, consumer));
+            }
+        }
+    }
+
+    private MatrixParallelism() {}
+}
@@ -0,0 +1,34 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An operation over the same range of two equally sized backing arrays: data is modified in place, and a second
+ * result for each element is written to target. Used to compute an activation function and its derivative in a
+ * single pass. Implementations must only touch the indexes from fromInclusive to toExclusive.
+ */
+@FunctionalInterface
+public interface PairedRangeOperation {
+
+    void apply(double[] data, double[] target, int fromInclusive, int toExclusive);
+
+    /**
+     * Replaces each value x with function(x), and writes derivative(function(x)) to the target. The derivative
+     * takes the function output, as in DifferentiableFunction.getDerivative().
+     */
+    static PairedRangeOperation forEachElement(DoubleUnaryOperator function, DoubleUnaryOperator derivative) {
+        return (data, target, fromInclusive, toExclusive) -> {
+            for (int i = fromInclusive; i < toExclusive; i++) {
+                double y = function.applyAsDouble(data[i]);
+                data[i] = y;
+                target[i] = derivative.applyAsDouble(y);
+            }
+        };
+    }
+
+}
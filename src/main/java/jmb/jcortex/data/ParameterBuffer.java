@@ -0,0 +1,149 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+import static jmb.jcortex.data.MatrixParallelism.forEachRange;
+
+/**
+ * A list of matrices (the layers of a NeuralNet, or their gradients or optimizer state) packed end to end into one
+ * contiguous double array, each in SynMatrix's column-major order. jblas matrices can't be views into a shared
+ * array, so the matrices keep their own storage for the matrix math and are gathered into or scattered out of a
+ * ParameterBuffer with one bulk copy each. Everything between, like averaging, scaling, sending or saving, is then
+ * a single linear pass over one array rather than a loop over layers.
+ */
+public class ParameterBuffer implements Copyable<ParameterBuffer> {
+
+    private static final MatrixKernels kernels = MatrixKernels.getInstance();
+
+    private final int[] numRows;
+    private final int[] numCols;
+    private final int[] offsets;
+    private final double[] data;
+
+    /** Returns a zero filled buffer with room for matrices of the same shapes as these. */
+    public static ParameterBuffer shapedLike(List<SynMatrix> matrices) {
+        int[] numRows = new int[matrices.size()];
+        int[] numCols = new int[matrices.size()];
+        for (int i = 0; i < matrices.size(); i++) {
+            numRows[i] = matrices.get(i).numRows();
+            numCols[i] = matrices.get(i).numCols();
+        }
+        return new ParameterBuffer(numRows, numCols);
+    }
+
+    /** Returns a new buffer holding a copy of the matrices. */
+    public static ParameterBuffer of(List<SynMatrix> matrices) {
+        return shapedLike(matrices).gather(matrices);
+    }
+
+    private ParameterBuffer(int[] numRows, int[] numCols) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.offsets = new int[numRows.length + 1];
+        for (int i = 0; i < numRows.length; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], Math.multiplyExact(numRows[i], numCols[i]));
+        }
+        this.data = new double[offsets[numRows.length]];
+    }
+
+    /** Copies the matrices, which must have this buffer's shapes, into the buffer. Returns this buffer. */
+    public ParameterBuffer gather(List<SynMatrix> matrices) {
+        checkShapes(matrices);
+        for (int i = 0; i < matrices.size(); i++) {
+            matrices.get(i).copyTo(data, offsets[i]);
+        }
+        return this;
+    }
+
+    /** Copies the buffer out into the matrices, which must have this buffer's shapes. Returns the matrices. */
+    public List<SynMatrix> scatter(List<SynMatrix> matrices) {
+        checkShapes(matrices);
+        for (int i = 0; i < matrices.size(); i++) {
+            matrices.get(i).copyFrom(data, offsets[i]);
+        }
+        return matrices;
+    }
+
+    /** Returns new matrices holding copies of the buffer's values. */
+    public List<SynMatrix> toMatrices() {
+        List<SynMatrix> matrices = new ArrayList<>(numMatrices());
+        for (int i = 0; i < numMatrices(); i++) {
+            matrices.add(new SynMatrix(numRows[i], numCols[i]).copyFrom(data, offsets[i]));
+        }
+        return matrices;
+    }
+
+    /** Adds other, which must have the same shapes, to this buffer. Returns this buffer. */
+    public ParameterBuffer plusInPlace(ParameterBuffer other) {
+        checkShapes(other);
+        forEachRange(data.length, 1, (from, to) -> kernels.addInto(data, from, other.data, from, to - from));
+        return this;
+    }
+
+    /** Multiplies every value by factor. Returns this buffer. */
+    public ParameterBuffer scaleInPlace(double factor) {
+        forEachRange(data.length, 1, (from, to) -> kernels.scale(data, from, to, factor));
+        return this;
+    }
+
+    /** Copies every value into target, which must have the same shapes. Returns target. */
+    public ParameterBuffer copyInto(ParameterBuffer target) {
+        checkShapes(target);
+        System.arraycopy(data, 0, target.data, 0, data.length);
+        return target;
+    }
+
+    @Override
+    public ParameterBuffer copy() {
+        return copyInto(new ParameterBuffer(numRows, numCols));
+    }
+
+    /** The backing array. Matrix i occupies offset(i) up to offset(i + 1), in column-major order. */
+    public double[] getData() {
+        return data;
+    }
+
+    public int offset(int matrixIndex) {
+        return offsets[matrixIndex];
+    }
+
+    public int numMatrices() {
+        return numRows.length;
+    }
+
+    /** The total number of values in all the matrices. */
+    public int size() {
+        return data.length;
+    }
+
+    public boolean hasSameShapes(ParameterBuffer other) {
+        return Arrays.equals(numRows, other.numRows) && Arrays.equals(numCols, other.numCols);
+    }
+
+    private void checkShapes(ParameterBuffer other) {
+        if (!hasSameShapes(other)) {
+            throw new IllegalArgumentException("Parameter buffers have different shapes");
+        }
+    }
+
+    private void checkShapes(List<SynMatrix> matrices) {
+        if (matrices.size() != numMatrices()) {
+            throw new IllegalArgumentException(format("Expected %s matrices, but got %s", numMatrices(), matrices.size()));
+        }
+        for (int i = 0; i < matrices.size(); i++) {
+            SynMatrix matrix = matrices.get(i);
+            if (matrix.numRows() != numRows[i] || matrix.numCols() != numCols[i]) {
+                throw new IllegalArgumentException(format("Matrix %s should be %s x %s, but is %s x %s",
+                        i, numRows[i], numCols[i], matrix.numRows(), matrix.numCols()));
+            }
+        }
+    }
+}
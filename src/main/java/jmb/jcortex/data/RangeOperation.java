@@ -0,0 +1,28 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An in-place operation over a contiguous range of a matrix's backing array. Implementations must only touch the
+ * indexes from fromInclusive to toExclusive, which allows a matrix to split the work into independent ranges.
+ */
+@FunctionalInterface
+public interface RangeOperation {
+
+    void apply(double[] data, int fromInclusive, int toExclusive);
+
+    /** Wraps a function of one value in a loop that applies it to every element in the range. */
+    static RangeOperation forEachElement(DoubleUnaryOperator function) {
+        return (data, fromInclusive, toExclusive) -> {
+            for (int i = fromInclusive; i < toExclusive; i++) {
+                data[i] = function.applyAsDouble(data[i]);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,19 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+/**
+ * An in-place operation on a block of whole rows of a matrix's backing array. The data is column-major, so the
+ * value at (row, col) is data[col * numRows + row], and each column of the block is the contiguous run from
+ * col * numRows + fromRow to col * numRows + toRow. Implementations must only touch rows fromRow to toRow-1,
+ * which allows a matrix to process separate blocks of rows in parallel.
+ */
+@FunctionalInterface
+public interface RowBlockOperation {
+
+    void apply(double[] data, int numRows, int numCols, int fromRow, int toRow);
+
+}
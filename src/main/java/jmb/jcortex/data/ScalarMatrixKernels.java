@@ -0,0 +1,208 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Plain Java loops. Used on every JVM, and as the fallback for anything the vectorized kernels don't override.
+ */
+class ScalarMatrixKernels implements MatrixKernels {
+
+    @Override
+    public double sum(double[] data, int fromInclusive, int toExclusive) {
+        double sum = 0;
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            sum += data[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double max(double[] data, int fromInclusive, int toExclusive) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            max = Math.max(max, data[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public double sumSquaredDeviations(double[] data, int fromInclusive, int toExclusive, double mean) {
+        double sum = 0;
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            double deviation = data[i] - mean;
+            sum += deviation * deviation;
+        }
+        return sum;
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        // Four independent accumulators so the adds don't serialize on one register
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int i = 0;
+        for (int bound = length - 3; i < bound; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public void addInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] += source[sourceOffset + i];
+        }
+    }
+
+    @Override
+    public void subtractInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] -= source[sourceOffset + i];
+        }
+    }
+
+    @Override
+    public void multiplyInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] *= source[sourceOffset + i];
+        }
+    }
+
+    @Override
+    public void maxInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = Math.max(target[targetOffset + i], source[sourceOffset + i]);
+        }
+    }
+
+    @Override
+    public void addSquaredDeviationsInto(double[] target, int targetOffset, double[] source, int sourceOffset,
+                                         double[] means, int length) {
+        for (int i = 0; i < length; i++) {
+            double deviation = source[sourceOffset + i] - means[targetOffset + i];
+            target[targetOffset + i] += deviation * deviation;
+        }
+    }
+
+    @Override
+    public void softMaxAccumulate(double[] maxes, double[] sums, int targetOffset, double[] source, int sourceOffset,
+                                  int length) {
+        for (int i = 0; i < length; i++) {
+            double value = source[sourceOffset + i];
+            double max = maxes[targetOffset + i];
+            if (value > max) {
+                sums[targetOffset + i] = sums[targetOffset + i] * FastMath.exp(max - value) + 1.0;
+                maxes[targetOffset + i] = value;
+            } else {
+                sums[targetOffset + i] += FastMath.exp(value - max);
+            }
+        }
+    }
+
+    @Override
+    public void softMaxNormalize(double[] data, int dataOffset, double[] maxes, double[] sums, int targetOffset,
+                                 int length) {
+        for (int i = 0; i < length; i++) {
+            data[dataOffset + i] = FastMath.exp(data[dataOffset + i] - maxes[targetOffset + i]) / sums[targetOffset + i];
+        }
+    }
+
+    @Override
+    public void argMaxInto(double[] maxes, int[] indexes, int targetOffset, double[] source, int sourceOffset,
+                           int length, int sourceIndex) {
+        for (int i = 0; i < length; i++) {
+            double value = source[sourceOffset + i];
+            if (value > maxes[targetOffset + i]) {
+                maxes[targetOffset + i] = value;
+                indexes[targetOffset + i] = sourceIndex;
+            }
+        }
+    }
+
+    @Override
+    public void add(double[] data, int fromInclusive, int toExclusive, double value) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] += value;
+        }
+    }
+
+    @Override
+    public void scale(double[] data, int fromInclusive, int toExclusive, double factor) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] *= factor;
+        }
+    }
+
+    @Override
+    public void divide(double[] data, int fromInclusive, int toExclusive, double divisor) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] /= divisor;
+        }
+    }
+
+    @Override
+    public void oneMinus(double[] data, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] = 1 - data[i];
+        }
+    }
+
+    @Override
+    public void sigmoid(double[] data, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] = 1 / (1 + FastMath.exp(-data[i]));
+        }
+    }
+
+    @Override
+    public void sigmoidDerivative(double[] data, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] = data[i] * (1.0 - data[i]);
+        }
+    }
+
+    @Override
+    public void sigmoidWithDerivative(double[] data, double[] derivatives, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            double y = 1 / (1 + FastMath.exp(-data[i]));
+            data[i] = y;
+            derivatives[i] = y * (1.0 - y);
+        }
+    }
+
+    @Override
+    public void rectifiedLinear(double[] data, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] = Math.max(0.0, data[i]);
+        }
+    }
+
+    @Override
+    public void rectifiedLinearDerivative(double[] data, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            data[i] = data[i] > 0 ? 1 : 0;
+        }
+    }
+
+    @Override
+    public void rectifiedLinearWithDerivative(double[] data, double[] derivatives, int fromInclusive, int toExclusive) {
+        for (int i = fromInclusive; i < toExclusive; i++) {
+            boolean active = data[i] > 0;
+            data[i] = active ? data[i] : 0.0;
+            derivatives[i] = active ? 1 : 0;
+        }
+    }
+}
@@ -4,7 +4,12 @@ import jmb.jcortex.mapfunctions.MatrixFunction;
 import org.jblas.DoubleMatrix;
 import org.jblas.ranges.IntervalRange;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.DoubleUnaryOperator;
@@ -12,6 +17,7 @@ import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static jmb.jcortex.data.MatrixParallelism.forEachRange;
 import static org.jblas.ranges.RangeUtils.interval;
 
 /**
@@ -24,6 +30,8 @@ import static org.jblas.ranges.RangeUtils.interval;
  */
 public class SynMatrix implements Copyable<SynMatrix>, Serializable {
 
+    private static final MatrixKernels kernels = MatrixKernels.getInstance();
+
     public static SynMatrix ones(int numRows, int numCols) {
    		return new SynMatrix(DoubleMatrix.ones(numRows, numCols));
    	}
@@ -60,6 +68,24 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
         Arrays.fill(internalMatrix.data, fillValue);
     }
 
+    /**
+     * Creates a rows x cols matrix backed by the first rows * cols elements of buffer, in column-major order. The
+     * buffer may be longer, so one buffer sized for the largest batch can back a matrix for any smaller one. Writes
+     * through either are seen by the other.
+     */
+    public static SynMatrix overBuffer(double[] buffer, int rows, int cols) {
+        if (buffer.length < rows * cols) {
+            throw new IllegalArgumentException(
+                    format("A buffer of %s values is too small for a %s x %s matrix", buffer.length, rows, cols));
+        }
+        DoubleMatrix matrix = new DoubleMatrix();
+        matrix.data = buffer;
+        matrix.rows = rows;
+        matrix.columns = cols;
+        matrix.length = rows * cols;
+        return new SynMatrix(matrix);
+    }
+
     public int numCols() {
         return internalMatrix.getColumns();
     }
@@ -77,10 +103,79 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
         return new SynMatrix(internalMatrix.dup());
     }
 
+    /** Copies every value into target, which must be the same size, without allocating. Returns target. */
+    public SynMatrix copyInto(SynMatrix target) {
+        if (!hasSameShape(target)) {
+            throw new IllegalArgumentException(format("Can't copy a %s x %s matrix into a %s x %s matrix",
+                    numRows(), numCols(), target.numRows(), target.numCols()));
+        }
+        System.arraycopy(internalMatrix.data, 0, target.internalMatrix.data, 0, internalMatrix.length);
+        return target;
+    }
+
+    public boolean hasSameShape(SynMatrix other) {
+        return numRows() == other.numRows() && numCols() == other.numCols();
+    }
+
     public double[] getRow(int rowNum) {
         return internalMatrix.getRow(rowNum).toArray();
     }
 
+    /** Copies the row into the given array, which must have numCols() elements, and returns it. */
+    public double[] getRowInto(int rowNum, double[] row) {
+        int numRows = numRows();
+        if (row.length != numCols()) {
+            throw new IllegalArgumentException(format("Expected %s values for a row, but got %s", numCols(), row.length));
+        }
+        double[] data = internalMatrix.data;
+        for (int col = 0; col < row.length; col++) {
+            row[col] = data[col * numRows + rowNum];
+        }
+        return row;
+    }
+
+    /**
+     * Fills this matrix from the buffer's next numRows() x numCols() values, in column-major order, with one bulk
+     * copy into the backing array. Returns this matrix.
+     */
+    public SynMatrix copyFrom(DoubleBuffer buffer) {
+        buffer.get(internalMatrix.data, 0, internalMatrix.length);
+        return this;
+    }
+
+    /** Fills this matrix from numRows() x numCols() values of the array, starting at offset, in column-major order. */
+    public SynMatrix copyFrom(double[] source, int offset) {
+        System.arraycopy(source, offset, internalMatrix.data, 0, internalMatrix.length);
+        return this;
+    }
+
+    /** Writes every value into the array, starting at offset, in column-major order (the order copyFrom() reads). */
+    public void copyTo(double[] target, int offset) {
+        System.arraycopy(internalMatrix.data, 0, target, offset, internalMatrix.length);
+    }
+
+    /** Writes every value to the buffer in column-major order (the order copyFrom() reads), with one bulk copy. */
+    public void copyTo(DoubleBuffer buffer) {
+        buffer.put(internalMatrix.data, 0, internalMatrix.length);
+    }
+
+    /** Writes the dimensions and values, for reading back with readFrom(). */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(numRows());
+        out.writeInt(numCols());
+        ByteBuffer bytes = ByteBuffer.allocate(8 * internalMatrix.length);
+        copyTo(bytes.asDoubleBuffer());
+        out.write(bytes.array());
+    }
+
+    /** Reads a matrix written by writeTo(). */
+    public static SynMatrix readFrom(DataInput in) throws IOException {
+        SynMatrix matrix = new SynMatrix(in.readInt(), in.readInt());
+        byte[] bytes = new byte[8 * matrix.internalMatrix.data.length];
+        in.readFully(bytes);
+        return matrix.copyFrom(ByteBuffer.wrap(bytes).asDoubleBuffer());
+    }
+
     public DoubleStream getRowStream(int rowNum) {
         return Arrays.stream(getRow(rowNum));
     }
@@ -118,8 +213,7 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
      * @return A new SynMatrix with the resulting values. The original SynMatrix is not altered.
      */
     public SynMatrix oneMinusThis() {
-        DoubleMatrix result = DoubleMatrix.ones(numRows(), numCols()).sub(internalMatrix);
-        return new SynMatrix(result);
+        return copy().applyInPlace(kernels::oneMinus);
     }
 
     /**
@@ -228,8 +322,8 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
 
     public SynMatrix plusInPlace(SynMatrix matrix) {
         assertSameSize(matrix);
-        internalMatrix.addi(matrix.internalMatrix);
-        return this;
+        double[] other = matrix.internalMatrix.data;
+        return applyInPlace((data, from, to) -> kernels.addInto(data, from, other, from, to - from));
     }
 
     private void assertSameSize(SynMatrix other) {
@@ -247,8 +341,8 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
 
     public SynMatrix minusInPlace(SynMatrix matrix) {
         assertSameSize(matrix);
-        internalMatrix.subi(matrix.internalMatrix);
-        return this;
+        double[] other = matrix.internalMatrix.data;
+        return applyInPlace((data, from, to) -> kernels.subtractInto(data, from, other, from, to - from));
     }
 
     public SynMatrix elementMult(SynMatrix matrix) {
@@ -258,8 +352,8 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
 
     public SynMatrix elementMultInPlace(SynMatrix matrix) {
         assertSameSize(matrix);
-        internalMatrix.muli(matrix.internalMatrix);
-        return this;
+        double[] other = matrix.internalMatrix.data;
+        return applyInPlace((data, from, to) -> kernels.multiplyInto(data, from, other, from, to - from));
     }
 
     public SynMatrix elementMult(double value) {
@@ -267,22 +361,98 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
     }
 
     public SynMatrix elementMultInPlace(double value) {
-        internalMatrix.muli(value);
-        return this;
+        return applyInPlace((data, from, to) -> kernels.scale(data, from, to, value));
     }
 
     public SynMatrix multiply(SynMatrix matrix) {
         return new SynMatrix(internalMatrix.mmul(matrix.internalMatrix));
     }
 
+    /**
+     * Matrix multiplication (this x matrix) written into result, which must be numRows() x matrix.numCols().
+     * Allocates nothing, so the result matrix can be reused. Returns the result.
+     */
+    public SynMatrix multiplyInto(SynMatrix matrix, SynMatrix result) {
+        if (numCols() != matrix.numRows() || result.numRows() != numRows() || result.numCols() != matrix.numCols()) {
+            throw new IllegalArgumentException(
+                    format("Can't multiply a %s x %s matrix by a %s x %s matrix into a %s x %s result",
+                            numRows(), numCols(), matrix.numRows(), matrix.numCols(), result.numRows(), result.numCols()));
+        }
+        internalMatrix.mmuli(matrix.internalMatrix, result.internalMatrix);
+        return result;
+    }
+
+    /** Adds the 1 x numCols() row vector to every row of this matrix, in place. */
+    public SynMatrix addRowVectorInPlace(SynMatrix rowVector) {
+        return addRowVectorInPlace(rowVector, null);
+    }
+
+    /**
+     * Adds the 1 x numCols() row vector to every row of this matrix and then applies the operation, in place. Each
+     * column is contiguous in the backing array, so the operation runs on a column straight after its bias is added,
+     * while it is still in cache, rather than in a second pass over the whole matrix. The operation may be null.
+     */
+    public SynMatrix addRowVectorInPlace(SynMatrix rowVector, RangeOperation operation) {
+        if (rowVector.numRows() != 1 || rowVector.numCols() != numCols()) {
+            throw new IllegalArgumentException(format("Row vector must be 1 x %s, but is %s x %s",
+                    numCols(), rowVector.numRows(), rowVector.numCols()));
+        }
+        int numRows = numRows();
+        double[] data = internalMatrix.data;
+        double[] bias = rowVector.internalMatrix.data;
+        forEachRange(numCols(), numRows, (fromCol, toCol) -> {
+            for (int col = fromCol; col < toCol; col++) {
+                int from = col * numRows;
+                kernels.add(data, from, from + numRows, bias[col]);
+                if (operation != null) {
+                    operation.apply(data, from, from + numRows);
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Vector-matrix multiplication (rowVector x this) in plain Java, written into result (length numCols()). Each
+     * column is contiguous in the backing array, so every output is one dot product over adjacent memory. For a
+     * single row this avoids the JNI call and temporary matrices of multiply(), which dominate small inputs.
+     */
+    public double[] multiplyRowInto(double[] rowVector, double[] result) {
+        return multiplyRowInto(rowVector, result, 0);
+    }
+
+    /**
+     * Like multiplyRowInto, but treats the first row of this matrix as a bias, as though a 1 had been prepended to
+     * rowVector (which has numRows() - 1 values). The same as rowVector.addBiasColumn().multiply(this).
+     */
+    public double[] multiplyBiasedRowInto(double[] rowVector, double[] result) {
+        return multiplyRowInto(rowVector, result, 1);
+    }
+
+    private double[] multiplyRowInto(double[] rowVector, double[] result, int biasRows) {
+        int numRows = numRows();
+        if (rowVector.length + biasRows != numRows || result.length != numCols()) {
+            throw new IllegalArgumentException(format("Can't multiply a row of %s by a %s x %s matrix into %s values",
+                    rowVector.length, numRows, numCols(), result.length));
+        }
+        double[] data = internalMatrix.data;
+        int length = rowVector.length;
+        // Always on the calling thread: a single row is latency bound, and forking would cost more than it saves
+        for (int col = 0; col < result.length; col++) {
+            int from = col * numRows;
+            double bias = biasRows == 0 ? 0 : data[from];
+            result[col] = bias + kernels.dot(rowVector, 0, data, from + biasRows, length);
+        }
+        return result;
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public SynMatrix elementDivide(double value) {
         return new SynMatrix(internalMatrix.div(value));
     }
 
     public SynMatrix elementDivideInPlace(double value) {
-        internalMatrix.divi(value);
-        return this;
+        return applyInPlace((data, from, to) -> kernels.divide(data, from, to, value));
     }
 
     public SynMatrix transpose() {
@@ -345,13 +515,50 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
    		return this.copy().applyInPlace(function);
    	}
 
+    /**
+     * Apply the function to every element, modifying this matrix in place. Large matrices are split into ranges
+     * that run in parallel (see MatrixParallelism), so the function must be safe to call from multiple threads.
+     */
    	public SynMatrix applyInPlace(DoubleUnaryOperator function) {
-   		for (int i = 0; i < internalMatrix.data.length; i++) {
-   			internalMatrix.data[i] = function.applyAsDouble(internalMatrix.data[i]);
-   		}
-   		return this;
+   		return applyInPlace(RangeOperation.forEachElement(function));
    	}
 
+    /**
+     * Apply the operation to the backing array of this matrix, modifying it in place. The values are in
+     * column-major order, but since the operation is applied to every element the order does not matter.
+     * Large matrices are split into ranges that run in parallel (see MatrixParallelism).
+     */
+    public SynMatrix applyInPlace(RangeOperation operation) {
+        double[] data = internalMatrix.data;
+        forEachRange(internalMatrix.length, 1, (from, to) -> operation.apply(data, from, to));
+        return this;
+    }
+
+    /**
+     * Apply the operation to the backing arrays of this matrix and the target, which must have the same
+     * dimensions. This matrix is modified in place and the second result is written into the target. Large
+     * matrices are split into ranges that run in parallel (see MatrixParallelism).
+     */
+    public SynMatrix applyInPlace(PairedRangeOperation operation, SynMatrix target) {
+        assertSameSize(target);
+        double[] data = internalMatrix.data;
+        double[] targetData = target.internalMatrix.data;
+        forEachRange(internalMatrix.length, 1, (from, to) -> operation.apply(data, targetData, from, to));
+        return this;
+    }
+
+    /**
+     * Apply the operation to blocks of rows of this matrix, modifying it in place. Large matrices are split into
+     * blocks of rows that run in parallel (see MatrixParallelism).
+     */
+    public SynMatrix applyToRowBlocksInPlace(RowBlockOperation operation) {
+        double[] data = internalMatrix.data;
+        int numRows = numRows();
+        int numCols = numCols();
+        forEachRange(numRows, numCols, (fromRow, toRow) -> operation.apply(data, numRows, numCols, fromRow, toRow));
+        return this;
+    }
+
     public SynMatrix apply(MatrixFunction matrixFunction) {
         return matrixFunction.apply(this);
     }
@@ -360,38 +567,208 @@ public class SynMatrix implements Copyable<SynMatrix>, Serializable {
    	 * Returns a vector of the sum of the cells in each column. Vector size is numCols x 1;
    	 */
    	public SynMatrix sumColumns() {
-   	    double[] colSums = new double[numCols()];
-        for (int i = 0; i < colSums.length; i++) {
-            colSums[i] = getColStream(i).sum();
-        }
-        return new SynMatrix(colSums);
+   	    return new SynMatrix(reduceColumns(kernels::sum));
    	}
 
    	/**
    	 * Returns a vector of the sum of the cells in each row. Vector size is numRows x 1;
    	 */
     public SynMatrix sumRows() {
-   	    double[] rowSums = new double[numRows()];
-        for (int i = 0; i < rowSums.length; i++) {
-            rowSums[i] = getRowStream(i).sum();
-        }
-        return new SynMatrix(rowSums);
+        return new SynMatrix(reduceRows(0.0, kernels::addInto));
    	}
 
     /**
    	 * Returns a vector of the mean value of the cells in each column. Vector size is numCols x 1;
    	 */
    	public SynMatrix getColMeans() {
-   	    return sumColumns().applyInPlace(x -> x/numRows());
+   	    double divisor = numRows();
+   	    return sumColumns().applyInPlace((data, from, to) -> kernels.scale(data, from, to, 1.0 / divisor));
    	}
 
    	/**
    	 * Returns a vector of the mean value of the cells in each row. Vector size is numRows x 1;
    	 */
     public SynMatrix getRowMeans() {
-        return sumRows().applyInPlace(x -> x/numCols());
+        double divisor = numCols();
+        return sumRows().applyInPlace((data, from, to) -> kernels.scale(data, from, to, 1.0 / divisor));
    	}
 
+    /**
+     * Returns a vector of the largest value in each column. Vector size is numCols x 1;
+     */
+    public SynMatrix getColMaxes() {
+        return new SynMatrix(reduceColumns(kernels::max));
+    }
+
+    /**
+     * Returns a vector of the largest value in each row. Vector size is numRows x 1;
+     */
+    public SynMatrix getRowMaxes() {
+        return new SynMatrix(reduceRows(Double.NEGATIVE_INFINITY, kernels::maxInto));
+    }
+
+    /**
+     * Returns the index of the largest value in each column. If the largest value occurs more than once, the
+     * first index is returned.
+     */
+    public int[] getColArgMaxes() {
+        int numRows = numRows();
+        double[] data = internalMatrix.data;
+        int[] argMaxes = new int[numCols()];
+        forEachRange(argMaxes.length, numRows, (fromCol, toCol) -> {
+            for (int col = fromCol; col < toCol; col++) {
+                int offset = col * numRows;
+                int argMax = 0;
+                for (int row = 1; row < numRows; row++) {
+                    if (data[offset + row] > data[offset + argMax]) {
+                        argMax = row;
+                    }
+                }
+                argMaxes[col] = argMax;
+            }
+        });
+        return argMaxes;
+    }
+
+    /**
+     * Returns the index of the largest value in each row, e.g. the predicted class for each row of classifier
+     * output. If the largest value occurs more than once, the first index is returned.
+     */
+    public int[] getRowArgMaxes() {
+        return getRowArgMaxes(new int[numRows()], new double[numRows()]);
+    }
+
+    /**
+     * getRowArgMaxes() written into the given arrays, which must each have at least numRows() elements, so that
+     * callers can reuse them. The maxes array is used as scratch space and ends up holding each row's max. Returns
+     * argMaxes.
+     */
+    public int[] getRowArgMaxes(int[] argMaxes, double[] maxes) {
+        int numRows = numRows();
+        double[] data = internalMatrix.data;
+        Arrays.fill(maxes, 0, numRows, Double.NEGATIVE_INFINITY);
+        Arrays.fill(argMaxes, 0, numRows, 0);
+        forEachRange(numRows, numCols(), (fromRow, toRow) -> {
+            for (int col = 0; col < numCols(); col++) {
+                kernels.argMaxInto(maxes, argMaxes, fromRow, data, col * numRows + fromRow, toRow - fromRow, col);
+            }
+        });
+        return argMaxes;
+    }
+
+    /**
+     * Returns the column indexes of the k largest values in each row, largest first. E.g. the k most likely classes
+     * for each row of classifier outputs. k must be positive, and is capped at numCols().
+     */
+    public int[][] getRowTopIndexes(int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive: " + k);
+        int numRows = numRows();
+        int numCols = numCols();
+        int size = Math.min(k, numCols);
+        double[] data = internalMatrix.data;
+        int[][] topIndexes = new int[numRows][size];
+        forEachRange(numRows, numCols, (fromRow, toRow) -> {
+            double[] topValues = new double[size];
+            for (int row = fromRow; row < toRow; row++) {
+                int[] indexes = topIndexes[row];
+                int count = 0;
+                for (int col = 0; col < numCols; col++) {
+                    double value = data[col * numRows + row];
+                    if (count == size && value <= topValues[size - 1]) continue;
+                    // insertion into the sorted top values, dropping the smallest when full
+                    int position = count < size ? count++ : size - 1;
+                    while (position > 0 && topValues[position - 1] < value) {
+                        topValues[position] = topValues[position - 1];
+                        indexes[position] = indexes[position - 1];
+                        position--;
+                    }
+                    topValues[position] = value;
+                    indexes[position] = col;
+                }
+            }
+        });
+        return topIndexes;
+    }
+
+    /**
+     * Returns a vector of the sample variance (dividing by n - 1) of each column. Vector size is numCols x 1;
+     * A single row has no spread, so its variances are 0.
+     */
+    public SynMatrix getColVariances() {
+        int numRows = numRows();
+        if (numRows < 2) {
+            return new SynMatrix(new double[numCols()]);
+        }
+        return new SynMatrix(reduceColumns((values, from, to) -> {
+            double mean = kernels.sum(values, from, to) / numRows;
+            return kernels.sumSquaredDeviations(values, from, to, mean) / (numRows - 1);
+        }));
+    }
+
+    /**
+     * Returns a vector of the sample variance (dividing by n - 1) of each row. Vector size is numRows x 1;
+     * A single column has no spread, so its variances are 0.
+     */
+    public SynMatrix getRowVariances() {
+        int numRows = numRows();
+        if (numCols() < 2) {
+            return new SynMatrix(new double[numRows]);
+        }
+        double[] data = internalMatrix.data;
+        double[] means = getRowMeans().internalMatrix.data;
+        double[] variances = new double[numRows];
+        forEachRange(numRows, numCols(), (fromRow, toRow) -> {
+            for (int col = 0; col < numCols(); col++) {
+                kernels.addSquaredDeviationsInto(variances, fromRow, data, col * numRows + fromRow, means, toRow - fromRow);
+            }
+            kernels.scale(variances, fromRow, toRow, 1.0 / (numCols() - 1));
+        });
+        return new SynMatrix(variances);
+    }
+
+    /**
+     * Reduces each column to a single value. Columns are contiguous in the column-major backing array, so each
+     * one is a single linear pass. Large matrices are split into blocks of columns that are reduced in parallel
+     * (see MatrixParallelism).
+     */
+    private double[] reduceColumns(ColumnReduction reduction) {
+        int numRows = numRows();
+        double[] data = internalMatrix.data;
+        double[] results = new double[numCols()];
+        forEachRange(results.length, numRows, (fromCol, toCol) -> {
+            for (int col = fromCol; col < toCol; col++) {
+                results[col] = reduction.reduce(data, col * numRows, (col + 1) * numRows);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Reduces each row to a single value. Rather than walking each row with a stride of numRows, the contiguous
+     * segment of every column is folded into an accumulator per row. Large matrices are split into blocks of
+     * rows that are reduced in parallel (see MatrixParallelism).
+     */
+    private double[] reduceRows(double initialValue, RowAccumulation accumulation) {
+        int numRows = numRows();
+        double[] data = internalMatrix.data;
+        double[] results = new double[numRows];
+        Arrays.fill(results, initialValue);
+        forEachRange(numRows, numCols(), (fromRow, toRow) -> {
+            for (int col = 0; col < numCols(); col++) {
+                accumulation.accumulate(results, fromRow, data, col * numRows + fromRow, toRow - fromRow);
+            }
+        });
+        return results;
+    }
+
+    private interface ColumnReduction {
+        double reduce(double[] data, int fromInclusive, int toExclusive);
+    }
+
+    private interface RowAccumulation {
+        void accumulate(double[] results, int resultsOffset, double[] data, int dataOffset, int length);
+    }
+
    	@Override
     public String toString() {
         return internalMatrix.toString();
@@ -0,0 +1,94 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A small, fast xorshift128+ random number generator for high-volume uses like dropout masks, where
+ * java.util.Random's synchronization and 48 bit state are a cost with no benefit. Seeds are spread with splitmix64
+ * so that similar seeds give unrelated sequences. Not threadsafe: use split() to give each thread its own
+ * generator. Not suitable for cryptography.
+ */
+public class XorShiftRandom implements Checkpointable {
+
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state0;
+    private long state1;
+
+    public XorShiftRandom() {
+        this(System.nanoTime() ^ Thread.currentThread().getId());
+    }
+
+    public XorShiftRandom(long seed) {
+        state0 = mix(seed + GOLDEN_GAMMA);
+        state1 = mix(seed + 2 * GOLDEN_GAMMA);
+        if (state0 == 0 && state1 == 0) state1 = 1;
+    }
+
+    public long nextLong() {
+        long s1 = state0;
+        long s0 = state1;
+        state0 = s0;
+        s1 ^= s1 << 23;
+        state1 = s1 ^ s0 ^ (s1 >>> 17) ^ (s0 >>> 26);
+        return state1 + s0;
+    }
+
+    /** Returns a uniformly distributed double from 0 (inclusive) to 1 (exclusive). */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /** Returns a uniformly distributed int from 0 (inclusive) to bound (exclusive). */
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive: " + bound);
+        return (int) (nextDouble() * bound);
+    }
+
+    /**
+     * Returns a normally distributed double with mean 0 and standard deviation 1, using the polar method. The
+     * second value of each pair is discarded, so the state is only ever the two longs.
+     */
+    public double nextGaussian() {
+        double x;
+        double y;
+        double s;
+        do {
+            x = 2 * nextDouble() - 1;
+            y = 2 * nextDouble() - 1;
+            s = x * x + y * y;
+        } while (s >= 1 || s == 0);
+        return x * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    /** Returns a new generator seeded from this one, for use on another thread. */
+    public XorShiftRandom split() {
+        return new XorShiftRandom(nextLong());
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(state0);
+        out.writeLong(state1);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        state0 = in.readLong();
+        state1 = in.readLong();
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
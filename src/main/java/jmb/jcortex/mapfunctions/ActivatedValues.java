@@ -0,0 +1,31 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+import jmb.jcortex.data.SynMatrix;
+
+/**
+ * The output of an activation function together with its derivative, as computed by
+ * DifferentiableMatrixFunction.applyWithDerivative().
+ */
+public class ActivatedValues {
+
+    private final SynMatrix values;
+    private final SynMatrix derivatives;
+
+    public ActivatedValues(SynMatrix values, SynMatrix derivatives) {
+        this.values = values;
+        this.derivatives = derivatives;
+    }
+
+    public SynMatrix getValues() {
+        return values;
+    }
+
+    public SynMatrix getDerivatives() {
+        return derivatives;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+/**
+ * Fast approximations of exp, sigmoid and tanh, for use where a tiny error is acceptable in exchange for speed.
+ * None of them call Math.exp or FastMath.exp on the common path.
+ * <ul>
+ *     <li>exp: 2^(x/ln2) is split into a power of two (built directly from the exponent bits), a 64 entry table
+ *     of 2^(j/64) and a cubic polynomial for the remainder. Maximum relative error: 1e-9.</li>
+ *     <li>sigmoid: cubic Hermite interpolation of a table covering [-16, 16] in steps of 1/64. The slopes come from
+ *     the table values themselves (sigmoid' = y(1 - y)). Outside the table, 1 / (1 + exp(-x)) with the approximate
+ *     exp. Maximum absolute error: 1e-10.</li>
+ *     <li>tanh: the same interpolation over [-8, 8] (tanh' = 1 - y^2), and 1 - 2 / (exp(2x) + 1) outside it.
+ *     Maximum absolute error: 1e-9.</li>
+ * </ul>
+ * These are stateless and threadsafe.
+ */
+public final class ApproximateFunctions {
+
+    private static final double LOG2_E = 1.4426950408889634;
+    private static final double LN_2 = 0.6931471805599453;
+
+    private static final int EXP_TABLE_BITS = 6;
+    private static final int EXP_TABLE_SIZE = 1 << EXP_TABLE_BITS;
+    private static final double[] EXP_TABLE = new double[EXP_TABLE_SIZE];
+
+    private static final double TABLE_STEP = 1.0 / 64;
+    private static final double SIGMOID_RANGE = 16;
+    private static final double[] SIGMOID_TABLE = new double[(int) (2 * SIGMOID_RANGE / TABLE_STEP) + 2];
+    private static final double TANH_RANGE = 8;
+    private static final double[] TANH_TABLE = new double[(int) (2 * TANH_RANGE / TABLE_STEP) + 2];
+
+    static {
+        for (int i = 0; i < EXP_TABLE_SIZE; i++) {
+            EXP_TABLE[i] = Math.pow(2, (double) i / EXP_TABLE_SIZE);
+        }
+        for (int i = 0; i < SIGMOID_TABLE.length; i++) {
+            SIGMOID_TABLE[i] = 1 / (1 + Math.exp(-(i * TABLE_STEP - SIGMOID_RANGE)));
+        }
+        for (int i = 0; i < TANH_TABLE.length; i++) {
+            TANH_TABLE[i] = Math.tanh(i * TABLE_STEP - TANH_RANGE);
+        }
+    }
+
+    public static double exp(double x) {
+        if (x > 709) return x != x ? x : Double.POSITIVE_INFINITY;
+        if (x < -708) return x != x ? x : 0.0;
+        // x / ln2 in units of 1/64: the top bits pick the power of two, the low 6 bits the table entry
+        double scaled = x * (LOG2_E * EXP_TABLE_SIZE);
+        double whole = Math.floor(scaled);
+        long n = (long) whole;
+        // e^u for the remaining u in [0, ln2/64)
+        double u = (scaled - whole) * (LN_2 / EXP_TABLE_SIZE);
+        double remainder = 1 + u * (1 + u * (0.5 + u * (1.0 / 6)));
+        double powerOfTwo = Double.longBitsToDouble(((n >> EXP_TABLE_BITS) + 1023) << 52);
+        return EXP_TABLE[(int) (n & (EXP_TABLE_SIZE - 1))] * remainder * powerOfTwo;
+    }
+
+    public static double sigmoid(double x) {
+        if (x > -SIGMOID_RANGE && x < SIGMOID_RANGE) {
+            double position = (x + SIGMOID_RANGE) * (1 / TABLE_STEP);
+            int index = (int) position;
+            double y0 = SIGMOID_TABLE[index];
+            double y1 = SIGMOID_TABLE[index + 1];
+            return hermite(position - index, y0, y1, y0 * (1 - y0) * TABLE_STEP, y1 * (1 - y1) * TABLE_STEP);
+        }
+        return x != x ? x : 1 / (1 + exp(-x));
+    }
+
+    public static double tanh(double x) {
+        if (x > -TANH_RANGE && x < TANH_RANGE) {
+            double position = (x + TANH_RANGE) * (1 / TABLE_STEP);
+            int index = (int) position;
+            double y0 = TANH_TABLE[index];
+            double y1 = TANH_TABLE[index + 1];
+            return hermite(position - index, y0, y1, (1 - y0 * y0) * TABLE_STEP, (1 - y1 * y1) * TABLE_STEP);
+        }
+        return x != x ? x : 1 - 2 / (exp(2 * x) + 1);
+    }
+
+    /**
+     * Cubic Hermite interpolation between y0 and y1 at fraction t, given the slopes at each end (scaled to the
+     * table step).
+     */
+    private static double hermite(double t, double y0, double y1, double slope0, double slope1) {
+        double t2 = t * t;
+        double t3 = t2 * t;
+        return (2 * t3 - 3 * t2 + 1) * y0 + (t3 - 2 * t2 + t) * slope0 + (-2 * t3 + 3 * t2) * y1 + (t3 - t2) * slope1;
+    }
+
+    private ApproximateFunctions() {}
+}
@@ -5,6 +5,9 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.PairedRangeOperation;
+import jmb.jcortex.data.RangeOperation;
+
 import java.util.function.DoubleUnaryOperator;
 
 /**
@@ -25,4 +28,27 @@ public interface DifferentiableFunction {
      * getDerivative().applyAsDouble(getFunction().applyAsDouble(x))
      */
     DoubleUnaryOperator getDerivative();
+
+    /**
+     * getFunction() as an in-place operation over a range of a matrix's backing array. Override this to supply a
+     * faster (e.g. vectorized) loop than calling the DoubleUnaryOperator on every element.
+     */
+    default RangeOperation getFunctionKernel() {
+        return RangeOperation.forEachElement(getFunction());
+    }
+
+    /**
+     * getDerivative() as an in-place operation over a range of a matrix's backing array.
+     */
+    default RangeOperation getDerivativeKernel() {
+        return RangeOperation.forEachElement(getDerivative());
+    }
+
+    /**
+     * getFunction() and getDerivative() in a single pass: each value is replaced by the function output, and the
+     * derivative of that output is written to the second array. Used by the training forward pass.
+     */
+    default PairedRangeOperation getFusedKernel() {
+        return PairedRangeOperation.forEachElement(getFunction(), getDerivative());
+    }
 }
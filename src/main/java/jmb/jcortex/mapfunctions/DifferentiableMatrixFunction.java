@@ -5,6 +5,8 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.SynMatrix;
+
 /**
  *
  */
@@ -13,4 +15,13 @@ public interface DifferentiableMatrixFunction {
     MatrixFunction getFunction();
     MatrixFunction getDerivative();
 
+    /**
+     * Applies the function, and the derivative to its output. The default runs them as two separate passes;
+     * implementations override this to compute both in one pass over the matrix.
+     */
+    default ActivatedValues applyWithDerivative(SynMatrix synMatrix) {
+        SynMatrix values = getFunction().apply(synMatrix);
+        return new ActivatedValues(values, getDerivative().apply(values));
+    }
+
 }
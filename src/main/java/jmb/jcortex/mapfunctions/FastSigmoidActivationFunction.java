@@ -0,0 +1,26 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Sigmoid using an interpolated lookup table instead of exp. Maximum absolute error: 1e-10 (see
+ * ApproximateFunctions). The derivative is exact, since it is calculated from the output values.
+ */
+public class FastSigmoidActivationFunction implements DifferentiableFunction {
+
+    @Override
+    public DoubleUnaryOperator getFunction() {
+        return ApproximateFunctions::sigmoid;
+    }
+
+    @Override
+    public DoubleUnaryOperator getDerivative() {
+        return y -> y * (1.0 - y);
+    }
+
+}
@@ -0,0 +1,26 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Tanh using an interpolated lookup table. Maximum absolute error: 1e-9 (see ApproximateFunctions). The
+ * derivative is exact, since it is calculated from the output values.
+ */
+public class FastTanhActivationFunction implements DifferentiableFunction {
+
+    @Override
+    public DoubleUnaryOperator getFunction() {
+        return ApproximateFunctions::tanh;
+    }
+
+    @Override
+    public DoubleUnaryOperator getDerivative() {
+        return y -> 1.0 - y * y;
+    }
+
+}
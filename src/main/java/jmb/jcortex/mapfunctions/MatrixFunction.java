@@ -5,20 +5,61 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.RangeOperation;
 import jmb.jcortex.data.SynMatrix;
 
-import java.util.stream.IntStream;
+import java.util.Optional;
 
 public interface MatrixFunction {
 
     SynMatrix apply(SynMatrix synMatrix);
 
+    /**
+     * Applies the function, overwriting the given matrix where the implementation supports it. Returns the result,
+     * which is the same matrix unless the function can't work in place (the default just calls apply()).
+     */
+    default SynMatrix applyInPlace(SynMatrix synMatrix) {
+        return apply(synMatrix);
+    }
+
+    /**
+     * The function as an operation on each element of a matrix's backing array, if it is applied element by
+     * element. Empty for functions like softmax that depend on other elements.
+     */
+    default Optional<RangeOperation> getElementOperation() {
+        return Optional.empty();
+    }
+
+    /**
+     * Applies the function to a single row of values, overwriting them where possible, and returns the result. Used
+     * by the single-row inference path, which works on plain arrays rather than matrices.
+     */
+    default double[] applyToRow(double[] row) {
+        Optional<RangeOperation> elementOperation = getElementOperation();
+        if (elementOperation.isPresent()) {
+            elementOperation.get().apply(row, 0, row.length);
+            return row;
+        }
+        return apply(new SynMatrix(new double[][]{row})).getRow(0);
+    }
+
+    /**
+     * Applies the RowFunction to each row of the matrix in place. Rows are gathered from the column-major storage
+     * into one reused buffer per block of rows, rather than copying each row out and back through new matrices.
+     */
     default SynMatrix applyToRows(SynMatrix synMatrix, RowFunction rowFunction) {
-        IntStream.range(0, synMatrix.numRows()).parallel().forEach(rowIndex -> {
-            double[] row = synMatrix.getRow(rowIndex);
-            synMatrix.setRow(rowIndex, rowFunction.apply(row));
+        return synMatrix.applyToRowBlocksInPlace((data, numRows, numCols, fromRow, toRow) -> {
+            double[] row = new double[numCols];
+            for (int rowIndex = fromRow; rowIndex < toRow; rowIndex++) {
+                for (int col = 0; col < numCols; col++) {
+                    row[col] = data[col * numRows + rowIndex];
+                }
+                double[] result = rowFunction.apply(row);
+                for (int col = 0; col < numCols; col++) {
+                    data[col * numRows + rowIndex] = result[col];
+                }
+            }
         });
-        return synMatrix;
     }
 
 }
@@ -5,8 +5,17 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Common activation and output functions. These are stateless and threadsafe, and can thus be used as constants.
+ * <p>
+ * The FAST_ variants trade a tiny, bounded error for speed (see ApproximateFunctions for the maximum errors).
+ * <p>
+ * Each constant is registered under a name (the constant's name without _MATRIX_FUNCTION), which is how saved
+ * models refer to their functions. Custom functions must be registered before a model using them is saved or loaded.
  */
 public class MatrixFunctions {
 
@@ -19,8 +28,70 @@ public class MatrixFunctions {
     public static final DifferentiableMatrixFunction RECIFIED_LINEAR_MATRIX_FUNCTION
             = new SimpleDifferentiableMatrixFunction(new RectifiedLinearActivationFunction());
 
+    /**
+     * The derivative of 1 is a stand-in: with SquaredErrorLossFunction it makes the output deltas outputs - labels,
+     * the cross-entropy gradient. Prefer pairing with SoftMaxCrossEntropyLossFunction, which never uses it.
+     */
     public static final DifferentiableMatrixFunction SOFTMAX_MATRIX_FUNCTION
             = new SimpleDifferentiableMatrixFunction(new SoftMaxActivationFunction(),
             new SimpleMatrixFunction(x -> 1));
 
+    public static final DifferentiableMatrixFunction TANH_MATRIX_FUNCTION
+            = new SimpleDifferentiableMatrixFunction(new TanhActivationFunction());
+
+    public static final DifferentiableMatrixFunction FAST_SIGMOID_MATRIX_FUNCTION
+            = new SimpleDifferentiableMatrixFunction(new FastSigmoidActivationFunction());
+
+    public static final DifferentiableMatrixFunction FAST_TANH_MATRIX_FUNCTION
+            = new SimpleDifferentiableMatrixFunction(new FastTanhActivationFunction());
+
+    public static final DifferentiableMatrixFunction FAST_SOFTMAX_MATRIX_FUNCTION
+            = new SimpleDifferentiableMatrixFunction(new SoftMaxActivationFunction(ApproximateFunctions::exp),
+            new SimpleMatrixFunction(x -> 1));
+
+    private static final Map<String, DifferentiableMatrixFunction> functionsByName = new ConcurrentHashMap<>();
+
+    static {
+        register("SIGMOID", SIGMOID_MATRIX_FUNCTION);
+        register("LINEAR", LINEAR_MATRIX_FUNCTION);
+        register("RECTIFIED_LINEAR", RECIFIED_LINEAR_MATRIX_FUNCTION);
+        register("SOFTMAX", SOFTMAX_MATRIX_FUNCTION);
+        register("TANH", TANH_MATRIX_FUNCTION);
+        register("FAST_SIGMOID", FAST_SIGMOID_MATRIX_FUNCTION);
+        register("FAST_TANH", FAST_TANH_MATRIX_FUNCTION);
+        register("FAST_SOFTMAX", FAST_SOFTMAX_MATRIX_FUNCTION);
+    }
+
+    /** Registers a function under a name, so models using it can be saved and loaded. Names can't be reused. */
+    public static void register(String name, DifferentiableMatrixFunction function) {
+        DifferentiableMatrixFunction existing = functionsByName.putIfAbsent(name, function);
+        if (existing != null && existing != function) {
+            throw new IllegalArgumentException("A different function is already registered as " + name);
+        }
+    }
+
+    public static DifferentiableMatrixFunction forName(String name) {
+        DifferentiableMatrixFunction function = functionsByName.get(name);
+        if (function == null) throw new IllegalArgumentException("No function is registered as " + name);
+        return function;
+    }
+
+    /** Returns the name the function is registered under, if any. */
+    public static Optional<String> nameOf(DifferentiableMatrixFunction function) {
+        return functionsByName.entrySet().stream()
+                .filter(entry -> entry.getValue() == function)
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
+    /**
+     * Returns the FAST_ approximation of the given function, or the function itself if it has no approximation.
+     */
+    public static DifferentiableMatrixFunction approximationOf(DifferentiableMatrixFunction function) {
+        if (function == SIGMOID_MATRIX_FUNCTION) return FAST_SIGMOID_MATRIX_FUNCTION;
+        if (function == TANH_MATRIX_FUNCTION) return FAST_TANH_MATRIX_FUNCTION;
+        if (function == SOFTMAX_MATRIX_FUNCTION) return FAST_SOFTMAX_MATRIX_FUNCTION;
+        return function;
+    }
+
 }
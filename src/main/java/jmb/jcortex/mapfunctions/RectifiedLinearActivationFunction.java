@@ -5,6 +5,10 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.MatrixKernels;
+import jmb.jcortex.data.PairedRangeOperation;
+import jmb.jcortex.data.RangeOperation;
+
 import java.util.function.DoubleUnaryOperator;
 
 /**
@@ -21,4 +25,19 @@ public class RectifiedLinearActivationFunction implements DifferentiableFunction
     public DoubleUnaryOperator getDerivative() {
         return x -> x > 0 ? 1 : 0;
     }
+
+    @Override
+    public RangeOperation getFunctionKernel() {
+        return MatrixKernels.getInstance()::rectifiedLinear;
+    }
+
+    @Override
+    public RangeOperation getDerivativeKernel() {
+        return MatrixKernels.getInstance()::rectifiedLinearDerivative;
+    }
+
+    @Override
+    public PairedRangeOperation getFusedKernel() {
+        return MatrixKernels.getInstance()::rectifiedLinearWithDerivative;
+    }
 }
@@ -5,6 +5,9 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.MatrixKernels;
+import jmb.jcortex.data.PairedRangeOperation;
+import jmb.jcortex.data.RangeOperation;
 import org.apache.commons.math3.util.FastMath;
 
 import java.util.function.DoubleUnaryOperator;
@@ -28,4 +31,18 @@ public class SigmoidActivationFunction implements DifferentiableFunction {
         return x -> x * (1.0 - x);
     }
 
+    @Override
+    public RangeOperation getFunctionKernel() {
+        return MatrixKernels.getInstance()::sigmoid;
+    }
+
+    @Override
+    public RangeOperation getDerivativeKernel() {
+        return MatrixKernels.getInstance()::sigmoidDerivative;
+    }
+
+    @Override
+    public PairedRangeOperation getFusedKernel() {
+        return MatrixKernels.getInstance()::sigmoidWithDerivative;
+    }
 }
@@ -5,6 +5,9 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.PairedRangeOperation;
+import jmb.jcortex.data.SynMatrix;
+
 /**
  *
  */
@@ -12,15 +15,32 @@ public class SimpleDifferentiableMatrixFunction implements DifferentiableMatrixF
 
     private final MatrixFunction function;
     private final MatrixFunction derivative;
+    private final PairedRangeOperation fusedKernel;
 
     public SimpleDifferentiableMatrixFunction(DifferentiableFunction differentiableFunction) {
-        function = new SimpleMatrixFunction(differentiableFunction.getFunction());
-        derivative = new SimpleMatrixFunction(differentiableFunction.getDerivative());
+        function = new SimpleMatrixFunction(differentiableFunction.getFunctionKernel());
+        derivative = new SimpleMatrixFunction(differentiableFunction.getDerivativeKernel());
+        fusedKernel = differentiableFunction.getFusedKernel();
     }
 
     public SimpleDifferentiableMatrixFunction(MatrixFunction function, MatrixFunction derivative) {
         this.function = function;
         this.derivative = derivative;
+        this.fusedKernel = null;
+    }
+
+    /**
+     * When created from a DifferentiableFunction, computes the values and derivatives in one pass with its fused
+     * kernel. Otherwise falls back to applying the function and the derivative separately.
+     */
+    @Override
+    public ActivatedValues applyWithDerivative(SynMatrix synMatrix) {
+        if (fusedKernel == null) {
+            return DifferentiableMatrixFunction.super.applyWithDerivative(synMatrix);
+        }
+        SynMatrix derivatives = new SynMatrix(synMatrix.numRows(), synMatrix.numCols());
+        SynMatrix values = synMatrix.copy().applyInPlace(fusedKernel, derivatives);
+        return new ActivatedValues(values, derivatives);
     }
 
     @Override
@@ -5,8 +5,10 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.RangeOperation;
 import jmb.jcortex.data.SynMatrix;
 
+import java.util.Optional;
 import java.util.function.DoubleUnaryOperator;
 
 /**
@@ -14,14 +16,28 @@ import java.util.function.DoubleUnaryOperator;
  */
 public class SimpleMatrixFunction implements MatrixFunction {
 
-    private final DoubleUnaryOperator function;
+    private final RangeOperation function;
 
     public SimpleMatrixFunction(DoubleUnaryOperator function) {
+        this.function = RangeOperation.forEachElement(function);
+    }
+
+    public SimpleMatrixFunction(RangeOperation function) {
         this.function = function;
     }
 
     @Override
     public SynMatrix apply(SynMatrix synMatrix) {
-        return synMatrix.apply(function);
+        return synMatrix.copy().applyInPlace(function);
+    }
+
+    @Override
+    public SynMatrix applyInPlace(SynMatrix synMatrix) {
+        return synMatrix.applyInPlace(function);
+    }
+
+    @Override
+    public Optional<RangeOperation> getElementOperation() {
+        return Optional.of(function);
     }
 }
\ No newline at end of file
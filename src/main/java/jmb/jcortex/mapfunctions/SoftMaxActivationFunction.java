@@ -5,23 +5,107 @@
  */
 package jmb.jcortex.mapfunctions;
 
+import jmb.jcortex.data.MatrixKernels;
 import jmb.jcortex.data.SynMatrix;
 import org.apache.commons.math3.util.FastMath;
 
 import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
 
+/**
+ * Softmax over each row. The max of each row is subtracted before exponentiating, so large inputs don't overflow.
+ * By default exp is FastMath.exp (or the Vector API exp, see MatrixKernels). A different exp, such as
+ * ApproximateFunctions::exp, can be given to the constructor.
+ */
 public class SoftMaxActivationFunction implements MatrixFunction, RowFunction {
 
+    private final MatrixKernels kernels = MatrixKernels.getInstance();
+    private final DoubleUnaryOperator exp;
+
+    public SoftMaxActivationFunction() {
+        this.exp = null;
+    }
+
+    public SoftMaxActivationFunction(DoubleUnaryOperator exp) {
+        this.exp = exp;
+    }
+
+    /**
+     * Applies softmax to every row of the matrix IN PLACE, and returns the same matrix. Works directly on the
+     * column-major backing storage in two passes per block of rows: one to find each row's max and its sum of
+     * exponents, and one to exponentiate and scale. Large matrices are split into row blocks that run in parallel.
+     */
     @Override
     public SynMatrix apply(SynMatrix synMatrix) {
-        return applyToRows(synMatrix, this);
+        return synMatrix.applyToRowBlocksInPlace((data, numRows, numCols, fromRow, toRow) -> {
+            int blockSize = toRow - fromRow;
+            double[] maxes = new double[blockSize];
+            double[] sums = new double[blockSize];
+            Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+            if (exp == null) {
+                for (int col = 0; col < numCols; col++) {
+                    kernels.softMaxAccumulate(maxes, sums, 0, data, col * numRows + fromRow, blockSize);
+                }
+                for (int col = 0; col < numCols; col++) {
+                    kernels.softMaxNormalize(data, col * numRows + fromRow, maxes, sums, 0, blockSize);
+                }
+            } else {
+                applyWithCustomExp(data, numRows, numCols, fromRow, blockSize, maxes, sums);
+            }
+        });
+    }
+
+    /** apply() already works in place. */
+    @Override
+    public SynMatrix applyInPlace(SynMatrix synMatrix) {
+        return apply(synMatrix);
+    }
+
+    /** Softmax of one row, without wrapping it in a matrix. */
+    @Override
+    public double[] applyToRow(double[] row) {
+        return apply(row);
+    }
+
+    /** The same two passes as the kernels, calling the given exp. */
+    private void applyWithCustomExp(double[] data, int numRows, int numCols, int fromRow, int blockSize,
+                                    double[] maxes, double[] sums) {
+        for (int col = 0; col < numCols; col++) {
+            int offset = col * numRows + fromRow;
+            for (int i = 0; i < blockSize; i++) {
+                double value = data[offset + i];
+                if (value > maxes[i]) {
+                    sums[i] = sums[i] * exp.applyAsDouble(maxes[i] - value) + 1.0;
+                    maxes[i] = value;
+                } else {
+                    sums[i] += exp.applyAsDouble(value - maxes[i]);
+                }
+            }
+        }
+        for (int col = 0; col < numCols; col++) {
+            int offset = col * numRows + fromRow;
+            for (int i = 0; i < blockSize; i++) {
+                data[offset + i] = exp.applyAsDouble(data[offset + i] - maxes[i]) / sums[i];
+            }
+        }
     }
 
     @Override
     public double[] apply(double[] input) {
-        double[] exp = Arrays.stream(input).map(FastMath::exp).toArray();
-        double sum = Arrays.stream(exp).sum();
-        return Arrays.stream(exp).map(value -> value/sum).toArray();
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : input) {
+            max = Math.max(max, value);
+        }
+        double[] output = new double[input.length];
+        double sum = 0;
+        for (int i = 0; i < input.length; i++) {
+            output[i] = exp == null ? FastMath.exp(input[i] - max) : exp.applyAsDouble(input[i] - max);
+            sum += output[i];
+        }
+        for (int i = 0; i < output.length; i++) {
+            output[i] /= sum;
+        }
+        return output;
     }
 
 }
@@ -0,0 +1,30 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Hyperbolic tangent. Like sigmoid, but with outputs from -1 to 1.
+ */
+public class TanhActivationFunction implements DifferentiableFunction {
+
+    @Override
+    public DoubleUnaryOperator getFunction() {
+        return FastMath::tanh;
+    }
+
+    /**
+     * The derivative calculated from the output of getFunction(): 1 - y^2
+     */
+    @Override
+    public DoubleUnaryOperator getDerivative() {
+        return y -> 1.0 - y * y;
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.SynMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous predictions for single rows of features. Requests are queued and coalesced into batches by a
+ * background thread, which runs one forward pass per batch and completes each request's future with its row of the
+ * outputs. This trades a little latency (at most maxWait) for the much better throughput of a batched forward pass.
+ * The futures are completed on a completion executor (the common ForkJoinPool by default), so that callers'
+ * dependent stages don't hold up the next batch.
+ * <p>
+ * The knobs:
+ * <ul>
+ *     <li>maxBatchSize: a batch runs as soon as this many requests are waiting. Larger is more efficient.</li>
+ *     <li>maxWait: the longest the first request of a batch waits for others to join it. Zero runs whatever is
+ *     waiting straight away, so batches only form under load.</li>
+ *     <li>queueCapacity: requests beyond this many waiting are rejected, failing their futures with a
+ *     RejectedExecutionException, rather than letting latency grow without bound.</li>
+ * </ul>
+ * Threadsafe. close() stops accepting requests, runs the ones already queued, and stops the thread.
+ */
+public class BatchingPredictor implements AutoCloseable {
+
+    private final CompiledNeuralNet compiledNeuralNet;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request> queue;
+    private final Thread worker;
+    private final Executor completionExecutor;
+    private volatile boolean closed = false;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public BatchingPredictor(NeuralNet neuralNet, int maxBatchSize, long maxWait, TimeUnit unit, int queueCapacity) {
+        this(neuralNet.compileForInference(), maxBatchSize, maxWait, unit, queueCapacity);
+    }
+
+    public BatchingPredictor(CompiledNeuralNet compiledNeuralNet, int maxBatchSize, long maxWait, TimeUnit unit,
+                             int queueCapacity) {
+        this(compiledNeuralNet, maxBatchSize, maxWait, unit, queueCapacity, ForkJoinPool.commonPool());
+    }
+
+    public BatchingPredictor(CompiledNeuralNet compiledNeuralNet, int maxBatchSize, long maxWait, TimeUnit unit,
+                             int queueCapacity, Executor completionExecutor) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be at least 1: " + maxBatchSize);
+        if (maxWait < 0) throw new IllegalArgumentException("maxWait can't be negative: " + maxWait);
+        this.compiledNeuralNet = compiledNeuralNet;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.completionExecutor = completionExecutor;
+        this.worker = new Thread(this::processRequests, "jcortex-batching-predictor");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Returns the outputs for one row of features. The features are copied, so the array can be reused at once. */
+    public CompletableFuture<double[]> predict(double[] features) {
+        CompletableFuture<double[]> result = new CompletableFuture<>();
+        if (features.length != compiledNeuralNet.numInputs()) {
+            result.completeExceptionally(new IllegalArgumentException(
+                    "Expected " + compiledNeuralNet.numInputs() + " features, but got " + features.length));
+        } else if (closed) {
+            reject(result, "BatchingPredictor is closed");
+        } else {
+            Request request = new Request(features.clone(), result);
+            if (!queue.offer(request)) {
+                reject(result, "Queue is full: " + queue.size() + " requests waiting");
+            } else if (closed && queue.remove(request)) {
+                // closed while offering, and the worker may already have stopped
+                reject(result, "BatchingPredictor is closed");
+            } else {
+                requestCount.incrementAndGet();
+                maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            }
+        }
+        return result;
+    }
+
+    private void reject(CompletableFuture<double[]> result, String message) {
+        rejectedCount.incrementAndGet();
+        result.completeExceptionally(new RejectedExecutionException(message));
+    }
+
+    /** Returns the index of the largest output for one row of features, i.e. the predicted class. */
+    public CompletableFuture<Integer> predictClass(double[] features) {
+        return predict(features).thenApply(BatchingPredictor::argMax);
+    }
+
+    private static int argMax(double[] outputs) {
+        int best = 0;
+        for (int i = 1; i < outputs.length; i++) {
+            if (outputs[i] > outputs[best]) best = i;
+        }
+        return best;
+    }
+
+    private void processRequests() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                closed = true;
+            }
+            runBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void runBatch(List<Request> batch) {
+        if (batch.isEmpty()) return;
+        List<Request> requests = new ArrayList<>(batch);
+        SynMatrix outputs;
+        try {
+            double[][] rows = new double[requests.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = requests.get(i).features;
+            }
+            outputs = compiledNeuralNet.predict(new SynMatrix(rows));
+            batchCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            complete(() -> requests.forEach(request -> request.result.completeExceptionally(e)));
+            return;
+        }
+        complete(() -> {
+            for (int i = 0; i < requests.size(); i++) {
+                requests.get(i).result.complete(outputs.getRow(i));
+            }
+        });
+    }
+
+    /** Runs the completions on the completion executor, or on this thread if the executor won't take them. */
+    private void complete(Runnable completions) {
+        try {
+            completionExecutor.execute(completions);
+        } catch (RejectedExecutionException e) {
+            completions.run();
+        }
+    }
+
+    /** The number of requests waiting to join a batch. */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** The largest number of requests that have been waiting at once. */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /** The number of requests accepted so far. */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** The number of requests rejected because the queue was full or this was closed. */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /** The number of forward passes run so far. */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Runs the queued requests and stops the background thread, waiting for it to finish. Their futures may
+     * complete on the completion executor just after this returns. If the calling thread is interrupted while
+     * waiting, this stops waiting, rejects whatever is still queued, and leaves the thread's interrupt flag set.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // anything that slipped in after the worker stopped, or that it didn't reach before an interrupt
+        List<Request> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(request -> reject(request.result, "BatchingPredictor is closed"));
+    }
+
+    private static class Request {
+        private final double[] features;
+        private final CompletableFuture<double[]> result;
+
+        Request(double[] features, CompletableFuture<double[]> result) {
+            this.features = features;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.MatrixKernels;
+import jmb.jcortex.data.RangeOperation;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.mapfunctions.DifferentiableMatrixFunction;
+import jmb.jcortex.mapfunctions.MatrixFunction;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.*;
+
+/**
+ * A frozen copy of a trained NeuralNet, for fast inference. Create with NeuralNet.compileForInference().
+ * <ul>
+ *     <li>The bias row is split from each layer's weights, so inputs are never copied to add a bias column. The
+ *     bias is added to each layer's output in place, in the same pass as an element-wise activation function.</li>
+ *     <li>Each thread gets its own preallocated buffers for every layer, sized for the largest batch it has sent,
+ *     and smaller batches use their leading rows. A prediction allocates nothing beyond its result. The buffers
+ *     don't refer back to this, so they don't keep it alive, and releaseBuffers() frees the calling thread's.</li>
+ *     <li>A single row is run as vector-matrix products in plain Java, skipping the native matrix library, when
+ *     every layer is within NeuralNet.getSingleRowThreshold().</li>
+ *     <li>Dropout is inverted (scaled during training), so there is no dropout work at all.</li>
+ *     <li>predictClasses() and predictTopClasses() skip the output function when it doesn't change the order of the
+ *     outputs in a row (e.g. softmax), since the largest input is then also the largest output.</li>
+ * </ul>
+ * Later training of the original NeuralNet does not affect this. Threadsafe: one instance can serve predictions
+ * from many threads.
+ */
+public class CompiledNeuralNet {
+
+    private static final Set<DifferentiableMatrixFunction> ORDER_PRESERVING_FUNCTIONS = new HashSet<>(Arrays.asList(
+            SOFTMAX_MATRIX_FUNCTION, FAST_SOFTMAX_MATRIX_FUNCTION, SIGMOID_MATRIX_FUNCTION, FAST_SIGMOID_MATRIX_FUNCTION,
+            TANH_MATRIX_FUNCTION, FAST_TANH_MATRIX_FUNCTION, LINEAR_MATRIX_FUNCTION));
+
+    private final SynMatrix[] weights;
+    private final SynMatrix[] biases;
+    private final double[][] biasValues;
+    private final boolean singleRowPath;
+    private final MatrixKernels kernels = MatrixKernels.getInstance();
+    private final MatrixFunction activationFunction;
+    private final MatrixFunction outputFunction;
+    private final RangeOperation activationOperation;
+    private final RangeOperation outputOperation;
+    private final boolean outputFunctionPreservesOrder;
+    private final ThreadLocal<Buffers> buffers;
+
+    CompiledNeuralNet(NeuralNet neuralNet) {
+        List<SynMatrix> layers = neuralNet.getLayers();
+        weights = new SynMatrix[layers.size()];
+        biases = new SynMatrix[layers.size()];
+        biasValues = new double[layers.size()][];
+        for (int i = 0; i < layers.size(); i++) {
+            weights[i] = layers.get(i).removeBiasRow();
+            biases[i] = layers.get(i).getBiasRow();
+            biasValues[i] = biases[i].getRow(0);
+        }
+        singleRowPath = NeuralNet.useSingleRowPath(layers);
+        activationFunction = neuralNet.getActivationFunction().getFunction();
+        outputFunction = neuralNet.getOutputFunction().getFunction();
+        activationOperation = activationFunction.getElementOperation().orElse(null);
+        outputOperation = outputFunction.getElementOperation().orElse(null);
+        outputFunctionPreservesOrder = ORDER_PRESERVING_FUNCTIONS.contains(neuralNet.getOutputFunction());
+        int numInputs = numInputs();
+        int[] layerSizes = Arrays.stream(weights).mapToInt(SynMatrix::numCols).toArray();
+        buffers = ThreadLocal.withInitial(() -> new Buffers(numInputs, layerSizes));
+    }
+
+    /** Returns the outputs for each row of features, the same as NeuralNet.analyzeData(). */
+    public SynMatrix predict(SynMatrix features) {
+        if (isSingleRow(features)) {
+            return new SynMatrix(new double[][]{forwardRow(features, true)});
+        }
+        return forward(features, true).copy();
+    }
+
+    /** Returns the index of the largest output for each row of features, i.e. the predicted class. */
+    public int[] predictClasses(SynMatrix features) {
+        return predictClasses(features, new int[features.numRows()]);
+    }
+
+    /**
+     * Writes the index of the largest output for each row of features into classes, which must have at least
+     * features.numRows() elements. Allocates nothing once the calling thread's buffers exist. Returns classes.
+     */
+    public int[] predictClasses(SynMatrix features, int[] classes) {
+        if (isSingleRow(features)) {
+            classes[0] = argMax(forwardRow(features, !outputFunctionPreservesOrder));
+            return classes;
+        }
+        SynMatrix outputs = forward(features, !outputFunctionPreservesOrder);
+        return outputs.getRowArgMaxes(classes, buffers.get().maxes);
+    }
+
+    /** Returns the indexes of the k largest outputs for each row of features, largest first. k must be positive. */
+    public int[][] predictTopClasses(SynMatrix features, int k) {
+        if (isSingleRow(features)) {
+            return new SynMatrix(new double[][]{forwardRow(features, !outputFunctionPreservesOrder)}).getRowTopIndexes(k);
+        }
+        return forward(features, !outputFunctionPreservesOrder).getRowTopIndexes(k);
+    }
+
+    /**
+     * Frees the calling thread's buffers, e.g. before a pooled thread moves on to other work. This stays usable,
+     * and the thread's next prediction allocates new buffers.
+     */
+    public void releaseBuffers() {
+        buffers.remove();
+    }
+
+    public int numInputs() {
+        return weights[0].numRows();
+    }
+
+    public int numOutputs() {
+        return weights[weights.length - 1].numCols();
+    }
+
+    private boolean isSingleRow(SynMatrix features) {
+        return singleRowPath && features.numRows() == 1;
+    }
+
+    /**
+     * The single row path: vector-matrix products in plain Java into this thread's row buffers, with no matrices
+     * or JNI calls. Returns the output values, which are only valid until the thread's next prediction.
+     */
+    private double[] forwardRow(SynMatrix features, boolean applyOutputFunction) {
+        checkInputs(features);
+        Buffers threadBuffers = buffers.get();
+        double[] nodeValues = features.getRowInto(0, threadBuffers.rowInputs);
+        for (int i = 0; i < weights.length; i++) {
+            boolean isOutputLayer = i == weights.length - 1;
+            double[] result = weights[i].multiplyRowInto(nodeValues, threadBuffers.rowOutputs[i]);
+            kernels.addInto(result, 0, biasValues[i], 0, result.length);
+            if (!isOutputLayer) {
+                nodeValues = activationFunction.applyToRow(result);
+            } else {
+                nodeValues = applyOutputFunction ? outputFunction.applyToRow(result) : result;
+            }
+        }
+        return nodeValues;
+    }
+
+    private static int argMax(double[] values) {
+        int argMax = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[argMax]) argMax = i;
+        }
+        return argMax;
+    }
+
+    private void checkInputs(SynMatrix features) {
+        if (features.numCols() != numInputs()) {
+            throw new IllegalArgumentException(
+                    "Expected " + numInputs() + " features per row, but got " + features.numCols());
+        }
+    }
+
+    /** Returns this thread's output buffer for the last layer. Only valid until the thread's next prediction. */
+    private SynMatrix forward(SynMatrix features, boolean applyOutputFunction) {
+        checkInputs(features);
+        Buffers threadBuffers = buffers.get();
+        threadBuffers.ensureCapacity(features.numRows());
+        SynMatrix nodeValues = features;
+        for (int i = 0; i < weights.length; i++) {
+            boolean isOutputLayer = i == weights.length - 1;
+            SynMatrix result = nodeValues.multiplyInto(weights[i], threadBuffers.layerOutputs[i]);
+            if (!isOutputLayer) {
+                nodeValues = addBiasAndApply(result, biases[i], activationFunction, activationOperation);
+            } else if (applyOutputFunction) {
+                nodeValues = addBiasAndApply(result, biases[i], outputFunction, outputOperation);
+            } else {
+                nodeValues = result.addRowVectorInPlace(biases[i]);
+            }
+        }
+        return nodeValues;
+    }
+
+    private SynMatrix addBiasAndApply(SynMatrix nodeValues, SynMatrix bias, MatrixFunction function,
+                                      RangeOperation elementOperation) {
+        if (elementOperation != null) {
+            return nodeValues.addRowVectorInPlace(bias, elementOperation);
+        }
+        return function.applyInPlace(nodeValues.addRowVectorInPlace(bias));
+    }
+
+    /**
+     * One thread's working memory: a buffer per layer sized for the largest batch so far, with matrices over their
+     * leading rows for the current number of rows, and arrays for the single row path. Static, so that a thread's
+     * buffers don't keep the CompiledNeuralNet alive.
+     */
+    private static class Buffers {
+        private final int[] layerSizes;
+        private final double[] rowInputs;
+        private final double[][] rowOutputs;
+        private final double[][] layerData;
+        private final SynMatrix[] layerOutputs;
+        private double[] maxes = new double[0];
+        private int numRows = -1;
+
+        Buffers(int numInputs, int[] layerSizes) {
+            this.layerSizes = layerSizes;
+            rowInputs = new double[numInputs];
+            rowOutputs = new double[layerSizes.length][];
+            layerData = new double[layerSizes.length][];
+            layerOutputs = new SynMatrix[layerSizes.length];
+            for (int i = 0; i < layerSizes.length; i++) {
+                rowOutputs[i] = new double[layerSizes[i]];
+            }
+        }
+
+        /** Resizes the layer outputs to the number of rows, only reallocating for more rows than ever before. */
+        void ensureCapacity(int rows) {
+            if (rows == numRows) return;
+            if (rows > maxes.length) {
+                for (int i = 0; i < layerSizes.length; i++) {
+                    layerData[i] = new double[rows * layerSizes[i]];
+                }
+                maxes = new double[rows];
+            }
+            for (int i = 0; i < layerSizes.length; i++) {
+                layerOutputs[i] = SynMatrix.overBuffer(layerData[i], rows, layerSizes[i]);
+            }
+            numRows = rows;
+        }
+    }
+}
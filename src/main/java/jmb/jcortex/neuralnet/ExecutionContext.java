@@ -0,0 +1,176 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.DropoutMask;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.mapfunctions.ActivatedValues;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state of one training forward pass through a NeuralNet, needed for the backward pass: the node values of
+ * every layer (inputs first, outputs last), the dropout masks of the hidden layers, and the derivatives of each
+ * layer's function. Keeping this out of the NeuralNet means a NeuralNet holds only its parameters, so one instance
+ * can be used from many threads at once. Each context belongs to the thread that created it.
+ * <p>
+ * With activation checkpointing (see NeuralNet.setCheckpointInterval()) only the inputs, the outputs and the node
+ * values of every Nth layer are kept, along with the dropout masks. The rest are recomputed from the nearest
+ * checkpoint below when they are asked for, one segment of N layers at a time, with the same masks. Only the most
+ * recent segment is kept, so the backward pass should read the layers from the outputs back. The NeuralNet's
+ * weights must not change until the backward pass is done.
+ */
+public class ExecutionContext {
+
+    /** One layer of a training forward pass, with the dropout mask already drawn (or null if none). */
+    interface LayerPass {
+        ActivatedValues apply(int layerIndex, SynMatrix inputs, DropoutMask dropoutMask);
+    }
+
+    private final List<SynMatrix> nodeValues;
+    private final List<DropoutMask> dropoutMasks;
+    private final List<SynMatrix> activationDerivatives;
+
+    private final int checkpointInterval;
+    private final int numLayers;
+    private final LayerPass layerPass;
+    private int cachedSegment = -1;
+    private SynMatrix[] segmentNodeValues;
+    private SynMatrix[] segmentDerivatives;
+
+    ExecutionContext() {
+        this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * A context that keeps the node values of every checkpointInterval-th layer and recomputes the rest with
+     * layerPass.
+     */
+    ExecutionContext(int checkpointInterval, int numLayers, LayerPass layerPass) {
+        this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), checkpointInterval, numLayers, layerPass);
+    }
+
+    /**
+     * @param dropoutMasks one per hidden layer, or empty if there was no dropout
+     * @param activationDerivatives one per hidden layer followed by the output layer, or empty to have the
+     *                              derivatives recomputed from the node values during backpropagation
+     */
+    public ExecutionContext(List<SynMatrix> nodeValues, List<DropoutMask> dropoutMasks,
+                            List<SynMatrix> activationDerivatives) {
+        this(nodeValues, dropoutMasks, activationDerivatives, 0, 0, null);
+    }
+
+    private ExecutionContext(List<SynMatrix> nodeValues, List<DropoutMask> dropoutMasks,
+                             List<SynMatrix> activationDerivatives, int checkpointInterval, int numLayers,
+                             LayerPass layerPass) {
+        this.nodeValues = nodeValues;
+        this.dropoutMasks = dropoutMasks;
+        this.activationDerivatives = activationDerivatives;
+        this.checkpointInterval = checkpointInterval;
+        this.numLayers = numLayers;
+        this.layerPass = layerPass;
+    }
+
+    /** True if node values and derivatives between checkpoints are recomputed when they are asked for. */
+    public boolean recomputesActivations() {
+        return checkpointInterval > 0;
+    }
+
+    public List<SynMatrix> getNodeValues() {
+        if (!recomputesActivations()) {
+            return Collections.unmodifiableList(nodeValues);
+        }
+        return new AbstractList<SynMatrix>() {
+            @Override
+            public SynMatrix get(int index) {
+                SynMatrix values = nodeValues.get(index);
+                if (values != null) return values;
+                int segment = (index - 1) / checkpointInterval;
+                return recomputeSegment(segment)[index - 1 - segment * checkpointInterval];
+            }
+
+            @Override
+            public int size() {
+                return nodeValues.size();
+            }
+        };
+    }
+
+    public SynMatrix getOutputs() {
+        return nodeValues.get(nodeValues.size() - 1);
+    }
+
+    public List<DropoutMask> getDropoutMasks() {
+        return Collections.unmodifiableList(dropoutMasks);
+    }
+
+    public List<SynMatrix> getActivationDerivatives() {
+        if (!recomputesActivations()) {
+            return Collections.unmodifiableList(activationDerivatives);
+        }
+        return new AbstractList<SynMatrix>() {
+            @Override
+            public SynMatrix get(int index) {
+                if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index);
+                int segment = index / checkpointInterval;
+                recomputeSegment(segment);
+                return segmentDerivatives[index - segment * checkpointInterval];
+            }
+
+            @Override
+            public int size() {
+                return Math.max(0, nodeValues.size() - 1);
+            }
+        };
+    }
+
+    /**
+     * Recomputes layers segment * N up to (segment + 1) * N from the checkpoint feeding into them, unless that
+     * segment is already cached, and returns their node values.
+     */
+    private SynMatrix[] recomputeSegment(int segment) {
+        if (segment != cachedSegment) {
+            int from = segment * checkpointInterval;
+            int to = Math.min(from + checkpointInterval, numLayers);
+            // Drop the last segment first, so only one is ever held
+            segmentNodeValues = null;
+            segmentDerivatives = null;
+            SynMatrix[] values = new SynMatrix[to - from];
+            SynMatrix[] derivatives = new SynMatrix[to - from];
+            SynMatrix inputs = nodeValues.get(from);
+            for (int layer = from; layer < to; layer++) {
+                DropoutMask dropoutMask = layer < dropoutMasks.size() ? dropoutMasks.get(layer) : null;
+                ActivatedValues activatedValues = layerPass.apply(layer, inputs, dropoutMask);
+                values[layer - from] = activatedValues.getValues();
+                derivatives[layer - from] = activatedValues.getDerivatives();
+                inputs = activatedValues.getValues();
+            }
+            segmentNodeValues = values;
+            segmentDerivatives = derivatives;
+            cachedSegment = segment;
+        }
+        return segmentNodeValues;
+    }
+
+    void addNodeValues(SynMatrix values) {
+        int index = nodeValues.size();
+        boolean isKept = !recomputesActivations() || index % checkpointInterval == 0 || index == numLayers;
+        nodeValues.add(isKept ? values : null);
+    }
+
+    void addDropoutMask(DropoutMask dropoutMask) {
+        dropoutMasks.add(dropoutMask);
+    }
+
+    void addActivationDerivatives(SynMatrix derivatives) {
+        if (!recomputesActivations()) {
+            activationDerivatives.add(derivatives);
+        }
+    }
+}
@@ -7,14 +7,19 @@ package jmb.jcortex.neuralnet;
 
 import jmb.jcortex.data.Copyable;
 import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.DropoutMask;
+import jmb.jcortex.data.ParameterBuffer;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.mapfunctions.ActivatedValues;
 import jmb.jcortex.mapfunctions.DifferentiableMatrixFunction;
+import jmb.jcortex.strategies.lossfunctions.LossFunction;
+import jmb.jcortex.strategies.lossfunctions.SquaredErrorLossFunction;
 import jmb.jcortex.strategies.weightinitializers.WeightInitializer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.toList;
 
@@ -23,18 +28,24 @@ import static java.util.stream.Collectors.toList;
  * a list of matrices. Also holds the activation and output functions. Implements Copyable to allow deep copies to
  * be saved during training.
  *
+ * The state of a training pass is kept in an ExecutionContext rather than here, so analyzeData() can be called
+ * from many threads at once.
+ *
  * Use NeuralNetBuilder for a convenient syntax for creating and configuring instances.
  */
 public class NeuralNet implements Copyable<NeuralNet> {
 
+    private static volatile int singleRowThreshold = 1 << 20;
+
     private List<SynMatrix> layers;
     private DifferentiableMatrixFunction activationFunction;
     private DifferentiableMatrixFunction outputFunction;
     private WeightInitializer weightInitializer;
+    private LossFunction lossFunction = new SquaredErrorLossFunction();
 
-    private Random dropoutRandomizer = new Random();
-    private List<SynMatrix> dropoutMasks = new ArrayList<>();
+    private XorShiftRandom dropoutRandomizer = new XorShiftRandom();
     private double hiddenDropoutPercent = 0.0;
+    private int checkpointInterval = 0;
 
     public NeuralNet(int... dimensions) {
         layers = new ArrayList<>();
@@ -50,45 +61,118 @@ public class NeuralNet implements Copyable<NeuralNet> {
         layers = layers.parallelStream().map(weightInitializer::initialize).collect(toList());
     }
 
-    public List<SynMatrix> trainForward(DataSet batch) {
-        return doForwardPass(batch, true);
-    }
-
-    private List<SynMatrix> doForwardPass(DataSet dataSet, boolean isTraining) {
-        List<SynMatrix> nodeValues = new ArrayList<>();
-        dropoutMasks = new ArrayList<>();
-        SynMatrix inputs = dataSet.getFeatures();
-        nodeValues.add(inputs);
-        IntStream.range(0, layers.size()).forEach(index -> {
-            SynMatrix nodeVector = nodeValues.get(index).addBiasColumn().multiply(layers.get(index));
-            if (index < layers.size()-1) {
-                nodeVector = nodeVector.apply(activationFunction.getFunction());
-                SynMatrix dropoutMask = getDropoutMask(nodeVector, isTraining, hiddenDropoutPercent);
-                nodeVector = nodeVector.elementMultInPlace(dropoutMask);
-                dropoutMasks.add(dropoutMask);
-            } else {
-                nodeVector = nodeVector.apply(outputFunction.getFunction());
+    /**
+     * Do a training forward pass through the batch, using this NeuralNet's dropout randomizer. Returns the state
+     * needed for backpropagation.
+     */
+    public ExecutionContext trainForward(DataSet batch) {
+        return trainForward(batch, dropoutRandomizer);
+    }
+
+    /**
+     * Do a training forward pass with the given dropout randomizer. Threads that train concurrently against this
+     * NeuralNet should each supply their own randomizer (see XorShiftRandom.split()).
+     * <p>
+     * Uses inverted dropout: kept hidden nodes are scaled up by 1 / (1 - hiddenDropoutPercent), so inference needs
+     * no dropout scaling. The derivative of each layer's function is computed in the same pass as the function
+     * itself, and saved in the context for backpropagation.
+     */
+    public ExecutionContext trainForward(DataSet batch, XorShiftRandom random) {
+        List<SynMatrix> layers = this.layers;
+        ExecutionContext context = checkpointInterval > 0
+                ? new ExecutionContext(checkpointInterval, layers.size(),
+                        (index, inputs, dropoutMask) -> trainLayer(layers, index, inputs, dropoutMask))
+                : new ExecutionContext();
+        SynMatrix nodeVector = batch.getFeatures();
+        context.addNodeValues(nodeVector);
+        for (int index = 0; index < layers.size(); index++) {
+            boolean isHidden = index < layers.size() - 1;
+            DropoutMask dropoutMask = null;
+            if (isHidden && hiddenDropoutPercent > 0) {
+                dropoutMask = DropoutMask.generate(nodeVector.numRows(), layers.get(index).numCols(),
+                        hiddenDropoutPercent, random);
+                context.addDropoutMask(dropoutMask);
             }
-            nodeValues.add(nodeVector);
-        });
-        return nodeValues;
+            ActivatedValues activatedValues = trainLayer(layers, index, nodeVector, dropoutMask);
+            nodeVector = activatedValues.getValues();
+            context.addActivationDerivatives(activatedValues.getDerivatives());
+            context.addNodeValues(nodeVector);
+        }
+        return context;
     }
 
-    private SynMatrix getDropoutMask(SynMatrix nodeVector, boolean isTraining, double dropoutPercent) {
-        if (isTraining) {
-            SynMatrix dropoutMask = new SynMatrix(nodeVector.numRows(), nodeVector.numCols());
-            return dropoutMask.applyInPlace(x -> dropoutRandomizer.nextDouble() < dropoutPercent ? 0 : 1);
-        } else {
-            return new SynMatrix(nodeVector.numRows(), nodeVector.numCols(), 1.0 - dropoutPercent);
+    /** One layer of the training forward pass. The dropout mask, if any, is applied to the values only. */
+    private ActivatedValues trainLayer(List<SynMatrix> layers, int index, SynMatrix inputs, DropoutMask dropoutMask) {
+        SynMatrix weightedInputs = inputs.addBiasColumn().multiply(layers.get(index));
+        DifferentiableMatrixFunction function = index < layers.size() - 1 ? activationFunction : outputFunction;
+        ActivatedValues activatedValues = function.applyWithDerivative(weightedInputs);
+        if (dropoutMask != null) {
+            dropoutMask.applyInPlace(activatedValues.getValues());
         }
+        return activatedValues;
     }
 
     /**
-     * Do a forward pass through the given DataSet and return the output vector.
+     * Do a forward pass through the given DataSet and return the output vector. Only reads the parameters of this
+     * NeuralNet, so it is safe to call from many threads at once. A single row goes through analyzeRow() when every
+     * layer is within the single row threshold.
      */
     public SynMatrix analyzeData(DataSet dataSet) {
-        List<SynMatrix> nodeValues = doForwardPass(dataSet, false);
-        return nodeValues.get(nodeValues.size() - 1);
+        List<SynMatrix> layers = this.layers;
+        SynMatrix nodeVector = dataSet.getFeatures();
+        if (nodeVector.numRows() == 1 && useSingleRowPath(layers)) {
+            return new SynMatrix(new double[][]{analyzeRow(nodeVector.getRow(0), layers)});
+        }
+        for (int index = 0; index < layers.size(); index++) {
+            nodeVector = nodeVector.addBiasColumn().multiply(layers.get(index));
+            DifferentiableMatrixFunction function = index < layers.size() - 1 ? activationFunction : outputFunction;
+            nodeVector = nodeVector.apply(function.getFunction());
+        }
+        return nodeVector;
+    }
+
+    /**
+     * The forward pass for one row as vector-matrix products in plain Java (see SynMatrix.multiplyBiasedRowInto).
+     * Skips the bias column copy, temporary matrices and JNI calls of the matrix path, which cost more than the
+     * arithmetic itself when there is only one row.
+     */
+    private double[] analyzeRow(double[] features, List<SynMatrix> layers) {
+        double[] nodeValues = features;
+        for (int index = 0; index < layers.size(); index++) {
+            SynMatrix layer = layers.get(index);
+            nodeValues = layer.multiplyBiasedRowInto(nodeValues, new double[layer.numCols()]);
+            DifferentiableMatrixFunction function = index < layers.size() - 1 ? activationFunction : outputFunction;
+            nodeValues = function.getFunction().applyToRow(nodeValues);
+        }
+        return nodeValues;
+    }
+
+    static boolean useSingleRowPath(List<SynMatrix> layers) {
+        int threshold = singleRowThreshold;
+        for (SynMatrix layer : layers) {
+            if ((long) layer.numRows() * layer.numCols() > threshold) return false;
+        }
+        return true;
+    }
+
+    public static int getSingleRowThreshold() {
+        return singleRowThreshold;
+    }
+
+    /**
+     * Sets the largest layer, in weights, for which single row predictions use the plain Java path rather than the
+     * native matrix library. This is a global setting, and defaults to 1M weights. Zero disables the single row path.
+     */
+    public static void setSingleRowThreshold(int singleRowThreshold) {
+        if (singleRowThreshold < 0) throw new IllegalArgumentException("Threshold can't be negative: " + singleRowThreshold);
+        NeuralNet.singleRowThreshold = singleRowThreshold;
+    }
+
+    /**
+     * Returns a frozen, threadsafe copy of this NeuralNet optimized for inference. See CompiledNeuralNet.
+     */
+    public CompiledNeuralNet compileForInference() {
+        return new CompiledNeuralNet(this);
     }
 
     public DifferentiableMatrixFunction getActivationFunction() {
@@ -107,6 +191,14 @@ public class NeuralNet implements Copyable<NeuralNet> {
         this.outputFunction = outputFunction;
     }
 
+    public LossFunction getLossFunction() {
+        return lossFunction;
+    }
+
+    public void setLossFunction(LossFunction lossFunction) {
+        this.lossFunction = lossFunction;
+    }
+
     public WeightInitializer getWeightInitializer() {
         return weightInitializer;
     }
@@ -120,11 +212,11 @@ public class NeuralNet implements Copyable<NeuralNet> {
         initializeWeights();
     }
 
-    public Random getDropoutRandomizer() {
+    public XorShiftRandom getDropoutRandomizer() {
         return dropoutRandomizer;
     }
 
-    public void setDropoutRandomizer(Random dropoutRandomizer) {
+    public void setDropoutRandomizer(XorShiftRandom dropoutRandomizer) {
         this.dropoutRandomizer = dropoutRandomizer;
     }
 
@@ -136,33 +228,83 @@ public class NeuralNet implements Copyable<NeuralNet> {
         this.hiddenDropoutPercent = hiddenDropoutPercent;
     }
 
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Turns on activation checkpointing for training forward passes: only every checkpointInterval-th layer's node
+     * values are kept, and the rest are recomputed during the backward pass (see ExecutionContext). Peak memory for
+     * a net of L layers then grows with about L / N + N layers' activations rather than L, for one extra forward
+     * pass of compute. The square root of L is a good choice. Zero, the default, keeps every layer.
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 0) throw new IllegalArgumentException("checkpointInterval can't be negative: " + checkpointInterval);
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /** An unmodifiable view of the layers. The matrices themselves are live, not copies. */
     public List<SynMatrix> getLayers() {
-        return new ArrayList<>(layers);
+        return Collections.unmodifiableList(layers);
     }
 
-    public void setLayers(List<SynMatrix> layers) {
-        this.layers = layers;
+    /** Returns a copy of every layer's weights packed into one contiguous buffer. */
+    public ParameterBuffer getParameters() {
+        return ParameterBuffer.of(layers);
     }
 
-    public List<SynMatrix> getDropoutMasks() {
-        return new ArrayList<>(dropoutMasks);
+    /** Overwrites every layer's weights, in place, with the values in the buffer, which must have the layers' shapes. */
+    public void setParameters(ParameterBuffer parameters) {
+        parameters.scatter(layers);
     }
 
-    public void setDropoutMasks(List<SynMatrix> dropoutMasks) {
-        this.dropoutMasks = dropoutMasks;
+    public void setLayers(List<SynMatrix> layers) {
+        this.layers = layers;
     }
 
     public NeuralNet copy() {
         NeuralNet copy = new NeuralNet();
         copy.layers = this.layers.stream().map(SynMatrix::copy).collect(toList());
-        copy.dropoutMasks = this.dropoutMasks.stream().map(SynMatrix::copy).collect(toList());
         copy.activationFunction = this.activationFunction;
         copy.outputFunction = this.outputFunction;
         copy.weightInitializer = this.weightInitializer;
+        copy.lossFunction = this.lossFunction;
         copy.hiddenDropoutPercent = this.hiddenDropoutPercent;
+        copy.checkpointInterval = this.checkpointInterval;
         return copy;
     }
 
+    /**
+     * Copies this NeuralNet into target and returns it, overwriting target's layers in place when they have the
+     * same shapes as these. Repeated snapshots (e.g. of the best net so far during training) then allocate nothing.
+     * A null target, or one with different shapes, gets new layers as in copy().
+     */
+    public NeuralNet copyInto(NeuralNet target) {
+        if (target == null) return copy();
+        if (hasSameShapes(target.layers)) {
+            for (int i = 0; i < layers.size(); i++) {
+                layers.get(i).copyInto(target.layers.get(i));
+            }
+        } else {
+            target.layers = this.layers.stream().map(SynMatrix::copy).collect(toList());
+        }
+        target.activationFunction = this.activationFunction;
+        target.outputFunction = this.outputFunction;
+        target.weightInitializer = this.weightInitializer;
+        target.lossFunction = this.lossFunction;
+        target.hiddenDropoutPercent = this.hiddenDropoutPercent;
+        target.checkpointInterval = this.checkpointInterval;
+        return target;
+    }
+
+    private boolean hasSameShapes(List<SynMatrix> otherLayers) {
+        if (otherLayers.size() != layers.size()) return false;
+        for (int i = 0; i < layers.size(); i++) {
+            if (!layers.get(i).hasSameShape(otherLayers.get(i))) return false;
+        }
+        return true;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -7,10 +7,16 @@ package jmb.jcortex.neuralnet;
 
 import jmb.jcortex.mapfunctions.DifferentiableMatrixFunction;
 import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import jmb.jcortex.strategies.lossfunctions.LossFunction;
+import jmb.jcortex.strategies.lossfunctions.SoftMaxCrossEntropyLossFunction;
+import jmb.jcortex.strategies.lossfunctions.SquaredErrorLossFunction;
 import jmb.jcortex.strategies.weightinitializers.WeightInitializer;
 
+import static jmb.jcortex.mapfunctions.MatrixFunctions.FAST_SOFTMAX_MATRIX_FUNCTION;
 import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
 import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.approximationOf;
 
 public class NeuralNetBuilder {
 
@@ -22,8 +28,11 @@ public class NeuralNetBuilder {
     private DifferentiableMatrixFunction activationFunction;
     private DifferentiableMatrixFunction outputFunction;
     private WeightInitializer weightInitializer;
+    private LossFunction lossFunction = new SquaredErrorLossFunction();
 
     private double hiddenDropoutPercent = 0.0;
+    private boolean approximateFunctions = false;
+    private int checkpointInterval = 0;
 
     public NeuralNetBuilder withDimensions(int... dimensions) {
         this.dimensions = dimensions;
@@ -60,12 +69,44 @@ public class NeuralNetBuilder {
         return this;
     }
 
+    /** Keep only every checkpointInterval-th layer's activations in training. See NeuralNet.setCheckpointInterval(). */
+    public NeuralNetBuilder withActivationCheckpointing(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    public NeuralNetBuilder withLossFunction(LossFunction lossFunction) {
+        this.lossFunction = lossFunction;
+        return this;
+    }
+
+    /**
+     * Swap the activation and output functions for their fast approximations, where one exists (e.g. sigmoid
+     * becomes FAST_SIGMOID_MATRIX_FUNCTION). See MatrixFunctions.approximationOf().
+     */
+    public NeuralNetBuilder withApproximateFunctions() {
+        this.approximateFunctions = true;
+        return this;
+    }
+
+    /** Throws an IllegalStateException if the loss function can't be used with the output function. */
     public NeuralNet build() {
+        if (lossFunction instanceof SoftMaxCrossEntropyLossFunction
+                && outputFunction != SOFTMAX_MATRIX_FUNCTION && outputFunction != FAST_SOFTMAX_MATRIX_FUNCTION) {
+            throw new IllegalStateException("SoftMaxCrossEntropyLossFunction needs a softmax output function");
+        }
         NeuralNet neuralNet = new NeuralNet(dimensions);
-        neuralNet.setActivationFunction(activationFunction);
-        neuralNet.setOutputFunction(outputFunction);
+        if (approximateFunctions) {
+            neuralNet.setActivationFunction(approximationOf(activationFunction));
+            neuralNet.setOutputFunction(approximationOf(outputFunction));
+        } else {
+            neuralNet.setActivationFunction(activationFunction);
+            neuralNet.setOutputFunction(outputFunction);
+        }
         neuralNet.setWeightInitializer(weightInitializer);
+        neuralNet.setLossFunction(lossFunction);
         neuralNet.setHiddenDropoutPercent(hiddenDropoutPercent);
+        neuralNet.setCheckpointInterval(checkpointInterval);
         return neuralNet;
     }
 
@@ -0,0 +1,200 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.mapfunctions.DifferentiableMatrixFunction;
+import jmb.jcortex.mapfunctions.MatrixFunctions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Saves and loads NeuralNets in a versioned binary format, without Java serialization. Everything is little-endian:
+ * <pre>
+ *     int     magic number ("JCTX")
+ *     int     format version
+ *     string  activation function name (see MatrixFunctions.register())
+ *     string  output function name
+ *     double  hidden dropout percent
+ *     int     number of layers, then the rows and columns of each layer
+ *     padding to a multiple of 8 bytes
+ *     double  each layer's weights, bias row included, in column-major order
+ * </pre>
+ * Strings are an int byte count followed by UTF-8. The weights are laid out exactly as SynMatrix stores them, so
+ * load() maps the file and bulk copies each layer straight into its matrix, with no per-value parsing. Files are
+ * limited to 2GB, the most a single mapping can hold.
+ * <p>
+ * The weight initializer, loss function and dropout randomizer are training settings, and are not saved.
+ */
+public final class NeuralNetSerializer {
+
+    static final int MAGIC = 0x4A435458;
+    static final int VERSION = 1;
+
+    private NeuralNetSerializer() {
+    }
+
+    /** Saves the NeuralNet to the file, replacing it if it exists. */
+    public static void save(NeuralNet neuralNet, Path path) throws IOException {
+        byte[] header = header(neuralNet);
+        long size = header.length + 8L * weightCount(neuralNet);
+        try (FileChannel channel = FileChannel.open(path, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).put(header);
+            for (SynMatrix layer : neuralNet.getLayers()) {
+                ByteBuffer layerBytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+                layer.copyTo(layerBytes.asDoubleBuffer());
+                position(buffer, buffer.position() + 8 * layer.numRows() * layer.numCols());
+            }
+            buffer.force();
+        }
+    }
+
+    /** Writes the NeuralNet to the stream. Does not close the stream. */
+    public static void write(NeuralNet neuralNet, OutputStream outputStream) throws IOException {
+        outputStream.write(header(neuralNet));
+        for (SynMatrix layer : neuralNet.getLayers()) {
+            ByteBuffer layerBytes = ByteBuffer.allocate(8 * layer.numRows() * layer.numCols()).order(ByteOrder.LITTLE_ENDIAN);
+            layer.copyTo(layerBytes.asDoubleBuffer());
+            outputStream.write(layerBytes.array());
+        }
+        outputStream.flush();
+    }
+
+    /** Loads a NeuralNet from the file by memory mapping it. */
+    public static NeuralNet load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Reads a NeuralNet from the rest of the stream. Does not close the stream. */
+    public static NeuralNet read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1 << 16];
+        for (int count = inputStream.read(chunk); count != -1; count = inputStream.read(chunk)) {
+            bytes.write(chunk, 0, count);
+        }
+        return read(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * Writes the NeuralNet preceded by its size in bytes, so it can be embedded among other data (e.g. in a
+     * checkpoint). Read it back with readFrom().
+     */
+    public static void writeTo(NeuralNet neuralNet, DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(neuralNet, bytes);
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /** Reads a NeuralNet written by writeTo(). */
+    public static NeuralNet readFrom(DataInput in) throws IOException {
+        byte[] bytes = new byte[checkedSize(in.readInt(), Integer.MAX_VALUE)];
+        in.readFully(bytes);
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    private static NeuralNet read(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a saved NeuralNet");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported NeuralNet format version: " + version);
+            NeuralNet neuralNet = new NeuralNet();
+            neuralNet.setActivationFunction(readFunction(buffer));
+            neuralNet.setOutputFunction(readFunction(buffer));
+            neuralNet.setHiddenDropoutPercent(buffer.getDouble());
+            int numLayers = checkedSize(buffer.getInt(), buffer.remaining() / 8);
+            int[] shapes = new int[2 * numLayers];
+            long weightBytes = 0;
+            for (int i = 0; i < shapes.length; i += 2) {
+                shapes[i] = checkedSize(buffer.getInt(), Integer.MAX_VALUE);
+                shapes[i + 1] = checkedSize(buffer.getInt(), Integer.MAX_VALUE);
+                weightBytes += 8L * shapes[i] * shapes[i + 1];
+            }
+            position(buffer, padded(buffer.position()));
+            if (weightBytes > buffer.remaining()) throw new IOException("Truncated NeuralNet");
+            List<SynMatrix> layers = new ArrayList<>(numLayers);
+            for (int i = 0; i < shapes.length; i += 2) {
+                SynMatrix layer = new SynMatrix(shapes[i], shapes[i + 1]);
+                layer.copyFrom(buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+                position(buffer, buffer.position() + 8 * shapes[i] * shapes[i + 1]);
+                layers.add(layer);
+            }
+            neuralNet.setLayers(layers);
+            return neuralNet;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt or truncated NeuralNet", e);
+        }
+    }
+
+    private static byte[] header(NeuralNet neuralNet) {
+        byte[] activationName = functionName(neuralNet.getActivationFunction());
+        byte[] outputName = functionName(neuralNet.getOutputFunction());
+        List<SynMatrix> layers = neuralNet.getLayers();
+        int size = 4 + 4 + 4 + activationName.length + 4 + outputName.length + 8 + 4 + 8 * layers.size();
+        ByteBuffer header = ByteBuffer.allocate(padded(size)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(activationName.length).put(activationName);
+        header.putInt(outputName.length).put(outputName);
+        header.putDouble(neuralNet.getHiddenDropoutPercent());
+        header.putInt(layers.size());
+        for (SynMatrix layer : layers) {
+            header.putInt(layer.numRows()).putInt(layer.numCols());
+        }
+        return header.array();
+    }
+
+    private static byte[] functionName(DifferentiableMatrixFunction function) {
+        String name = MatrixFunctions.nameOf(function).orElseThrow(() -> new IllegalArgumentException(
+                "Can't save a NeuralNet with an unregistered function. See MatrixFunctions.register()"));
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static DifferentiableMatrixFunction readFunction(ByteBuffer buffer) throws IOException {
+        byte[] name = new byte[checkedSize(buffer.getInt(), buffer.remaining())];
+        buffer.get(name);
+        return MatrixFunctions.forName(new String(name, StandardCharsets.UTF_8));
+    }
+
+    private static int checkedSize(int size, int max) throws IOException {
+        if (size < 0 || size > max) throw new IOException("Corrupt NeuralNet: invalid size " + size);
+        return size;
+    }
+
+    /** Through Buffer, so the class also runs on Java 8 when compiled by a newer JDK. */
+    private static void position(Buffer buffer, int position) {
+        buffer.position(position);
+    }
+
+    private static long weightCount(NeuralNet neuralNet) {
+        return neuralNet.getLayers().stream().mapToLong(layer -> (long) layer.numRows() * layer.numCols()).sum();
+    }
+
+    /** Rounds up to a multiple of 8 bytes, so the weights are aligned for bulk copies. */
+    private static int padded(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -6,6 +6,7 @@
 package jmb.jcortex.strategies.batchingstrategies;
 
 import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.XorShiftRandom;
 import org.apache.commons.math3.util.FastMath;
 
 import java.util.ArrayList;
@@ -18,7 +19,12 @@ public class BatchedDataSet {
     private final Iterator<DataSet> batchIterator;
 
     public BatchedDataSet(DataSet dataSet, int instancesPerBatch) {
-        DataSet shuffledDataSet = dataSet.shuffleRows();
+        this(dataSet, instancesPerBatch, new XorShiftRandom());
+    }
+
+    /** Shuffles the rows with the given generator, so the same generator state gives the same batches. */
+    public BatchedDataSet(DataSet dataSet, int instancesPerBatch, XorShiftRandom random) {
+        DataSet shuffledDataSet = dataSet.shuffleRows(random);
         int numBatches = (int)FastMath.round((double)shuffledDataSet.numRows() / (double) instancesPerBatch);
         int numPerBatch = (int)FastMath.ceil(shuffledDataSet.numRows() / numBatches);
         for (int i = 0; i < numBatches; i++) {
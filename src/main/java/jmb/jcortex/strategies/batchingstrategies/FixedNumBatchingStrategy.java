@@ -6,8 +6,9 @@
 package jmb.jcortex.strategies.batchingstrategies;
 
 import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.XorShiftRandom;
 
-public class FixedNumBatchingStrategy implements BatchingStrategy {
+public class FixedNumBatchingStrategy extends ShufflingBatchingStrategy {
 
     private int batchSize;
 
@@ -15,9 +16,14 @@ public class FixedNumBatchingStrategy implements BatchingStrategy {
         this.batchSize = batchSize;
     }
 
+    public FixedNumBatchingStrategy(int batchSize, long seed) {
+        super(new XorShiftRandom(seed));
+        this.batchSize = batchSize;
+    }
+
     @Override
     public BatchedDataSet getBatchedDataSet(DataSet trainingSet) {
-        return new BatchedDataSet(trainingSet, batchSize);
+        return new BatchedDataSet(trainingSet, batchSize, getRandom());
     }
 
 }
@@ -6,14 +6,22 @@
 package jmb.jcortex.strategies.batchingstrategies;
 
 import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.XorShiftRandom;
 
 /**
  *
  */
-public class FullTrainingSetBatchingStrategy implements BatchingStrategy {
+public class FullTrainingSetBatchingStrategy extends ShufflingBatchingStrategy {
+
+    public FullTrainingSetBatchingStrategy() {
+    }
+
+    public FullTrainingSetBatchingStrategy(long seed) {
+        super(new XorShiftRandom(seed));
+    }
 
     @Override
     public BatchedDataSet getBatchedDataSet(DataSet trainingSet) {
-        return new BatchedDataSet(trainingSet, trainingSet.numRows());
+        return new BatchedDataSet(trainingSet, trainingSet.numRows(), getRandom());
     }
 }
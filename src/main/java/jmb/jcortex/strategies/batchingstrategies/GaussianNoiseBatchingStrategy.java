@@ -7,22 +7,28 @@ package jmb.jcortex.strategies.batchingstrategies;
 
 import jmb.jcortex.data.DataSet;
 import jmb.jcortex.data.SynMatrix;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import jmb.jcortex.data.XorShiftRandom;
 
 import java.util.Random;
 
 /**
  *
  */
-public class GaussianNoiseBatchingStrategy implements BatchingStrategy {
+public class GaussianNoiseBatchingStrategy extends ShufflingBatchingStrategy {
 
     private int batchSize;
     private double percentRandomFeatures;
     private SynMatrix featureMeans;
     private SynMatrix featureStds;
-    private Random random = new Random();
 
     public GaussianNoiseBatchingStrategy(int batchSize, double percentRandomFeatures, DataSet trainingSet) {
+        this(batchSize, percentRandomFeatures, trainingSet, new XorShiftRandom());
+    }
+
+    /** The generator both shuffles the rows and draws the noise. */
+    public GaussianNoiseBatchingStrategy(int batchSize, double percentRandomFeatures, DataSet trainingSet,
+                                         XorShiftRandom random) {
+        super(random);
         this.batchSize = batchSize;
         this.percentRandomFeatures = percentRandomFeatures;
         this.featureMeans = trainingSet.getFeatures().getColMeans();
@@ -30,16 +36,13 @@ public class GaussianNoiseBatchingStrategy implements BatchingStrategy {
     }
 
     private SynMatrix calcSD(SynMatrix features) {
-        double[] stds = features.getStreamOfCols()
-                .map(col -> new DescriptiveStatistics(col).getStandardDeviation())
-                .mapToDouble(Double::doubleValue)
-                .toArray();
-        return new SynMatrix(stds);
+        return features.getColVariances().applyInPlace(Math::sqrt);
     }
 
     @Override
     public BatchedDataSet getBatchedDataSet(DataSet trainingSet) {
-        DataSet shuffledTrainingSet = trainingSet.shuffleRows();
+        XorShiftRandom random = getRandom();
+        DataSet shuffledTrainingSet = trainingSet.shuffleRows(random);
         SynMatrix features = shuffledTrainingSet.getFeatures().copy();
         for (int rowNum = 0; rowNum < features.numRows(); rowNum++) {
             for (int colNum = 0; colNum < features.numCols(); colNum++) {
@@ -52,10 +55,16 @@ public class GaussianNoiseBatchingStrategy implements BatchingStrategy {
             }
         }
         DataSet dataSet = new DataSet(features, shuffledTrainingSet.getLabels());
-        return new BatchedDataSet(dataSet, batchSize);
+        return new BatchedDataSet(dataSet, batchSize, random);
     }
 
+    /**
+     * Reseeds the generator that shuffles the rows and draws the noise from the given Random.
+     *
+     * @deprecated pass an XorShiftRandom to the constructor instead, whose state is saved in checkpoints
+     */
+    @Deprecated
     public void setRandom(Random random) {
-        this.random = random;
+        setRandom(new XorShiftRandom(random.nextLong()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.batchingstrategies;
+
+import jmb.jcortex.data.Checkpointable;
+import jmb.jcortex.data.XorShiftRandom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A BatchingStrategy that shuffles the training set with its own generator. Seed it for a repeatable batch order.
+ * The generator's state is saved in training checkpoints, so a resumed run draws the same batches as one that was
+ * never interrupted. Not threadsafe: give each worker its own.
+ */
+public abstract class ShufflingBatchingStrategy implements BatchingStrategy, Checkpointable {
+
+    private XorShiftRandom random;
+
+    protected ShufflingBatchingStrategy() {
+        this(new XorShiftRandom());
+    }
+
+    protected ShufflingBatchingStrategy(XorShiftRandom random) {
+        this.random = random;
+    }
+
+    protected XorShiftRandom getRandom() {
+        return random;
+    }
+
+    protected void setRandom(XorShiftRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        random.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        random.readState(in);
+    }
+}
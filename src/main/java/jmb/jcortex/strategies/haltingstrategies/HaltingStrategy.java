@@ -18,4 +18,17 @@ public interface HaltingStrategy {
     /** Return the best neural net, typically determined by the percent correct against a validation set */
     NeuralNet getBestNeuralNet();
 
+    /**
+     * Return true if the trainer should compute the mean training loss of each iteration and pass it to
+     * recordTrainingLoss() before calling evaluate(). The loss comes from the outputs of the training forward pass,
+     * so it costs one pass over each batch's outputs rather than a re-evaluation of the training set.
+     */
+    default boolean usesTrainingLoss() {
+        return false;
+    }
+
+    /** Receives the mean loss per example over the last training iteration, if usesTrainingLoss() is true */
+    default void recordTrainingLoss(double loss) {
+    }
+
 }
\ No newline at end of file
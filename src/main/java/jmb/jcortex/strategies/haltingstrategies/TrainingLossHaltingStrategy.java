@@ -0,0 +1,126 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.haltingstrategies;
+
+import jmb.jcortex.data.Checkpointable;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetSerializer;
+import jmb.jcortex.strategies.performanceevaluators.PerformanceListener;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static jmb.jcortex.JCortexConstants.TRAINING_SET_LOSS;
+
+/**
+ * Halts when the training loss reported by the trainer stops improving. Unlike ValidationSetHaltingStrategy, this
+ * never runs the neural net over a data set itself: the loss is accumulated from the training forward passes, so
+ * evaluation is nearly free. The loss of an iteration is measured while the weights are being updated, so it lags
+ * the returned neural net slightly. Does not guard against overtraining.
+ */
+public class TrainingLossHaltingStrategy implements HaltingStrategy, Checkpointable {
+
+    private final double minImprovement;
+    private final int maxIterationsSinceBestResult;
+    private List<PerformanceListener> performanceListeners = new ArrayList<>();
+
+    private NeuralNet best;
+    private int iterationsSinceBest = 0;
+    private double bestLoss = Double.MAX_VALUE;
+    private double lastLoss = Double.NaN;
+
+    /**
+     * @param minImprovement the amount the loss must drop below the best loss so far to count as an improvement
+     * @param maxIterationsSinceBestResult halt after this many iterations without an improvement
+     */
+    public TrainingLossHaltingStrategy(double minImprovement, int maxIterationsSinceBestResult) {
+        this.minImprovement = minImprovement;
+        this.maxIterationsSinceBestResult = maxIterationsSinceBestResult;
+    }
+
+    @Override
+    public boolean shouldHalt() {
+        return bestLoss == 0 || iterationsSinceBest >= maxIterationsSinceBestResult;
+    }
+
+    @Override
+    public boolean usesTrainingLoss() {
+        return true;
+    }
+
+    @Override
+    public void recordTrainingLoss(double loss) {
+        lastLoss = loss;
+    }
+
+    /**
+     * Return the training loss recorded since the last evaluation. Before the first training iteration there is no
+     * loss yet, so the neural net is kept as the initial best and NaN is returned.
+     */
+    @Override
+    public double evaluate(NeuralNet neuralNet) {
+        double loss = lastLoss;
+        lastLoss = Double.NaN;
+        if (Double.isNaN(loss)) {
+            if (best == null) {
+                best = neuralNet.copy();
+            }
+            return loss;
+        }
+        reportPerformance(loss);
+        if (loss < bestLoss - minImprovement) {
+            bestLoss = loss;
+            best = neuralNet.copyInto(best);
+            iterationsSinceBest = 0;
+        } else {
+            iterationsSinceBest++;
+        }
+        return loss;
+    }
+
+    private void reportPerformance(double loss) {
+        if (performanceListeners.isEmpty()) return;
+
+        Map<String, Double> performanceData = new HashMap<>();
+        performanceData.put(TRAINING_SET_LOSS, loss);
+        performanceListeners.forEach(listener -> listener.performanceEvent(performanceData));
+    }
+
+    /** The best neural net is overwritten in place by later improvements. Copy it to keep a particular one. */
+    @Override
+    public NeuralNet getBestNeuralNet() {
+        return best;
+    }
+
+    /** Saves the best neural net so far and the iteration counters. Performance listeners are not saved. */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(best != null);
+        if (best != null) {
+            NeuralNetSerializer.writeTo(best, out);
+        }
+        out.writeInt(iterationsSinceBest);
+        out.writeDouble(bestLoss);
+        out.writeDouble(lastLoss);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        best = in.readBoolean() ? NeuralNetSerializer.readFrom(in) : null;
+        iterationsSinceBest = in.readInt();
+        bestLoss = in.readDouble();
+        lastLoss = in.readDouble();
+    }
+
+    public void addPerformanceListener(PerformanceListener performanceListener) {
+        performanceListeners.add(performanceListener);
+    }
+}
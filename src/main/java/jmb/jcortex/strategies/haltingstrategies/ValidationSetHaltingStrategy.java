@@ -5,11 +5,16 @@
  */
 package jmb.jcortex.strategies.haltingstrategies;
 
+import jmb.jcortex.data.Checkpointable;
 import jmb.jcortex.data.DataSet;
 import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetSerializer;
 import jmb.jcortex.strategies.performanceevaluators.PerformanceEvaluator;
 import jmb.jcortex.strategies.performanceevaluators.PerformanceListener;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,7 +23,7 @@ import java.util.Map;
 import static jmb.jcortex.JCortexConstants.TRAINING_SET_PERCENT_WRONG;
 import static jmb.jcortex.JCortexConstants.VALIDATION_SET_PERCENT_WRONG;
 
-public class ValidationSetHaltingStrategy implements HaltingStrategy {
+public class ValidationSetHaltingStrategy implements HaltingStrategy, Checkpointable {
 
     private final DataSet validationSet;
     private final DataSet trainingSet;
@@ -51,7 +56,7 @@ public class ValidationSetHaltingStrategy implements HaltingStrategy {
         reportPerformance(trainingSetError, validationSetError);
         if (validationSetError < bestError) {
             bestError = validationSetError;
-            best = neuralNet.copy();
+            best = neuralNet.copyInto(best);
             iterationsSinceBest = 0;
         }
         iterationsSinceBest++;
@@ -67,11 +72,30 @@ public class ValidationSetHaltingStrategy implements HaltingStrategy {
         performanceListeners.forEach(listener -> listener.performanceEvent(performanceData));
     }
 
+    /** The best neural net is overwritten in place by later improvements. Copy it to keep a particular one. */
     @Override
     public NeuralNet getBestNeuralNet() {
         return best;
     }
 
+    /** Saves the best neural net so far and the iteration counters. Performance listeners are not saved. */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(best != null);
+        if (best != null) {
+            NeuralNetSerializer.writeTo(best, out);
+        }
+        out.writeInt(iterationsSinceBest);
+        out.writeDouble(bestError);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        best = in.readBoolean() ? NeuralNetSerializer.readFrom(in) : null;
+        iterationsSinceBest = in.readInt();
+        bestError = in.readDouble();
+    }
+
     public void addPerformanceListener(PerformanceListener performanceListener) {
         performanceListeners.add(performanceListener);
     }
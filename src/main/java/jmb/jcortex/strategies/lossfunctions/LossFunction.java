@@ -0,0 +1,28 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.lossfunctions;
+
+import jmb.jcortex.data.SynMatrix;
+
+import java.util.function.Supplier;
+
+/**
+ * The function minimized by training. Supplies the deltas of the output layer for backpropagation, and a scalar
+ * loss value that can be used to monitor training.
+ */
+public interface LossFunction {
+
+    /**
+     * Return the deltas of the output layer: the derivative of the loss with respect to the output layer's inputs
+     * (before the output function). The output function's derivative is only computed if the loss function asks
+     * for it.
+     */
+    SynMatrix calcOutputDeltas(SynMatrix outputs, SynMatrix labels, Supplier<SynMatrix> outputDerivatives);
+
+    /** Return the mean loss per example. */
+    double calcLoss(SynMatrix outputs, SynMatrix labels);
+
+}
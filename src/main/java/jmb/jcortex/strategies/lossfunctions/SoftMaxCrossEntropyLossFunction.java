@@ -0,0 +1,41 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.lossfunctions;
+
+import jmb.jcortex.data.SynMatrix;
+
+import java.util.function.Supplier;
+
+/**
+ * Cross-entropy loss for a softmax output layer (SOFTMAX_MATRIX_FUNCTION). The softmax derivative and the
+ * cross-entropy derivative cancel to outputs - labels, so the output deltas take a single pass and never need the
+ * softmax derivative. Since the softmax is computed with its row max subtracted, the outputs never overflow, and
+ * the loss clamps probabilities at Double.MIN_NORMAL so that log(0) can't produce infinity.
+ * <p>
+ * The deltas are only correct when the outputs come from a softmax and each row of labels sums to 1. Nothing here
+ * can check the output function, but NeuralNetBuilder refuses to build a net pairing this with any other.
+ */
+public class SoftMaxCrossEntropyLossFunction implements LossFunction {
+
+    @Override
+    public SynMatrix calcOutputDeltas(SynMatrix outputs, SynMatrix labels, Supplier<SynMatrix> outputDerivatives) {
+        return outputs.minus(labels);
+    }
+
+    @Override
+    public double calcLoss(SynMatrix outputs, SynMatrix labels) {
+        double[] outputValues = outputs.getAll();
+        double[] labelValues = labels.getAll();
+        double sum = 0;
+        for (int i = 0; i < outputValues.length; i++) {
+            if (labelValues[i] != 0) {
+                sum -= labelValues[i] * Math.log(Math.max(outputValues[i], Double.MIN_NORMAL));
+            }
+        }
+        return sum / outputs.numRows();
+    }
+
+}
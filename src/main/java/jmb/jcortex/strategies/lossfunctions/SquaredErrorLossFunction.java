@@ -0,0 +1,35 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.lossfunctions;
+
+import jmb.jcortex.data.SynMatrix;
+
+import java.util.function.Supplier;
+
+/**
+ * Half the squared difference between the outputs and the labels. Works with any output function. This is the
+ * default.
+ */
+public class SquaredErrorLossFunction implements LossFunction {
+
+    @Override
+    public SynMatrix calcOutputDeltas(SynMatrix outputs, SynMatrix labels, Supplier<SynMatrix> outputDerivatives) {
+        return outputs.minus(labels).elementMultInPlace(outputDerivatives.get());
+    }
+
+    @Override
+    public double calcLoss(SynMatrix outputs, SynMatrix labels) {
+        double[] outputValues = outputs.getAll();
+        double[] labelValues = labels.getAll();
+        double sum = 0;
+        for (int i = 0; i < outputValues.length; i++) {
+            double difference = outputValues[i] - labelValues[i];
+            sum += difference * difference;
+        }
+        return 0.5 * sum / outputs.numRows();
+    }
+
+}
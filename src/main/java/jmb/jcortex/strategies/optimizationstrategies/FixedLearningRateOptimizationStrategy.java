@@ -29,6 +29,16 @@ public class FixedLearningRateOptimizationStrategy implements OptimizationStrate
                 .collect(toList());
     }
 
+    @Override
+    public boolean supportsLayerCorrections() {
+        return true;
+    }
+
+    @Override
+    public SynMatrix calcCorrection(int layerIndex, SynMatrix gradient) {
+        return gradient.elementMult(learningRate);
+    }
+
     @Override
     public double getLearningRate() {
         return learningRate;
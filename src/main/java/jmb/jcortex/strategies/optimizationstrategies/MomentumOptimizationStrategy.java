@@ -5,13 +5,18 @@
  */
 package jmb.jcortex.strategies.optimizationstrategies;
 
+import jmb.jcortex.data.Checkpointable;
 import jmb.jcortex.data.SynMatrix;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.stream.Collectors.toList;
 
-public class MomentumOptimizationStrategy implements OptimizationStrategy {
+public class MomentumOptimizationStrategy implements OptimizationStrategy, Checkpointable {
 
     private double learningRate;
     private double momentum;
@@ -37,8 +42,60 @@ public class MomentumOptimizationStrategy implements OptimizationStrategy {
         return corrections;
     }
 
+    @Override
+    public boolean supportsLayerCorrections() {
+        return true;
+    }
+
+    @Override
+    public SynMatrix calcCorrection(int layerIndex, SynMatrix gradient) {
+        SynMatrix correction = gradient.elementMult(learningRate);
+        SynMatrix previousCorrection = getPreviousCorrection(layerIndex);
+        if (previousCorrection != null) {
+            correction.plusInPlace(previousCorrection.elementMultInPlace(momentum));
+        }
+        setPreviousCorrection(layerIndex, correction);
+        return correction;
+    }
+
+    // Only the list is locked, so different layers' corrections can be calculated at the same time
+    private synchronized SynMatrix getPreviousCorrection(int layerIndex) {
+        if (previousCorrections == null || layerIndex >= previousCorrections.size()) return null;
+        return previousCorrections.get(layerIndex);
+    }
+
+    private synchronized void setPreviousCorrection(int layerIndex, SynMatrix correction) {
+        if (previousCorrections == null) {
+            previousCorrections = new ArrayList<>();
+        }
+        while (previousCorrections.size() <= layerIndex) {
+            previousCorrections.add(null);
+        }
+        previousCorrections.set(layerIndex, correction);
+    }
+
     @Override
     public double getLearningRate() {
         return learningRate;
     }
+
+    /** Saves the previous corrections, which carry the momentum. */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(previousCorrections == null ? -1 : previousCorrections.size());
+        if (previousCorrections != null) {
+            for (SynMatrix correction : previousCorrections) {
+                correction.writeTo(out);
+            }
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int numCorrections = in.readInt();
+        previousCorrections = numCorrections < 0 ? null : new ArrayList<>(numCorrections);
+        for (int i = 0; i < numCorrections; i++) {
+            previousCorrections.add(SynMatrix.readFrom(in));
+        }
+    }
 }
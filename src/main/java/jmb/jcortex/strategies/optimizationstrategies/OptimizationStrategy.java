@@ -14,4 +14,20 @@ public interface OptimizationStrategy {
     List<SynMatrix> calcCorrections(List<SynMatrix> gradients);
 
     double getLearningRate();
+
+    /**
+     * Return true if calcCorrection() is implemented, so a trainer can update each layer as soon as its gradient
+     * is ready instead of waiting for every layer's.
+     */
+    default boolean supportsLayerCorrections() {
+        return false;
+    }
+
+    /**
+     * Return the correction for one layer, the same as that layer's entry from calcCorrections(). Called once per
+     * layer for each step, possibly for different layers from different threads at once.
+     */
+    default SynMatrix calcCorrection(int layerIndex, SynMatrix gradient) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " only calculates all layers at once");
+    }
 }
\ No newline at end of file
@@ -23,17 +23,9 @@ public class ClassificationPerformanceEvaluator implements PerformanceEvaluator
 
     private SynMatrix convertTo01Answers(SynMatrix output) {
         SynMatrix answers = new SynMatrix(output.numRows(), output.numCols());
-        for (int rowNum = 0; rowNum < output.numRows(); rowNum++) {
-            double highest = 0;
-            int highestCol = -1;
-            double[] row = output.getRow(rowNum);
-            for (int colNum = 0; colNum < row.length; colNum++) {
-                if (row[colNum] > highest) {
-                    highest = row[colNum];
-                    highestCol = colNum;
-                }
-            }
-            answers.set(rowNum, highestCol, 1.0);
+        int[] highestCols = output.getRowArgMaxes();
+        for (int rowNum = 0; rowNum < highestCols.length; rowNum++) {
+            answers.set(rowNum, highestCols[rowNum], 1.0);
         }
         return answers;
     }
@@ -0,0 +1,202 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.Checkpointable;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetSerializer;
+import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
+import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Periodically saves the complete state of a GradientDescentTrainer run to a file, so it can be resumed with
+ * GradientDescentTrainer.resume() after a crash. A checkpoint holds the iteration number, the neural net and its
+ * dropout randomizer, and the state of the batching, optimization and halting strategies if they are Checkpointable
+ * (e.g. the shuffle generator of a ShufflingBatchingStrategy, so a resumed run sees the same batches).
+ * <p>
+ * The training thread only serializes the state into memory. Writing the file, syncing it to disk and renaming it
+ * over the previous checkpoint happen on a background thread, so a crash mid-write leaves the previous checkpoint
+ * intact. If the previous write is still running when the next checkpoint is due, that checkpoint is skipped rather
+ * than blocking training. A failed write is rethrown on the training thread at the next checkpoint. The background
+ * thread is started by the first checkpoint of a training run and stopped when the run ends.
+ */
+public class Checkpointer {
+
+    private static final int MAGIC = 0x4A434B50;
+    private static final int VERSION = 2;
+
+    private final Path path;
+    private final int everyIterations;
+    private ExecutorService writer;
+    private Future<?> pendingWrite;
+
+    /**
+     * @param path the checkpoint file. A temporary file is written next to it and then renamed over it.
+     * @param everyIterations save a checkpoint after every this many training iterations
+     */
+    public Checkpointer(Path path, int everyIterations) {
+        if (everyIterations < 1) throw new IllegalArgumentException("everyIterations must be positive: " + everyIterations);
+        this.path = path;
+        this.everyIterations = everyIterations;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getEveryIterations() {
+        return everyIterations;
+    }
+
+    /** Called by the trainer after each evaluated iteration. Starts a checkpoint write if one is due. */
+    void afterIteration(int iteration, NeuralNet neuralNet, BatchingStrategy batchingStrategy,
+                        OptimizationStrategy optimizationStrategy, HaltingStrategy haltingStrategy) {
+        if (iteration % everyIterations != 0) return;
+        if (pendingWrite != null) {
+            if (!pendingWrite.isDone()) return;
+            checkWrite(pendingWrite);
+        }
+        byte[] state = snapshot(iteration, neuralNet, batchingStrategy, optimizationStrategy, haltingStrategy);
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jcortex-checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingWrite = writer.submit(() -> {
+            writeFile(state);
+            return null;
+        });
+    }
+
+    /** Waits for any checkpoint still being written and stops the background thread. Rethrows a failed write. */
+    void awaitWrites() {
+        try {
+            if (pendingWrite != null) {
+                checkWrite(pendingWrite);
+            }
+        } finally {
+            pendingWrite = null;
+            if (writer != null) {
+                writer.shutdown();
+                writer = null;
+            }
+        }
+    }
+
+    /** True if a checkpoint has been written to the path. */
+    boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Restores the state in the checkpoint into the given neural net and strategies, which must be configured as
+     * they were when the checkpoint was written. Returns the iteration the checkpoint was taken after.
+     */
+    int restore(NeuralNet neuralNet, BatchingStrategy batchingStrategy, OptimizationStrategy optimizationStrategy,
+                HaltingStrategy haltingStrategy) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)));
+        if (in.readInt() != MAGIC) throw new IOException("Not a training checkpoint: " + path);
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported checkpoint version: " + version);
+        int iteration = in.readInt();
+        NeuralNet saved = NeuralNetSerializer.readFrom(in);
+        neuralNet.setLayers(saved.getLayers());
+        neuralNet.setActivationFunction(saved.getActivationFunction());
+        neuralNet.setOutputFunction(saved.getOutputFunction());
+        neuralNet.setHiddenDropoutPercent(saved.getHiddenDropoutPercent());
+        neuralNet.getDropoutRandomizer().readState(in);
+        readStrategyState(in, batchingStrategy);
+        readStrategyState(in, optimizationStrategy);
+        readStrategyState(in, haltingStrategy);
+        return iteration;
+    }
+
+    private byte[] snapshot(int iteration, NeuralNet neuralNet, BatchingStrategy batchingStrategy,
+                            OptimizationStrategy optimizationStrategy, HaltingStrategy haltingStrategy) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(iteration);
+            NeuralNetSerializer.writeTo(neuralNet, out);
+            neuralNet.getDropoutRandomizer().writeState(out);
+            writeStrategyState(out, batchingStrategy);
+            writeStrategyState(out, optimizationStrategy);
+            writeStrategyState(out, haltingStrategy);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The class name is saved with the state, so resuming with a different strategy fails instead of misreading. */
+    private static void writeStrategyState(DataOutputStream out, Object strategy) throws IOException {
+        out.writeUTF(strategy.getClass().getName());
+        if (strategy instanceof Checkpointable) {
+            ((Checkpointable) strategy).writeState(out);
+        }
+    }
+
+    private static void readStrategyState(DataInputStream in, Object strategy) throws IOException {
+        String className = in.readUTF();
+        if (!className.equals(strategy.getClass().getName())) {
+            throw new IOException("Checkpoint was written by " + className + ", not " + strategy.getClass().getName());
+        }
+        if (strategy instanceof Checkpointable) {
+            ((Checkpointable) strategy).readState(in);
+        }
+    }
+
+    private void writeFile(byte[] state) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(state);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static void checkWrite(Future<?> write) {
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw new UncheckedIOException("Failed to write checkpoint", (IOException) cause);
+            throw new IllegalStateException("Failed to write checkpoint", cause);
+        }
+    }
+}
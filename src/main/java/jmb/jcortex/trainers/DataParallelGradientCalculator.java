@@ -0,0 +1,114 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Computes the gradients of a batch by splitting it into one contiguous shard of rows per worker thread. Each
+ * worker runs its own forward pass (with its own dropout randomizer), deltas and gradients. The shard gradients
+ * are then summed pairwise in a fixed tree order, so for a given number of workers the result doesn't depend on
+ * thread timing. Only reads the NeuralNet, which the trainer updates once the gradients are combined.
+ */
+class DataParallelGradientCalculator {
+
+    private final int numWorkers;
+    private final ThreadPoolExecutor workers;
+
+    DataParallelGradientCalculator(int numWorkers) {
+        this.numWorkers = numWorkers;
+        workers = TrainerThreads.newPool("trainer", numWorkers);
+    }
+
+    int getNumWorkers() {
+        return numWorkers;
+    }
+
+    /** The mean gradients over the whole batch, and the summed loss if it was requested. */
+    static class BatchGradients {
+        final List<SynMatrix> gradients;
+        final double totalLoss;
+
+        BatchGradients(List<SynMatrix> gradients, double totalLoss) {
+            this.gradients = gradients;
+            this.totalLoss = totalLoss;
+        }
+    }
+
+    /**
+     * Returns the mean gradients over the batch, the same as a single threaded pass up to rounding. Dropout
+     * randomizers for the shards are split from the NeuralNet's randomizer in shard order, so they are also
+     * deterministic.
+     */
+    BatchGradients calcGradients(NeuralNet neuralNet, DataSet batch, boolean trackLoss,
+                                 DeltaCalculator deltaCalculator, GradientCalculator gradientCalculator) {
+        int numRows = batch.numRows();
+        int numShards = Math.min(numWorkers, numRows);
+        List<Callable<BatchGradients>> shardTasks = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            int from = (int) ((long) numRows * shard / numShards);
+            int to = (int) ((long) numRows * (shard + 1) / numShards);
+            XorShiftRandom random = neuralNet.getDropoutRandomizer().split();
+            shardTasks.add(() -> calcShardGradients(neuralNet, batch.sliceRows(from, to), random, trackLoss,
+                    deltaCalculator, gradientCalculator));
+        }
+        List<BatchGradients> shardGradients = TrainerThreads.invokeAll(workers, shardTasks);
+        List<SynMatrix> gradients = reduce(shardGradients);
+        gradients.forEach(gradient -> gradient.elementDivideInPlace(numRows));
+        double totalLoss = 0;
+        for (BatchGradients shard : shardGradients) {
+            totalLoss += shard.totalLoss;
+        }
+        return new BatchGradients(gradients, totalLoss);
+    }
+
+    /** Returns the shard's gradients summed (not averaged) over its rows, so shards of any size add up correctly. */
+    private static BatchGradients calcShardGradients(NeuralNet neuralNet, DataSet shard, XorShiftRandom random,
+                                                     boolean trackLoss, DeltaCalculator deltaCalculator,
+                                                     GradientCalculator gradientCalculator) {
+        ExecutionContext context = neuralNet.trainForward(shard, random);
+        double loss = 0;
+        if (trackLoss) {
+            loss = neuralNet.getLossFunction().calcLoss(context.getOutputs(), shard.getLabels()) * shard.numRows();
+        }
+        List<SynMatrix> gradients = GradientDescentTrainer.calcGradients(neuralNet, context, shard.getLabels(),
+                deltaCalculator, gradientCalculator);
+        gradients.forEach(gradient -> gradient.elementMultInPlace(shard.numRows()));
+        return new BatchGradients(gradients, loss);
+    }
+
+    /**
+     * Sums the shard gradients into the first shard's matrices in a fixed tree: 0+=1, 2+=3, ..., then 0+=2, 4+=6,
+     * and so on. The pairs in each level run in parallel.
+     */
+    private List<SynMatrix> reduce(List<BatchGradients> shardGradients) {
+        int numShards = shardGradients.size();
+        for (int stride = 1; stride < numShards; stride *= 2) {
+            List<Callable<BatchGradients>> pairTasks = new ArrayList<>();
+            for (int i = 0; i + stride < numShards; i += 2 * stride) {
+                List<SynMatrix> target = shardGradients.get(i).gradients;
+                List<SynMatrix> source = shardGradients.get(i + stride).gradients;
+                pairTasks.add(() -> {
+                    for (int layer = 0; layer < target.size(); layer++) {
+                        target.get(layer).plusInPlace(source.get(layer));
+                    }
+                    return null;
+                });
+            }
+            TrainerThreads.invokeAll(workers, pairTasks);
+        }
+        return shardGradients.get(0).gradients;
+    }
+}
@@ -5,29 +5,59 @@
  */
 package jmb.jcortex.trainers;
 
+import jmb.jcortex.data.DropoutMask;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
 import jmb.jcortex.neuralnet.NeuralNet;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 /**
- *
+ * Calculates the deltas for each layer by backpropagation, starting from the output deltas given by the
+ * NeuralNet's LossFunction. Uses the function derivatives saved by the training
+ * forward pass when they are available, otherwise computes them from the node values (which is only correct if
+ * the node values were not scaled by dropout).
  */
 public class DeltaCalculator {
 
-    public List<SynMatrix> calcDeltas(List<SynMatrix> nodeValues, SynMatrix labels, NeuralNet neuralNet) {
+    public List<SynMatrix> calcDeltas(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet) {
+        SynMatrix[] deltas = new SynMatrix[neuralNet.getLayers().size()];
+        calcDeltas(context, labels, neuralNet, (layerDeltas, layerIndex) -> deltas[layerIndex] = layerDeltas);
+        return Arrays.asList(deltas);
+    }
+
+    /**
+     * Calculates the deltas as above, passing each layer's deltas and index to the listener as soon as they are
+     * known, from the output layer back. Lets the caller start work on the last layers, such as computing their
+     * gradients or sending them, while the earlier layers are still being backpropagated. Only the deltas of the
+     * layer being propagated are held here, so unless the listener keeps them, no more than two layers' deltas
+     * are in memory at once, however deep the net.
+     */
+    public void calcDeltas(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet,
+                           ObjIntConsumer<SynMatrix> listener) {
         List<SynMatrix> layers = neuralNet.getLayers();
-        List<SynMatrix> dropoutMasks = neuralNet.getDropoutMasks();
-        SynMatrix[] deltas = new SynMatrix[layers.size()];
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        List<DropoutMask> dropoutMasks = context.getDropoutMasks();
+        List<SynMatrix> derivatives = context.getActivationDerivatives();
+        boolean useSavedDerivatives = derivatives.size() == layers.size();
         SynMatrix outputs = nodeValues.get(nodeValues.size() - 1);
-        deltas[deltas.length - 1] = outputs.minus(labels).elementMultInPlace(outputs.apply(neuralNet.getOutputFunction().getDerivative()));
-        for (int i = deltas.length - 1; i >= 1; i--) {
+        SynMatrix deltas = neuralNet.getLossFunction().calcOutputDeltas(outputs, labels,
+                () -> useSavedDerivatives ? derivatives.get(derivatives.size() - 1)
+                        : outputs.apply(neuralNet.getOutputFunction().getDerivative()));
+        listener.accept(deltas, layers.size() - 1);
+        for (int i = layers.size() - 1; i >= 1; i--) {
             SynMatrix weightsNoBias = layers.get(i).removeBiasRow();
-            SynMatrix activationDerivative = nodeValues.get(i).apply(neuralNet.getActivationFunction().getDerivative());
-            deltas[i - 1] = (deltas[i].multiply(weightsNoBias.transpose())).elementMultInPlace(activationDerivative).elementMultInPlace(dropoutMasks.get(i-1));
+            SynMatrix activationDerivative = useSavedDerivatives ? derivatives.get(i - 1)
+                    : nodeValues.get(i).apply(neuralNet.getActivationFunction().getDerivative());
+            // Replacing the layer above's deltas releases them
+            deltas = (deltas.multiply(weightsNoBias.transpose())).elementMultInPlace(activationDerivative);
+            if (!dropoutMasks.isEmpty()) {
+                dropoutMasks.get(i - 1).applyInPlace(deltas);
+            }
+            listener.accept(deltas, i - 1);
         }
-        return Arrays.asList(deltas);
     }
 
 }
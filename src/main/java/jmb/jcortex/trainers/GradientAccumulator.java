@@ -0,0 +1,89 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.SynMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sums the gradients of several micro-batches, weighted by their numbers of examples, so the optimizer can take one
+ * step over more examples than fit through the forward pass at once. The sums are kept in matrices that are
+ * allocated once and reused for every step.
+ */
+class GradientAccumulator {
+
+    private final int numMicroBatches;
+    private List<SynMatrix> sums;
+    private int numAccumulated = 0;
+    private int numExamples = 0;
+
+    GradientAccumulator(int numMicroBatches) {
+        this.numMicroBatches = numMicroBatches;
+    }
+
+    int getNumMicroBatches() {
+        return numMicroBatches;
+    }
+
+    /** Adds the mean gradients of a micro-batch of numRows examples. The gradients are overwritten. */
+    void add(List<SynMatrix> gradients, int numRows) {
+        if (numAccumulated == 0) {
+            if (!hasShapesOf(gradients)) {
+                sums = new ArrayList<>(gradients.size());
+                for (SynMatrix gradient : gradients) {
+                    sums.add(new SynMatrix(gradient.numRows(), gradient.numCols()));
+                }
+            }
+            for (int i = 0; i < gradients.size(); i++) {
+                gradients.get(i).elementMultInPlace(numRows).copyInto(sums.get(i));
+            }
+        } else {
+            for (int i = 0; i < gradients.size(); i++) {
+                sums.get(i).plusInPlace(gradients.get(i).elementMultInPlace(numRows));
+            }
+        }
+        numAccumulated++;
+        numExamples += numRows;
+    }
+
+    private boolean hasShapesOf(List<SynMatrix> gradients) {
+        if (sums == null || sums.size() != gradients.size()) return false;
+        for (int i = 0; i < gradients.size(); i++) {
+            if (!sums.get(i).hasSameShape(gradients.get(i))) return false;
+        }
+        return true;
+    }
+
+    /** True once numMicroBatches have been added since the last step. */
+    boolean isFull() {
+        return numAccumulated >= numMicroBatches;
+    }
+
+    boolean isEmpty() {
+        return numAccumulated == 0;
+    }
+
+    /** The number of examples added since the last step. */
+    int getNumExamples() {
+        return numExamples;
+    }
+
+    /**
+     * Returns the mean gradients over every example added since the last step, and starts the next step. The
+     * matrices are overwritten by the next step's first add().
+     */
+    List<SynMatrix> takeMeanGradients() {
+        if (isEmpty()) throw new IllegalStateException("No gradients have been added");
+        for (SynMatrix sum : sums) {
+            sum.elementDivideInPlace(numExamples);
+        }
+        numAccumulated = 0;
+        numExamples = 0;
+        return sums;
+    }
+}
@@ -7,7 +7,10 @@ package jmb.jcortex.trainers;
 
 import com.codepoetics.protonpack.StreamUtils;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static java.util.stream.Collectors.toList;
@@ -18,11 +21,27 @@ import static java.util.stream.Collectors.toList;
 public class GradientCalculator {
 
     public List<SynMatrix> calcGradients(List<SynMatrix> deltasList, List<SynMatrix> nodeValuesList) {
-        return StreamUtils.zip(deltasList.stream(), nodeValuesList.stream(), this::calcPartialDerivativeGradient)
+        return StreamUtils.zip(deltasList.stream(), nodeValuesList.stream(), this::calcGradient)
                 .collect(toList());
     }
 
-    private SynMatrix calcPartialDerivativeGradient(SynMatrix deltas, SynMatrix nodeValues) {
+    /**
+     * Backpropagates with the DeltaCalculator and returns the mean gradient of every layer, computing each one as
+     * soon as the layer's deltas are known. Reads the node values once each, from the outputs back, which is the
+     * order a checkpointed ExecutionContext recomputes them in. Each layer's deltas are dropped once its gradient is
+     * computed, so besides the gradients only two layers' deltas are held at a time.
+     */
+    public List<SynMatrix> calcGradients(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet,
+                                         DeltaCalculator deltaCalculator) {
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        SynMatrix[] gradients = new SynMatrix[neuralNet.getLayers().size()];
+        deltaCalculator.calcDeltas(context, labels, neuralNet,
+                (deltas, layer) -> gradients[layer] = calcGradient(deltas, nodeValues.get(layer)));
+        return Arrays.asList(gradients);
+    }
+
+    /** The mean gradient of one layer, from its deltas and the node values feeding into it. */
+    public SynMatrix calcGradient(SynMatrix deltas, SynMatrix nodeValues) {
         return nodeValues.addBiasColumn().transpose().multiply(deltas).elementDivideInPlace(deltas.numRows());
     }
 
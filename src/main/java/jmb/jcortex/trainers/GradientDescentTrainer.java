@@ -7,6 +7,7 @@ package jmb.jcortex.trainers;
 
 import jmb.jcortex.data.DataSet;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
 import jmb.jcortex.neuralnet.NeuralNet;
 import jmb.jcortex.strategies.batchingstrategies.BatchedDataSet;
 import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
@@ -15,6 +16,7 @@ import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
 import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
 import jmb.jcortex.strategies.regularization.WeightAdjuster;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,6 +32,10 @@ public class GradientDescentTrainer implements SupervisedTrainer {
     private OptimizationStrategy optimizationStrategy;
     private HaltingStrategy haltingStrategy;
     private WeightAdjuster weightAdjuster;
+    private Checkpointer checkpointer;
+    private DataParallelGradientCalculator parallelCalculator;
+    private PipelinedBackPropagation pipeline;
+    private GradientAccumulator accumulator;
 
     private DeltaCalculator deltaCalculator = new DeltaCalculator();
     private GradientCalculator gradientCalculator = new GradientCalculator();
@@ -47,42 +53,169 @@ public class GradientDescentTrainer implements SupervisedTrainer {
     @Override
     public NeuralNet train(NeuralNet neuralNet, DataSet trainingSet) {
         haltingStrategy.evaluate(neuralNet);
+        return trainFrom(0, neuralNet, trainingSet);
+    }
+
+    /**
+     * Continues training from the last checkpoint (see setCheckpointer()), or starts training if there is no
+     * checkpoint yet, so a restarted job can always call this. The neural net and this trainer must be configured
+     * as they were for the original run. The checkpoint's weights, dropout randomizer and strategy state are
+     * restored into them before training continues.
+     */
+    public NeuralNet resume(NeuralNet neuralNet, DataSet trainingSet) throws IOException {
+        if (checkpointer == null) throw new IllegalStateException("No checkpointer is configured");
+        if (!checkpointer.exists()) {
+            return train(neuralNet, trainingSet);
+        }
+        int iteration = checkpointer.restore(neuralNet, batchingStrategy, optimizationStrategy, haltingStrategy);
+        return trainFrom(iteration, neuralNet, trainingSet);
+    }
+
+    private NeuralNet trainFrom(int iteration, NeuralNet neuralNet, DataSet trainingSet) {
         while (!haltingStrategy.shouldHalt()) {
             neuralNet = doTrainingIteration(neuralNet, trainingSet);
             haltingStrategy.evaluate(neuralNet);
+            iteration++;
+            if (checkpointer != null) {
+                checkpointer.afterIteration(iteration, neuralNet, batchingStrategy, optimizationStrategy,
+                        haltingStrategy);
+            }
+        }
+        if (checkpointer != null) {
+            checkpointer.awaitWrites();
         }
         return haltingStrategy.getBestNeuralNet();
     }
 
     private NeuralNet doTrainingIteration(NeuralNet neuralNet, DataSet trainingSet) {
         BatchedDataSet batches = batchingStrategy.getBatchedDataSet(trainingSet);
+        boolean trackLoss = haltingStrategy.usesTrainingLoss();
+        double totalLoss = 0;
+        int numExamples = 0;
         while(batches.hasNext()) {
             DataSet batch = batches.getNextBatch();
-            List<SynMatrix> nodeValues = neuralNet.trainForward(batch);
-            neuralNet = doBackPropagation(neuralNet, nodeValues, batch.getLabels());
+            if (accumulator != null) {
+                totalLoss += accumulateGradients(neuralNet, batch, trackLoss);
+                numExamples += batch.numRows();
+                if (accumulator.isFull()) {
+                    stepAccumulatedGradients(neuralNet);
+                }
+                continue;
+            }
+            if (parallelCalculator != null && batch.numRows() > 1) {
+                DataParallelGradientCalculator.BatchGradients batchGradients = parallelCalculator.calcGradients(
+                        neuralNet, batch, trackLoss, deltaCalculator, gradientCalculator);
+                totalLoss += batchGradients.totalLoss;
+                numExamples += batch.numRows();
+                neuralNet.setLayers(updateParameters(neuralNet.getLayers(), batchGradients.gradients, batch.numRows()));
+                continue;
+            }
+            ExecutionContext context = neuralNet.trainForward(batch);
+            if (trackLoss) {
+                SynMatrix outputs = context.getOutputs();
+                totalLoss += neuralNet.getLossFunction().calcLoss(outputs, batch.getLabels()) * outputs.numRows();
+                numExamples += outputs.numRows();
+            }
+            neuralNet = doBackPropagation(neuralNet, context, batch.getLabels());
+        }
+        if (accumulator != null && !accumulator.isEmpty()) {
+            stepAccumulatedGradients(neuralNet);
+        }
+        if (trackLoss) {
+            haltingStrategy.recordTrainingLoss(totalLoss / numExamples);
         }
         return neuralNet;
     }
 
-    private NeuralNet doBackPropagation(NeuralNet neuralNet, List<SynMatrix> nodeValues, SynMatrix labels) {
-        List<SynMatrix> deltas = deltaCalculator.calcDeltas(nodeValues, labels, neuralNet);
-        List<SynMatrix> gradients = gradientCalculator.calcGradients(deltas, nodeValues);
+    /** Adds the batch's gradients to the accumulator and returns its total loss, or 0 if trackLoss is false. */
+    private double accumulateGradients(NeuralNet neuralNet, DataSet batch, boolean trackLoss) {
+        if (parallelCalculator != null && batch.numRows() > 1) {
+            DataParallelGradientCalculator.BatchGradients batchGradients = parallelCalculator.calcGradients(
+                    neuralNet, batch, trackLoss, deltaCalculator, gradientCalculator);
+            accumulator.add(batchGradients.gradients, batch.numRows());
+            return batchGradients.totalLoss;
+        }
+        ExecutionContext context = neuralNet.trainForward(batch);
+        double totalLoss = trackLoss
+                ? neuralNet.getLossFunction().calcLoss(context.getOutputs(), batch.getLabels()) * batch.numRows()
+                : 0;
+        List<SynMatrix> gradients = pipeline != null
+                ? pipeline.calcGradients(neuralNet, context, batch.getLabels(), deltaCalculator, gradientCalculator)
+                : calcGradients(neuralNet, context, batch.getLabels(), deltaCalculator, gradientCalculator);
+        accumulator.add(gradients, batch.numRows());
+        return totalLoss;
+    }
+
+    private void stepAccumulatedGradients(NeuralNet neuralNet) {
+        int numExamples = accumulator.getNumExamples();
+        neuralNet.setLayers(updateParameters(neuralNet.getLayers(), accumulator.takeMeanGradients(), numExamples));
+    }
+
+    private NeuralNet doBackPropagation(NeuralNet neuralNet, ExecutionContext context, SynMatrix labels) {
+        if (pipeline != null) {
+            return doPipelinedBackPropagation(neuralNet, context, labels);
+        }
+        List<SynMatrix> gradients = calcGradients(neuralNet, context, labels, deltaCalculator, gradientCalculator);
         List<SynMatrix> newLayers = updateParameters(neuralNet.getLayers(), gradients, labels.numRows());
         neuralNet.setLayers(newLayers);
         return neuralNet;
     }
 
+    private NeuralNet doPipelinedBackPropagation(NeuralNet neuralNet, ExecutionContext context, SynMatrix labels) {
+        int numExamples = labels.numRows();
+        List<SynMatrix> newLayers;
+        if (optimizationStrategy.supportsLayerCorrections()) {
+            newLayers = pipeline.backPropagate(neuralNet, context, labels, deltaCalculator, gradientCalculator,
+                    optimizationStrategy, (weights, correction) ->
+                            applyRegularization(weights, numExamples).minusInPlace(correction));
+        } else {
+            List<SynMatrix> gradients = pipeline.calcGradients(neuralNet, context, labels, deltaCalculator, gradientCalculator);
+            newLayers = updateParameters(neuralNet.getLayers(), gradients, numExamples);
+        }
+        neuralNet.setLayers(newLayers);
+        return neuralNet;
+    }
+
     private List<SynMatrix> updateParameters(List<SynMatrix> layers, List<SynMatrix> gradients, int numExamples) {
+        return updateParameters(layers, gradients, numExamples, optimizationStrategy, weightAdjuster);
+    }
+
+    private SynMatrix applyRegularization(SynMatrix weights, int numExamples) {
+        return applyRegularization(weights, numExamples, optimizationStrategy, weightAdjuster);
+    }
+
+    /**
+     * The mean gradients of a batch from its forward pass. Recomputes the activations between checkpoints as the
+     * deltas reach them if the context was checkpointed. Shared by the trainers in this package.
+     */
+    static List<SynMatrix> calcGradients(NeuralNet neuralNet, ExecutionContext context, SynMatrix labels,
+                                         DeltaCalculator deltaCalculator, GradientCalculator gradientCalculator) {
+        if (context.recomputesActivations()) {
+            return gradientCalculator.calcGradients(context, labels, neuralNet, deltaCalculator);
+        }
+        List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, labels, neuralNet);
+        return gradientCalculator.calcGradients(deltas, context.getNodeValues());
+    }
+
+    /**
+     * One optimizer step: regularizes each layer with the weight adjuster, if there is one, then subtracts the
+     * optimization strategy's correction in place. Returns the updated layers, which are the same matrices unless
+     * the weight adjuster returns new ones. Shared by the trainers in this package.
+     */
+    static List<SynMatrix> updateParameters(List<SynMatrix> layers, List<SynMatrix> gradients, int numExamples,
+                                            OptimizationStrategy optimizationStrategy, WeightAdjuster weightAdjuster) {
         SynMatrix[] corrections = optimizationStrategy.calcCorrections(gradients).toArray(new SynMatrix[0]);
         SynMatrix[] weights = layers.toArray(new SynMatrix[layers.size()]);
         for (int i = 0; i < corrections.length; i++) {
-            weights[i] = applyRegularization(weights[i], numExamples);
+            weights[i] = applyRegularization(weights[i], numExamples, optimizationStrategy, weightAdjuster);
             weights[i].minusInPlace(corrections[i]);
         }
         return Arrays.asList(weights);
     }
 
-    private SynMatrix applyRegularization(SynMatrix weights, int numExamples) {
+    private static SynMatrix applyRegularization(SynMatrix weights, int numExamples,
+                                                 OptimizationStrategy optimizationStrategy,
+                                                 WeightAdjuster weightAdjuster) {
         if (weightAdjuster != null) {
             double learningRate = optimizationStrategy.getLearningRate();
             weights = weightAdjuster.adjustWeights(weights, numExamples, learningRate);
@@ -125,4 +258,60 @@ public class GradientDescentTrainer implements SupervisedTrainer {
     public void setWeightAdjuster(WeightAdjuster weightAdjuster) {
         this.weightAdjuster = weightAdjuster;
     }
+
+    /** The number of threads each batch is split across. 1 means batches are trained on the calling thread. */
+    public int getNumWorkers() {
+        return parallelCalculator == null ? 1 : parallelCalculator.getNumWorkers();
+    }
+
+    /**
+     * Splits each batch into numWorkers shards of rows whose gradients are computed in parallel, then summed in a
+     * fixed order for a single optimizer step. Training is deterministic for a given number of workers, but with
+     * dropout the masks differ from a single threaded run, since each shard has its own randomizer.
+     */
+    public void setNumWorkers(int numWorkers) {
+        if (numWorkers < 1) throw new IllegalArgumentException("numWorkers must be positive: " + numWorkers);
+        parallelCalculator = numWorkers == 1 ? null : new DataParallelGradientCalculator(numWorkers);
+    }
+
+    /** The number of threads backpropagation is pipelined across. 1 means it runs on the calling thread. */
+    public int getBackPropagationThreads() {
+        return pipeline == null ? 1 : pipeline.getNumThreads();
+    }
+
+    /**
+     * Pipelines backpropagation across numThreads threads: each layer's gradient is computed, and with an
+     * OptimizationStrategy that supports layer corrections its weights updated, while the deltas of the earlier
+     * layers are still being propagated. The results are the same as sequential backpropagation. Only used for
+     * batches trained on the calling thread, so it has no effect when setNumWorkers() is more than 1, and only the
+     * gradients are pipelined when setMicroBatchesPerStep() is more than 1.
+     */
+    public void setBackPropagationThreads(int numThreads) {
+        if (numThreads < 1) throw new IllegalArgumentException("numThreads must be positive: " + numThreads);
+        pipeline = numThreads == 1 ? null : new PipelinedBackPropagation(numThreads);
+    }
+
+    /** The number of batches whose gradients are accumulated into each optimizer step. */
+    public int getMicroBatchesPerStep() {
+        return accumulator == null ? 1 : accumulator.getNumMicroBatches();
+    }
+
+    /**
+     * Accumulates the gradients of numMicroBatches batches from the BatchingStrategy before each optimizer step, so
+     * the effective batch is numMicroBatches times the size of the batches pushed through the forward pass, while
+     * the activations only ever take the memory of one of them. The last step of an iteration takes whatever
+     * batches are left. Without dropout a step matches a single batch of the same examples.
+     */
+    public void setMicroBatchesPerStep(int numMicroBatches) {
+        if (numMicroBatches < 1) throw new IllegalArgumentException("numMicroBatches must be positive: " + numMicroBatches);
+        accumulator = numMicroBatches == 1 ? null : new GradientAccumulator(numMicroBatches);
+    }
+
+    public Checkpointer getCheckpointer() {
+        return checkpointer;
+    }
+
+    public void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
 }
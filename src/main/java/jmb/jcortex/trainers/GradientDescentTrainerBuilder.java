@@ -12,12 +12,18 @@ import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrateg
 import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
 import jmb.jcortex.strategies.regularization.WeightAdjuster;
 
+import java.nio.file.Path;
+
 public class GradientDescentTrainerBuilder {
 
     private BatchingStrategy batchingStrategy;
     private OptimizationStrategy optimizationStrategy;
     private HaltingStrategy haltingStrategy;
     private WeightAdjuster weightAdjuster;
+    private Checkpointer checkpointer;
+    private int numWorkers = 1;
+    private int backPropagationThreads = 1;
+    private int microBatchesPerStep = 1;
 
     public static GradientDescentTrainerBuilder createTrainer() {
         return new GradientDescentTrainerBuilder();
@@ -49,9 +55,37 @@ public class GradientDescentTrainerBuilder {
         return this;
     }
 
+    /** Save a checkpoint to the file every everyIterations iterations. See Checkpointer. */
+    public GradientDescentTrainerBuilder withCheckpointing(Path path, int everyIterations) {
+        this.checkpointer = new Checkpointer(path, everyIterations);
+        return this;
+    }
+
+    /** Split each batch across numWorkers threads. See GradientDescentTrainer.setNumWorkers(). */
+    public GradientDescentTrainerBuilder withDataParallelism(int numWorkers) {
+        this.numWorkers = numWorkers;
+        return this;
+    }
+
+    /** Pipeline backpropagation across numThreads threads. See GradientDescentTrainer.setBackPropagationThreads(). */
+    public GradientDescentTrainerBuilder withPipelinedBackPropagation(int numThreads) {
+        this.backPropagationThreads = numThreads;
+        return this;
+    }
+
+    /** Accumulate the gradients of numMicroBatches batches per step. See GradientDescentTrainer.setMicroBatchesPerStep(). */
+    public GradientDescentTrainerBuilder withGradientAccumulation(int numMicroBatches) {
+        this.microBatchesPerStep = numMicroBatches;
+        return this;
+    }
+
     public GradientDescentTrainer build() {
         GradientDescentTrainer trainer = new GradientDescentTrainer(batchingStrategy, optimizationStrategy, haltingStrategy);
         trainer.setWeightAdjuster(weightAdjuster);
+        trainer.setCheckpointer(checkpointer);
+        trainer.setNumWorkers(numWorkers);
+        trainer.setBackPropagationThreads(backPropagationThreads);
+        trainer.setMicroBatchesPerStep(microBatchesPerStep);
         return trainer;
     }
 
@@ -0,0 +1,180 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.BatchedDataSet;
+import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
+import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+import jmb.jcortex.strategies.regularization.WeightAdjuster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * An asynchronous trainer in the style of Hogwild! SGD. Worker threads pull batches from a shared queue and each
+ * takes the same optimizer step as GradientDescentTrainer, including the WeightAdjuster's regularization, with its
+ * own OptimizationStrategy, straight on the NeuralNet's weight matrices, with no locks.
+ * Workers may read weights that another worker is part way through updating. Sparse problems, and problems that
+ * aren't sensitive to batch size, converge anyway, and no thread ever waits on another within an iteration.
+ * <p>
+ * An iteration is one pass over the batches. The workers finish their batches before the HaltingStrategy evaluates
+ * the NeuralNet, so it always sees a consistent set of weights. Results vary from run to run with thread timing.
+ */
+public class HogwildTrainer implements SupervisedTrainer {
+
+    private final BatchingStrategy batchingStrategy;
+    private final Supplier<OptimizationStrategy> optimizationStrategySupplier;
+    private final HaltingStrategy haltingStrategy;
+    private final int numWorkers;
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+    private WeightAdjuster weightAdjuster;
+
+    /**
+     * @param optimizationStrategySupplier called once per worker per train() call, since strategies like momentum
+     *                                     keep per-worker state
+     * @param numWorkers the number of threads, typically the number of cores
+     */
+    public HogwildTrainer(BatchingStrategy batchingStrategy, Supplier<OptimizationStrategy> optimizationStrategySupplier,
+                          HaltingStrategy haltingStrategy, int numWorkers) {
+        if (numWorkers < 1) throw new IllegalArgumentException("numWorkers must be positive: " + numWorkers);
+        this.batchingStrategy = batchingStrategy;
+        this.optimizationStrategySupplier = optimizationStrategySupplier;
+        this.haltingStrategy = haltingStrategy;
+        this.numWorkers = numWorkers;
+    }
+
+    @Override
+    public NeuralNet train(NeuralNet neuralNet, DataSet trainingSet) {
+        ExecutorService workers = TrainerThreads.newPool("hogwild", numWorkers);
+        try {
+            List<Worker> workerStates = new ArrayList<>(numWorkers);
+            for (int i = 0; i < numWorkers; i++) {
+                workerStates.add(new Worker(neuralNet, optimizationStrategySupplier.get(),
+                        neuralNet.getDropoutRandomizer().split()));
+            }
+            haltingStrategy.evaluate(neuralNet);
+            while (!haltingStrategy.shouldHalt()) {
+                doTrainingIteration(workers, workerStates, trainingSet);
+                haltingStrategy.evaluate(neuralNet);
+            }
+            return haltingStrategy.getBestNeuralNet();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void doTrainingIteration(ExecutorService workers, List<Worker> workerStates, DataSet trainingSet) {
+        BatchedDataSet batchedDataSet = batchingStrategy.getBatchedDataSet(trainingSet);
+        List<DataSet> batches = new ArrayList<>(batchedDataSet.size());
+        while (batchedDataSet.hasNext()) {
+            batches.add(batchedDataSet.getNextBatch());
+        }
+        AtomicInteger nextBatch = new AtomicInteger();
+        boolean trackLoss = haltingStrategy.usesTrainingLoss();
+        List<Callable<Worker>> tasks = new ArrayList<>(workerStates.size());
+        for (Worker worker : workerStates) {
+            tasks.add(() -> worker.trainBatches(batches, nextBatch, trackLoss));
+        }
+        double totalLoss = 0;
+        int numExamples = 0;
+        for (Worker worker : TrainerThreads.invokeAll(workers, tasks)) {
+            totalLoss += worker.totalLoss;
+            numExamples += worker.numExamples;
+        }
+        if (trackLoss) {
+            haltingStrategy.recordTrainingLoss(totalLoss / numExamples);
+        }
+    }
+
+    /** One worker's optimizer, dropout randomizer and loss for the current iteration. Used by one thread at a time. */
+    private class Worker {
+        private final NeuralNet neuralNet;
+        private final OptimizationStrategy optimizationStrategy;
+        private final XorShiftRandom random;
+        private double totalLoss;
+        private int numExamples;
+
+        Worker(NeuralNet neuralNet, OptimizationStrategy optimizationStrategy, XorShiftRandom random) {
+            this.neuralNet = neuralNet;
+            this.optimizationStrategy = optimizationStrategy;
+            this.random = random;
+        }
+
+        Worker trainBatches(List<DataSet> batches, AtomicInteger nextBatch, boolean trackLoss) {
+            totalLoss = 0;
+            numExamples = 0;
+            for (int index = nextBatch.getAndIncrement(); index < batches.size(); index = nextBatch.getAndIncrement()) {
+                DataSet batch = batches.get(index);
+                ExecutionContext context = neuralNet.trainForward(batch, random);
+                if (trackLoss) {
+                    totalLoss += neuralNet.getLossFunction().calcLoss(context.getOutputs(), batch.getLabels()) * batch.numRows();
+                    numExamples += batch.numRows();
+                }
+                List<SynMatrix> gradients = GradientDescentTrainer.calcGradients(neuralNet, context, batch.getLabels(),
+                        deltaCalculator, gradientCalculator);
+                // The live weight matrices, updated in place without locks
+                List<SynMatrix> layers = neuralNet.getLayers();
+                List<SynMatrix> updated = GradientDescentTrainer.updateParameters(layers, gradients, batch.numRows(),
+                        optimizationStrategy, weightAdjuster);
+                for (int i = 0; i < updated.size(); i++) {
+                    if (updated.get(i) != layers.get(i)) {
+                        updated.get(i).copyInto(layers.get(i));
+                    }
+                }
+            }
+            return this;
+        }
+    }
+
+    public BatchingStrategy getBatchingStrategy() {
+        return batchingStrategy;
+    }
+
+    public HaltingStrategy getHaltingStrategy() {
+        return haltingStrategy;
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public DeltaCalculator getDeltaCalculator() {
+        return deltaCalculator;
+    }
+
+    public void setDeltaCalculator(DeltaCalculator deltaCalculator) {
+        this.deltaCalculator = deltaCalculator;
+    }
+
+    public GradientCalculator getGradientCalculator() {
+        return gradientCalculator;
+    }
+
+    public void setGradientCalculator(GradientCalculator gradientCalculator) {
+        this.gradientCalculator = gradientCalculator;
+    }
+
+    public WeightAdjuster getWeightAdjuster() {
+        return weightAdjuster;
+    }
+
+    /** Regularizes the weights before each worker's step, as in GradientDescentTrainer. Shared by the workers. */
+    public void setWeightAdjuster(WeightAdjuster weightAdjuster) {
+        this.weightAdjuster = weightAdjuster;
+    }
+}
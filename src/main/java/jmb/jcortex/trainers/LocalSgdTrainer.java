@@ -0,0 +1,305 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.ParameterBuffer;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.BatchedDataSet;
+import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
+import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+import jmb.jcortex.strategies.regularization.WeightAdjuster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Local SGD: each worker thread trains its own replica of the NeuralNet with its own OptimizationStrategy, taking
+ * the same optimizer step as GradientDescentTrainer (including the WeightAdjuster's regularization), and the
+ * replicas are averaged every K batches rather than after every batch. The workers then all continue from the
+ * average. Synchronization costs about 1/K as much as synchronous data parallelism, and for modest K convergence
+ * stays close to it.
+ * <p>
+ * In each iteration the batches are dealt out to the workers in turn, and the replicas are always averaged at the
+ * end, so the HaltingStrategy evaluates the averaged model. The average is weighted by the number of examples each
+ * replica trained on since the last one, so workers left without a batch in the last round don't dilute the
+ * others' steps. With an averaging interval set, K adapts after each averaging to the number of batches that take
+ * about that long.
+ */
+public class LocalSgdTrainer implements SupervisedTrainer {
+
+    private final BatchingStrategy batchingStrategy;
+    private final Supplier<OptimizationStrategy> optimizationStrategySupplier;
+    private final HaltingStrategy haltingStrategy;
+    private final int numWorkers;
+
+    private volatile int averageEveryBatches;
+    private long averagingIntervalNanos = 0;
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+    private WeightAdjuster weightAdjuster;
+
+    /**
+     * @param optimizationStrategySupplier called once per worker per train() call, since each replica keeps its
+     *                                     own optimizer state
+     * @param averageEveryBatches K, the number of batches each worker trains between averagings
+     */
+    public LocalSgdTrainer(BatchingStrategy batchingStrategy,
+                           Supplier<OptimizationStrategy> optimizationStrategySupplier,
+                           HaltingStrategy haltingStrategy, int numWorkers, int averageEveryBatches) {
+        if (numWorkers < 1) throw new IllegalArgumentException("numWorkers must be positive: " + numWorkers);
+        if (averageEveryBatches < 1) throw new IllegalArgumentException("averageEveryBatches must be positive: " + averageEveryBatches);
+        this.batchingStrategy = batchingStrategy;
+        this.optimizationStrategySupplier = optimizationStrategySupplier;
+        this.haltingStrategy = haltingStrategy;
+        this.numWorkers = numWorkers;
+        this.averageEveryBatches = averageEveryBatches;
+    }
+
+    @Override
+    public NeuralNet train(NeuralNet neuralNet, DataSet trainingSet) {
+        ExecutorService workers = TrainerThreads.newPool("local-sgd", numWorkers);
+        try {
+            Averager averager = new Averager(neuralNet);
+            List<Worker> workerStates = new ArrayList<>(numWorkers);
+            for (int i = 0; i < numWorkers; i++) {
+                NeuralNet replica = neuralNet.copy();
+                replica.setDropoutRandomizer(neuralNet.getDropoutRandomizer().split());
+                workerStates.add(new Worker(replica, optimizationStrategySupplier.get(), averager));
+            }
+            haltingStrategy.evaluate(neuralNet);
+            while (!haltingStrategy.shouldHalt()) {
+                doTrainingIteration(workers, workerStates, averager, trainingSet);
+                haltingStrategy.evaluate(neuralNet);
+            }
+            return haltingStrategy.getBestNeuralNet();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void doTrainingIteration(ExecutorService workers, List<Worker> workerStates, Averager averager,
+                                     DataSet trainingSet) {
+        BatchedDataSet batchedDataSet = batchingStrategy.getBatchedDataSet(trainingSet);
+        List<DataSet> batches = new ArrayList<>(batchedDataSet.size());
+        while (batchedDataSet.hasNext()) {
+            batches.add(batchedDataSet.getNextBatch());
+        }
+        int numRounds = (batches.size() + numWorkers - 1) / numWorkers;
+        boolean trackLoss = haltingStrategy.usesTrainingLoss();
+        CyclicBarrier barrier = new CyclicBarrier(numWorkers, averager::average);
+        averager.startTiming();
+        CompletionService<Worker> completions = new ExecutorCompletionService<>(workers);
+        List<Future<Worker>> futures = new ArrayList<>(numWorkers);
+        for (int w = 0; w < numWorkers; w++) {
+            int workerIndex = w;
+            Worker worker = workerStates.get(w);
+            futures.add(completions.submit(() -> worker.trainRounds(batches, workerIndex, numRounds, barrier, trackLoss)));
+        }
+        double totalLoss = 0;
+        int numExamples = 0;
+        try {
+            for (int i = 0; i < numWorkers; i++) {
+                Worker worker = completions.take().get();
+                totalLoss += worker.totalLoss;
+                numExamples += worker.numExamples;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while training", e);
+        } catch (ExecutionException e) {
+            // The other workers may be waiting at the barrier for the failed one
+            futures.forEach(future -> future.cancel(true));
+            throw TrainerThreads.unwrap(e.getCause());
+        }
+        if (trackLoss) {
+            haltingStrategy.recordTrainingLoss(totalLoss / numExamples);
+        }
+    }
+
+    /** Averages the replicas into the NeuralNet being trained. Runs in the barrier action, on one worker thread. */
+    private class Averager {
+        private final NeuralNet neuralNet;
+        private final ParameterBuffer average;
+        private final List<ParameterBuffer> replicaParameters = new ArrayList<>();
+        private final List<Integer> replicaExamples = new ArrayList<>();
+        private long lastAveragingNanos;
+        private int roundsSinceAveraging = 0;
+
+        Averager(NeuralNet neuralNet) {
+            this.neuralNet = neuralNet;
+            this.average = neuralNet.getParameters();
+        }
+
+        /** Starts timing the batches from now, so the time spent evaluating doesn't count towards K. */
+        synchronized void startTiming() {
+            lastAveragingNanos = System.nanoTime();
+        }
+
+        /**
+         * Called by each worker with its replica and the number of examples it trained on since the last averaging,
+         * before it waits at the barrier.
+         */
+        synchronized void submit(int workerIndex, NeuralNet replica, int rounds, int numExamples) {
+            while (replicaParameters.size() <= workerIndex) {
+                replicaParameters.add(ParameterBuffer.shapedLike(replica.getLayers()));
+                replicaExamples.add(0);
+            }
+            replicaParameters.get(workerIndex).gather(replica.getLayers());
+            replicaExamples.set(workerIndex, numExamples);
+            roundsSinceAveraging = rounds;
+        }
+
+        /** The example weighted mean of the replicas that trained. If none did, the average stays as it was. */
+        synchronized void average() {
+            int totalExamples = 0;
+            for (int numExamples : replicaExamples) {
+                totalExamples += numExamples;
+            }
+            if (totalExamples > 0) {
+                average.scaleInPlace(0);
+                for (int i = 0; i < replicaParameters.size(); i++) {
+                    if (replicaExamples.get(i) > 0) {
+                        average.plusInPlace(replicaParameters.get(i).scaleInPlace(replicaExamples.get(i)));
+                    }
+                }
+                neuralNet.setParameters(average.scaleInPlace(1.0 / totalExamples));
+            }
+            adaptAveragingPeriod();
+        }
+
+        private void adaptAveragingPeriod() {
+            long now = System.nanoTime();
+            if (averagingIntervalNanos > 0 && roundsSinceAveraging > 0) {
+                double nanosPerRound = (double) (now - lastAveragingNanos) / roundsSinceAveraging;
+                averageEveryBatches = (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(averagingIntervalNanos / nanosPerRound)));
+            }
+            lastAveragingNanos = now;
+        }
+
+        synchronized void copyAverageInto(NeuralNet replica) {
+            replica.setParameters(average);
+        }
+    }
+
+    /** One worker's replica and optimizer. Used by one thread at a time. */
+    private class Worker {
+        private final NeuralNet replica;
+        private final OptimizationStrategy optimizationStrategy;
+        private final Averager averager;
+        private double totalLoss;
+        private int numExamples;
+        private int examplesSinceAveraging;
+
+        Worker(NeuralNet replica, OptimizationStrategy optimizationStrategy, Averager averager) {
+            this.replica = replica;
+            this.optimizationStrategy = optimizationStrategy;
+            this.averager = averager;
+        }
+
+        /** Trains batches workerIndex, workerIndex + numWorkers, ... averaging every K rounds and at the end. */
+        Worker trainRounds(List<DataSet> batches, int workerIndex, int numRounds, CyclicBarrier barrier,
+                           boolean trackLoss) throws InterruptedException, BrokenBarrierException {
+            totalLoss = 0;
+            numExamples = 0;
+            examplesSinceAveraging = 0;
+            int roundsSinceAveraging = 0;
+            for (int round = 0; round < numRounds; round++) {
+                int batchIndex = round * numWorkers + workerIndex;
+                if (batchIndex < batches.size()) {
+                    trainBatch(batches.get(batchIndex), trackLoss);
+                }
+                roundsSinceAveraging++;
+                // Every worker sees the same K, since it only changes in the barrier action
+                if (roundsSinceAveraging >= averageEveryBatches || round == numRounds - 1) {
+                    averager.submit(workerIndex, replica, roundsSinceAveraging, examplesSinceAveraging);
+                    barrier.await();
+                    averager.copyAverageInto(replica);
+                    roundsSinceAveraging = 0;
+                    examplesSinceAveraging = 0;
+                }
+            }
+            return this;
+        }
+
+        private void trainBatch(DataSet batch, boolean trackLoss) {
+            examplesSinceAveraging += batch.numRows();
+            ExecutionContext context = replica.trainForward(batch);
+            if (trackLoss) {
+                totalLoss += replica.getLossFunction().calcLoss(context.getOutputs(), batch.getLabels()) * batch.numRows();
+                numExamples += batch.numRows();
+            }
+            List<SynMatrix> gradients = GradientDescentTrainer.calcGradients(replica, context, batch.getLabels(),
+                    deltaCalculator, gradientCalculator);
+            replica.setLayers(GradientDescentTrainer.updateParameters(replica.getLayers(), gradients, batch.numRows(),
+                    optimizationStrategy, weightAdjuster));
+        }
+    }
+
+    /** K, the number of batches each worker trains between averagings. Changes over time if an interval is set. */
+    public int getAverageEveryBatches() {
+        return averageEveryBatches;
+    }
+
+    /**
+     * Average on a time interval instead of a fixed number of batches: after each averaging, K is set to the number
+     * of batches that took about this long. Zero goes back to a fixed K.
+     */
+    public void setAveragingInterval(long interval, TimeUnit unit) {
+        if (interval < 0) throw new IllegalArgumentException("interval can't be negative: " + interval);
+        this.averagingIntervalNanos = unit.toNanos(interval);
+    }
+
+    public BatchingStrategy getBatchingStrategy() {
+        return batchingStrategy;
+    }
+
+    public HaltingStrategy getHaltingStrategy() {
+        return haltingStrategy;
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public DeltaCalculator getDeltaCalculator() {
+        return deltaCalculator;
+    }
+
+    public void setDeltaCalculator(DeltaCalculator deltaCalculator) {
+        this.deltaCalculator = deltaCalculator;
+    }
+
+    public GradientCalculator getGradientCalculator() {
+        return gradientCalculator;
+    }
+
+    public void setGradientCalculator(GradientCalculator gradientCalculator) {
+        this.gradientCalculator = gradientCalculator;
+    }
+
+    public WeightAdjuster getWeightAdjuster() {
+        return weightAdjuster;
+    }
+
+    /** Regularizes each replica's weights before its steps, as in GradientDescentTrainer. Shared by the workers. */
+    public void setWeightAdjuster(WeightAdjuster weightAdjuster) {
+        this.weightAdjuster = weightAdjuster;
+    }
+}
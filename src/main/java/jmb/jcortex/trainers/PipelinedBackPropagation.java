@@ -0,0 +1,106 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BiFunction;
+
+/**
+ * Backpropagation as a pipeline of per-layer tasks. The deltas are still propagated back one layer at a time on
+ * the calling thread, but each layer's gradient is computed on a worker thread as soon as its deltas are known,
+ * alongside the propagation of the earlier layers. With an OptimizationStrategy that supports layer corrections,
+ * each layer is also corrected and updated as soon as its gradient is ready and the delta propagation has finished
+ * reading its weights.
+ */
+class PipelinedBackPropagation {
+
+    private final int numThreads;
+    private final ThreadPoolExecutor workers;
+
+    PipelinedBackPropagation(int numThreads) {
+        this.numThreads = numThreads;
+        workers = TrainerThreads.newPool("backprop", numThreads);
+    }
+
+    int getNumThreads() {
+        return numThreads;
+    }
+
+    /** Returns the mean gradient of every layer, computing each on a worker as soon as its deltas are known. */
+    List<SynMatrix> calcGradients(NeuralNet neuralNet, ExecutionContext context, SynMatrix labels,
+                                  DeltaCalculator deltaCalculator, GradientCalculator gradientCalculator) {
+        int numLayers = neuralNet.getLayers().size();
+        List<CompletableFuture<SynMatrix>> gradients = new ArrayList<>(numLayers);
+        for (int i = 0; i < numLayers; i++) {
+            gradients.add(null);
+        }
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        deltaCalculator.calcDeltas(context, labels, neuralNet, (deltas, layer) -> {
+            // Read on this thread, since a checkpointed context may have to recompute them
+            SynMatrix inputs = nodeValues.get(layer);
+            gradients.set(layer, CompletableFuture.supplyAsync(() -> gradientCalculator.calcGradient(deltas, inputs), workers));
+        });
+        List<SynMatrix> results = new ArrayList<>(numLayers);
+        for (CompletableFuture<SynMatrix> gradient : gradients) {
+            results.add(TrainerThreads.join(gradient));
+        }
+        return results;
+    }
+
+    /**
+     * Backpropagates and updates every layer, returning the new layers. update is given each layer's weights and
+     * correction and returns the updated weights. A layer's update waits for the delta propagation to finish
+     * reading its weights, which happens just before the deltas of the layer below it are known.
+     */
+    List<SynMatrix> backPropagate(NeuralNet neuralNet, ExecutionContext context, SynMatrix labels,
+                                  DeltaCalculator deltaCalculator, GradientCalculator gradientCalculator,
+                                  OptimizationStrategy optimizationStrategy,
+                                  BiFunction<SynMatrix, SynMatrix, SynMatrix> update) {
+        List<SynMatrix> layers = neuralNet.getLayers();
+        int numLayers = layers.size();
+        List<CompletableFuture<Void>> weightsReleased = new ArrayList<>(numLayers);
+        for (int i = 0; i < numLayers; i++) {
+            weightsReleased.add(new CompletableFuture<>());
+        }
+        // The first layer's weights aren't needed to propagate deltas
+        weightsReleased.get(0).complete(null);
+        SynMatrix[] newLayers = new SynMatrix[numLayers];
+        List<CompletableFuture<Void>> updates = new ArrayList<>(numLayers);
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        try {
+            deltaCalculator.calcDeltas(context, labels, neuralNet, (deltas, layer) -> {
+                if (layer + 1 < numLayers) {
+                    weightsReleased.get(layer + 1).complete(null);
+                }
+                SynMatrix inputs = nodeValues.get(layer);
+                updates.add(CompletableFuture
+                        .supplyAsync(() -> gradientCalculator.calcGradient(deltas, inputs), workers)
+                        .thenApply(gradient -> optimizationStrategy.calcCorrection(layer, gradient))
+                        .thenAcceptBothAsync(weightsReleased.get(layer), (correction, released) ->
+                                newLayers[layer] = update.apply(layers.get(layer), correction), workers));
+            });
+        } finally {
+            // If the propagation failed partway, the updates waiting on weights it never released fail too
+            for (CompletableFuture<Void> released : weightsReleased) {
+                released.completeExceptionally(new CancellationException("Backpropagation failed"));
+            }
+            // Wait for all the updates before any failure is rethrown, so none is left writing to the weights
+            CompletableFuture.allOf(updates.toArray(new CompletableFuture<?>[0])).exceptionally(failure -> null).join();
+        }
+        updates.forEach(TrainerThreads::join);
+        return Arrays.asList(newLayers);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worker pools of the multithreaded trainers, and rethrowing their tasks' failures on the calling thread.
+ */
+final class TrainerThreads {
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private TrainerThreads() {
+    }
+
+    /**
+     * Returns a fixed size pool of daemon threads named jcortex-name-pool-worker-thread. Idle threads exit, so an
+     * abandoned pool doesn't hold threads.
+     */
+    static ThreadPoolExecutor newPool(String name, int numThreads) {
+        int poolNumber = poolCount.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "jcortex-" + name + "-" + poolNumber + "-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /** Runs the tasks and returns their results in order, rethrowing the first failure. */
+    static <T> List<T> invokeAll(ExecutorService pool, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while training", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+        return results;
+    }
+
+    /** Waits for the future, rethrowing its failure as it was thrown. */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Returns a task's failure as an unchecked exception for the caller to throw. Errors are thrown from here, and
+     * checked exceptions are wrapped in an IllegalStateException.
+     */
+    static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) return (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sends gradients as IEEE half precision floats, 2 bytes instead of 8, with about 3 significant digits. Each block
+ * of values is first divided by its largest magnitude, sent as a float, since raw gradients are often smaller than
+ * the smallest normal half (about 6e-5) and would lose most of their precision.
+ */
+public class Float16GradientCompressor implements GradientCompressor {
+
+    static final int BLOCK_VALUES = 256;
+
+    @Override
+    public void write(DataOutputStream out, double[] values, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Float.BYTES + BLOCK_VALUES * 2);
+        for (int start = from; start < to; start += BLOCK_VALUES) {
+            int end = Math.min(to, start + BLOCK_VALUES);
+            float scale = (float) maxMagnitude(values, start, end);
+            bytes.clear();
+            bytes.putFloat(scale);
+            for (int i = start; i < end; i++) {
+                bytes.putShort(toHalf(scale == 0 ? 0 : (float) (values[i] / scale)));
+            }
+            out.write(bytes.array(), 0, bytes.position());
+        }
+    }
+
+    @Override
+    public void read(DataInputStream in, double[] values, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Float.BYTES + BLOCK_VALUES * 2);
+        for (int start = from; start < to; start += BLOCK_VALUES) {
+            int end = Math.min(to, start + BLOCK_VALUES);
+            in.readFully(bytes.array(), 0, Float.BYTES + (end - start) * 2);
+            bytes.clear();
+            double scale = bytes.getFloat();
+            for (int i = start; i < end; i++) {
+                values[i] = fromHalf(bytes.getShort()) * scale;
+            }
+        }
+    }
+
+    static double maxMagnitude(double[] values, int from, int to) {
+        double max = 0;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, Math.abs(values[i]));
+        }
+        return max;
+    }
+
+    /** Rounds to the nearest half precision value, ties to even. */
+    static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int floatExponent = (bits >>> 23) & 0xff;
+        int mantissa = bits & 0x7fffff;
+        if (floatExponent == 0xff) {
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        int exponent = floatExponent - 127 + 15;
+        if (exponent >= 0x1f) {
+            return (short) (sign | 0x7c00);
+        }
+        if (exponent <= 0) {
+            // Subnormal half, or zero
+            if (exponent < -10) return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            return (short) (sign | roundShift(mantissa, shift));
+        }
+        // A carry out of the mantissa correctly rounds up into the exponent, or to infinity
+        return (short) (sign | (roundShift((exponent << 23) | mantissa, 13)));
+    }
+
+    private static int roundShift(int value, int shift) {
+        int result = value >>> shift;
+        int remainder = value & ((1 << shift) - 1);
+        int halfway = 1 << (shift - 1);
+        if (remainder > halfway || (remainder == halfway && (result & 1) != 0)) {
+            result++;
+        }
+        return result;
+    }
+
+    static float fromHalf(short half) {
+        int bits = half & 0xffff;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f;
+            return sign != 0 ? -value : value;
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+    /** A decoded block's largest value is exactly its scale, so re-encoding gives the same scale and halves. */
+    @Override
+    public boolean isExactlyReencodable() {
+        return true;
+    }
+}
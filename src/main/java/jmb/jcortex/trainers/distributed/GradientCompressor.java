@@ -0,0 +1,40 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes gradients for the wire between training processes, trading some precision for fewer bytes. The sender
+ * and receiver must use the same implementation, which is checked when a worker connects.
+ * <p>
+ * write() may keep state between calls, such as the error feedback of TopKGradientCompressor, so each sender needs
+ * its own instance. read() must not keep state, so one instance can read from many senders at once.
+ */
+public interface GradientCompressor {
+
+    /** Writes values[from] up to values[to] to the stream. */
+    void write(DataOutputStream out, double[] values, int from, int to) throws IOException;
+
+    /** Reads the values written by write() into values[from] up to values[to]. */
+    void read(DataInputStream in, double[] values, int from, int to) throws IOException;
+
+    /**
+     * True if write() keeps no state and encoding values that were just decoded gives back exactly the same
+     * values, so a chunk can be forwarded by re-encoding it. RingAllReducer only accepts compressors for which
+     * this is true.
+     */
+    default boolean isExactlyReencodable() {
+        return false;
+    }
+
+    /** Identifies the encoding, so mismatched senders and receivers fail when they connect. */
+    default String getName() {
+        return getClass().getName();
+    }
+}
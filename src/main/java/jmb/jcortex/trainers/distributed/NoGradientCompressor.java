@@ -0,0 +1,30 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/** Sends gradients as full precision doubles. The default. */
+public class NoGradientCompressor implements GradientCompressor {
+
+    @Override
+    public void write(DataOutputStream out, double[] values, int from, int to) throws IOException {
+        ParameterStreams.write(out, values, from, to);
+    }
+
+    @Override
+    public void read(DataInputStream in, double[] values, int from, int to) throws IOException {
+        ParameterStreams.read(in, values, from, to);
+    }
+
+    /** Doubles decode to themselves. */
+    @Override
+    public boolean isExactlyReencodable() {
+        return true;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.ParameterBuffer;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Holds the master copy of a NeuralNet's weights for ParameterServerWorkers, which may run in other JVMs, training
+ * on their own shards of the data. Each worker pushes the gradients of a batch over a socket and gets the current
+ * weights back. The server owns the OptimizationStrategy, so there is a single optimizer state.
+ * <p>
+ * Two modes:
+ * <ul>
+ *     <li>synchronous(): each round waits for one push from every worker still training, then applies the
+ *     example weighted mean of their gradients as one step. Every worker then continues from the same weights,
+ *     as with one large batch.</li>
+ *     <li>boundedStaleness(): each push is applied as soon as it arrives, so fast workers don't wait for slow ones,
+ *     but a worker is held back when it gets more than maxStaleness pushes ahead of the slowest worker.</li>
+ * </ul>
+ * Workers that finish drop out of both counts. Call start(), give the workers getPort(), then awaitCompletion().
+ * <p>
+ * A worker gets the full weights once, when it connects. After each push it is sent only the change since the
+ * weights it last received, encoded with the weight compressor. The server keeps each worker's copy as the worker
+ * decoded it, so anything the compressor dropped is still in the next change sent, rather than lost.
+ */
+public class ParameterServer implements AutoCloseable {
+
+    static final int MAGIC = 0x4A435053;
+    static final int VERSION = 2;
+    static final byte PUSH = 1;
+    static final byte DONE = 2;
+
+    private final NeuralNet neuralNet;
+    private final OptimizationStrategy optimizationStrategy;
+    private final int numWorkers;
+    private final boolean synchronous;
+    private final int maxStaleness;
+
+    private final List<SynMatrix> gradients;
+    private final ParameterBuffer parameters;
+    private final ParameterBuffer roundGradients;
+    private GradientCompressor gradientCompressor = new NoGradientCompressor();
+    private Supplier<? extends GradientCompressor> weightCompressors = NoGradientCompressor::new;
+    private ServerSocket serverSocket;
+
+    // Guarded by this
+    private final int[] pushCounts;
+    private final boolean[] finished;
+    private int numAccepted = 0;
+    private int numFinished = 0;
+    private long version = 0;
+    private int roundPushes = 0;
+    private int roundExamples = 0;
+    private IOException failure;
+
+    /** All workers push once per round, and their mean gradient is applied as one step. */
+    public static ParameterServer synchronous(NeuralNet neuralNet, OptimizationStrategy optimizationStrategy,
+                                              int numWorkers) {
+        return new ParameterServer(neuralNet, optimizationStrategy, numWorkers, true, 0);
+    }
+
+    /** Each push is applied as it arrives. No worker gets more than maxStaleness pushes ahead of the slowest. */
+    public static ParameterServer boundedStaleness(NeuralNet neuralNet, OptimizationStrategy optimizationStrategy,
+                                                   int numWorkers, int maxStaleness) {
+        if (maxStaleness < 0) throw new IllegalArgumentException("maxStaleness can't be negative: " + maxStaleness);
+        return new ParameterServer(neuralNet, optimizationStrategy, numWorkers, false, maxStaleness);
+    }
+
+    private ParameterServer(NeuralNet neuralNet, OptimizationStrategy optimizationStrategy, int numWorkers,
+                            boolean synchronous, int maxStaleness) {
+        if (numWorkers < 1) throw new IllegalArgumentException("numWorkers must be positive: " + numWorkers);
+        this.neuralNet = neuralNet;
+        this.optimizationStrategy = optimizationStrategy;
+        this.numWorkers = numWorkers;
+        this.synchronous = synchronous;
+        this.maxStaleness = maxStaleness;
+        this.parameters = neuralNet.getParameters();
+        this.roundGradients = ParameterBuffer.shapedLike(neuralNet.getLayers());
+        this.gradients = roundGradients.toMatrices();
+        this.pushCounts = new int[numWorkers];
+        this.finished = new boolean[numWorkers];
+    }
+
+    /**
+     * Sets how workers encode the gradients they push. Workers must use the same kind of compressor. Call before
+     * start().
+     */
+    public ParameterServer withGradientCompressor(GradientCompressor gradientCompressor) {
+        this.gradientCompressor = gradientCompressor;
+        return this;
+    }
+
+    /**
+     * Sets how the changes to the weights are encoded for the workers, with one compressor from the supplier per
+     * worker. Workers must read with the same kind of compressor. Call before start().
+     */
+    public ParameterServer withWeightCompressor(Supplier<? extends GradientCompressor> weightCompressors) {
+        this.weightCompressors = weightCompressors;
+        return this;
+    }
+
+    /** Starts listening on the loopback address. Port 0 picks a free port (see getPort()). */
+    public ParameterServer start(int port) throws IOException {
+        return start(new ServerSocket(port, numWorkers, InetAddress.getLoopbackAddress()));
+    }
+
+    /** Starts accepting workers on an already bound socket, for example one bound to an external interface. */
+    public ParameterServer start(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+        Thread acceptor = new Thread(this::acceptWorkers, "jcortex-parameter-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits for every worker to connect and finish, then returns the NeuralNet holding the trained weights. Throws
+     * the first connection failure, if any.
+     */
+    public synchronized NeuralNet awaitCompletion() throws IOException, InterruptedException {
+        while (numFinished < numWorkers) {
+            wait();
+        }
+        if (failure != null) throw failure;
+        return neuralNet;
+    }
+
+    /** The number of optimizer steps taken so far. */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) serverSocket.close();
+    }
+
+    private void acceptWorkers() {
+        try {
+            for (int workerId = 0; workerId < numWorkers; workerId++) {
+                Socket socket = serverSocket.accept();
+                synchronized (this) {
+                    numAccepted++;
+                }
+                int id = workerId;
+                Thread connection = new Thread(() -> serveWorker(id, socket), "jcortex-parameter-server-" + id);
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (!serverSocket.isClosed()) {
+                    failure = e;
+                }
+                // Workers that never connected can't finish, so stop waiting for them
+                for (int id = numAccepted; id < numWorkers; id++) {
+                    finish(id);
+                }
+            }
+        }
+    }
+
+    private void serveWorker(int workerId, Socket socket) {
+        ParameterBuffer pushed = ParameterBuffer.shapedLike(gradients);
+        ParameterBuffer reply = ParameterBuffer.shapedLike(gradients);
+        WeightUpdates weightUpdates = new WeightUpdates(weightCompressors.get(), reply.size());
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            s.setTcpNoDelay(true);
+            if (in.readInt() != MAGIC) throw new IOException("Not a parameter server worker");
+            int workerVersion = in.readInt();
+            if (workerVersion != VERSION) throw new IOException("Unsupported protocol version: " + workerVersion);
+            int size = in.readInt();
+            if (size != parameters.size()) {
+                throw new IOException("Worker has " + size + " parameters, but the server has " + parameters.size());
+            }
+            String compressorName = in.readUTF();
+            if (!compressorName.equals(gradientCompressor.getName())) {
+                throw new IOException("Worker compresses gradients with " + compressorName + ", but the server expects "
+                        + gradientCompressor.getName());
+            }
+            String weightCompressorName = in.readUTF();
+            if (!weightCompressorName.equals(weightUpdates.compressor.getName())) {
+                throw new IOException("Worker decompresses weights with " + weightCompressorName
+                        + ", but the server sends " + weightUpdates.compressor.getName());
+            }
+            synchronized (this) {
+                parameters.copyInto(reply);
+            }
+            out.writeInt(MAGIC);
+            ParameterStreams.write(out, reply);
+            out.flush();
+            weightUpdates.sent(reply);
+            while (in.readByte() == PUSH) {
+                int numExamples = in.readInt();
+                gradientCompressor.read(in, pushed.getData(), 0, pushed.size());
+                push(workerId, pushed, numExamples, reply);
+                weightUpdates.write(out, reply);
+                out.flush();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (failure == null) failure = e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                finish(workerId);
+            }
+        }
+    }
+
+    /** Applies or accumulates the worker's mean gradient, waits as the mode requires, and copies out the weights. */
+    private synchronized void push(int workerId, ParameterBuffer pushed, int numExamples, ParameterBuffer reply)
+            throws InterruptedException {
+        if (synchronous) {
+            long round = version;
+            roundGradients.plusInPlace(pushed.scaleInPlace(numExamples));
+            roundExamples += numExamples;
+            roundPushes++;
+            completeRoundIfReady();
+            while (version == round) {
+                wait();
+            }
+        } else {
+            applyGradients(pushed);
+            pushCounts[workerId]++;
+            notifyAll();
+            while (pushCounts[workerId] - slowestPushCount() > maxStaleness) {
+                wait();
+            }
+        }
+        parameters.copyInto(reply);
+    }
+
+    private void completeRoundIfReady() {
+        if (synchronous && roundPushes > 0 && roundPushes >= numWorkers - numFinished) {
+            applyGradients(roundGradients.scaleInPlace(1.0 / roundExamples));
+            roundGradients.scaleInPlace(0);
+            roundPushes = 0;
+            roundExamples = 0;
+            notifyAll();
+        }
+    }
+
+    private void applyGradients(ParameterBuffer meanGradients) {
+        meanGradients.scatter(gradients);
+        List<SynMatrix> corrections = optimizationStrategy.calcCorrections(gradients);
+        List<SynMatrix> layers = new ArrayList<>(neuralNet.getLayers());
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).minusInPlace(corrections.get(i));
+        }
+        parameters.gather(layers);
+        version++;
+    }
+
+    /**
+     * Sends a worker the change from the weights it holds to the current weights, and tracks what it holds by
+     * decoding each change just as the worker will.
+     */
+    private static class WeightUpdates {
+        final GradientCompressor compressor;
+        private final double[] workerWeights;
+        private final double[] change;
+        private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        WeightUpdates(GradientCompressor compressor, int size) {
+            this.compressor = compressor;
+            this.workerWeights = new double[size];
+            this.change = new double[size];
+        }
+
+        void sent(ParameterBuffer weights) {
+            System.arraycopy(weights.getData(), 0, workerWeights, 0, workerWeights.length);
+        }
+
+        void write(DataOutputStream out, ParameterBuffer weights) throws IOException {
+            double[] current = weights.getData();
+            for (int i = 0; i < change.length; i++) {
+                change[i] = current[i] - workerWeights[i];
+            }
+            encoded.reset();
+            compressor.write(new DataOutputStream(encoded), change, 0, change.length);
+            compressor.read(new DataInputStream(new ByteArrayInputStream(encoded.toByteArray())), change, 0,
+                    change.length);
+            applyChange(workerWeights, change);
+            encoded.writeTo(out);
+        }
+    }
+
+    /** Adds a change sent by WeightUpdates to the weights, the same way on the server and the worker. */
+    static void applyChange(double[] weights, double[] change) {
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] += change[i];
+        }
+    }
+
+    private int slowestPushCount() {
+        int slowest = Integer.MAX_VALUE;
+        for (int id = 0; id < numWorkers; id++) {
+            if (!finished[id]) slowest = Math.min(slowest, pushCounts[id]);
+        }
+        return slowest;
+    }
+
+    private void finish(int workerId) {
+        if (finished[workerId]) return;
+        finished[workerId] = true;
+        numFinished++;
+        // The remaining workers may have been waiting on this one
+        completeRoundIfReady();
+        notifyAll();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.ParameterBuffer;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.BatchedDataSet;
+import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
+import jmb.jcortex.trainers.DeltaCalculator;
+import jmb.jcortex.trainers.GradientCalculator;
+import jmb.jcortex.trainers.SupervisedTrainer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Trains on one shard of the data against a ParameterServer, typically in its own JVM. For each batch it computes
+ * the mean gradients, pushes them to the server, and continues from the weights the server sends back. It runs a
+ * fixed number of passes over its shard. The neural net must have the same shape as the server's, but its starting
+ * weights are replaced by the server's. After the first weights, the server sends only the changes to them, encoded
+ * with the weight compressor.
+ */
+public class ParameterServerWorker implements SupervisedTrainer {
+
+    private final String host;
+    private final int port;
+    private final BatchingStrategy batchingStrategy;
+    private final int iterations;
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+    private GradientCompressor gradientCompressor = new NoGradientCompressor();
+    private GradientCompressor weightCompressor = new NoGradientCompressor();
+
+    public ParameterServerWorker(String host, int port, BatchingStrategy batchingStrategy, int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        this.host = host;
+        this.port = port;
+        this.batchingStrategy = batchingStrategy;
+        this.iterations = iterations;
+    }
+
+    /** Trains on the shard and returns the neural net holding the last weights received from the server. */
+    @Override
+    public NeuralNet train(NeuralNet neuralNet, DataSet shard) {
+        ParameterBuffer parameters = neuralNet.getParameters();
+        ParameterBuffer gradientBuffer = ParameterBuffer.shapedLike(neuralNet.getLayers());
+        double[] change = new double[parameters.size()];
+        try (Socket socket = new Socket(host, port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            out.writeInt(ParameterServer.MAGIC);
+            out.writeInt(ParameterServer.VERSION);
+            out.writeInt(parameters.size());
+            out.writeUTF(gradientCompressor.getName());
+            out.writeUTF(weightCompressor.getName());
+            out.flush();
+            if (in.readInt() != ParameterServer.MAGIC) throw new IOException("Not a parameter server: " + host + ":" + port);
+            ParameterStreams.read(in, parameters);
+            neuralNet.setParameters(parameters);
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                BatchedDataSet batches = batchingStrategy.getBatchedDataSet(shard);
+                while (batches.hasNext()) {
+                    DataSet batch = batches.getNextBatch();
+                    ExecutionContext context = neuralNet.trainForward(batch);
+                    List<SynMatrix> gradients = calcGradients(neuralNet, context, batch.getLabels());
+                    out.writeByte(ParameterServer.PUSH);
+                    out.writeInt(batch.numRows());
+                    gradientCompressor.write(out, gradientBuffer.gather(gradients).getData(), 0, gradientBuffer.size());
+                    out.flush();
+                    weightCompressor.read(in, change, 0, change.length);
+                    ParameterServer.applyChange(parameters.getData(), change);
+                    neuralNet.setParameters(parameters);
+                }
+            }
+            out.writeByte(ParameterServer.DONE);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Parameter server connection failed", e);
+        }
+        return neuralNet;
+    }
+
+    /**
+     * With activation checkpointing, computes each layer's gradient as its deltas are known, so the deltas of every
+     * layer are never held at once and each segment is recomputed only once.
+     */
+    private List<SynMatrix> calcGradients(NeuralNet neuralNet, ExecutionContext context, SynMatrix labels) {
+        if (context.recomputesActivations()) {
+            return gradientCalculator.calcGradients(context, labels, neuralNet, deltaCalculator);
+        }
+        List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, labels, neuralNet);
+        return gradientCalculator.calcGradients(deltas, context.getNodeValues());
+    }
+
+    public BatchingStrategy getBatchingStrategy() {
+        return batchingStrategy;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public GradientCompressor getGradientCompressor() {
+        return gradientCompressor;
+    }
+
+    /** Sets how pushed gradients are encoded. Must match the server's. Each worker needs its own instance. */
+    public void setGradientCompressor(GradientCompressor gradientCompressor) {
+        this.gradientCompressor = gradientCompressor;
+    }
+
+    public GradientCompressor getWeightCompressor() {
+        return weightCompressor;
+    }
+
+    /** Sets how the changes to the weights sent by the server are decoded. Must match the server's. */
+    public void setWeightCompressor(GradientCompressor weightCompressor) {
+        this.weightCompressor = weightCompressor;
+    }
+
+    public DeltaCalculator getDeltaCalculator() {
+        return deltaCalculator;
+    }
+
+    public void setDeltaCalculator(DeltaCalculator deltaCalculator) {
+        this.deltaCalculator = deltaCalculator;
+    }
+
+    public GradientCalculator getGradientCalculator() {
+        return gradientCalculator;
+    }
+
+    public void setGradientCalculator(GradientCalculator gradientCalculator) {
+        this.gradientCalculator = gradientCalculator;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.ParameterBuffer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+/**
+ * Reads and writes ParameterBuffers, or ranges of their arrays, on a socket stream as big-endian doubles, converted
+ * in blocks rather than one writeDouble() call per value. Blocks also let a receiver start on the first values of a
+ * large range while the rest are still arriving.
+ */
+final class ParameterStreams {
+
+    private static final int BLOCK_VALUES = 8192;
+
+    private ParameterStreams() {
+    }
+
+    static void write(DataOutputStream out, double[] values, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Math.min(to - from, BLOCK_VALUES) * Double.BYTES);
+        for (int start = from; start < to; start += BLOCK_VALUES) {
+            int length = Math.min(to - start, BLOCK_VALUES);
+            bytes.clear();
+            bytes.asDoubleBuffer().put(values, start, length);
+            out.write(bytes.array(), 0, length * Double.BYTES);
+        }
+    }
+
+    static void write(DataOutputStream out, ParameterBuffer buffer) throws IOException {
+        write(out, buffer.getData(), 0, buffer.size());
+    }
+
+    static void read(DataInputStream in, double[] values, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Math.min(to - from, BLOCK_VALUES) * Double.BYTES);
+        for (int start = from; start < to; start += BLOCK_VALUES) {
+            int length = Math.min(to - start, BLOCK_VALUES);
+            in.readFully(bytes.array(), 0, length * Double.BYTES);
+            bytes.clear();
+            bytes.asDoubleBuffer().get(values, start, length);
+        }
+    }
+
+    /** Reads values[from] up to values[to] and adds them to the values already there. */
+    static void readAndAdd(DataInputStream in, double[] values, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Math.min(to - from, BLOCK_VALUES) * Double.BYTES);
+        for (int start = from; start < to; start += BLOCK_VALUES) {
+            int length = Math.min(to - start, BLOCK_VALUES);
+            in.readFully(bytes.array(), 0, length * Double.BYTES);
+            DoubleBuffer received = ByteBuffer.wrap(bytes.array(), 0, length * Double.BYTES).asDoubleBuffer();
+            for (int i = 0; i < length; i++) {
+                values[start + i] += received.get(i);
+            }
+        }
+    }
+
+    static void read(DataInputStream in, ParameterBuffer buffer) throws IOException {
+        read(in, buffer.getData(), 0, buffer.size());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.ParameterBuffer;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.BatchedDataSet;
+import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+import jmb.jcortex.trainers.DeltaCalculator;
+import jmb.jcortex.trainers.GradientCalculator;
+import jmb.jcortex.trainers.SupervisedTrainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Synchronous data-parallel training over a RingAllReducer, with one worker per peer, each training on its own
+ * shard of the data. Every batch's gradients are summed across the ring and each worker applies the same example
+ * weighted mean with its own copy of the OptimizationStrategy, so the weights stay identical on every peer without
+ * a parameter server.
+ * <p>
+ * Each layer's gradient is sent as soon as backpropagation reaches it, from the output layer back, so the
+ * reductions of the later layers overlap the backpropagation of the earlier ones. Every peer must run the same
+ * number of batches in each iteration, which is checked at the start of each iteration. Every worker starts from
+ * the weights of the peer with rank 0, whatever weights it was given.
+ * <p>
+ * The gradients are sent with the ring's GradientCompressor (see RingAllReducer.connect()), and every peer still
+ * ends each step with the same weights. The example counts and the starting weights are always sent exactly.
+ */
+public class RingAllReduceWorker implements SupervisedTrainer {
+
+    private final RingAllReducer ring;
+    private final BatchingStrategy batchingStrategy;
+    private final OptimizationStrategy optimizationStrategy;
+    private final int iterations;
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+
+    public RingAllReduceWorker(RingAllReducer ring, BatchingStrategy batchingStrategy,
+                               OptimizationStrategy optimizationStrategy, int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        this.ring = ring;
+        this.batchingStrategy = batchingStrategy;
+        this.optimizationStrategy = optimizationStrategy;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public NeuralNet train(NeuralNet neuralNet, DataSet shard) {
+        broadcastRankZerosWeights(neuralNet);
+
+        ParameterBuffer gradientBuffer = ParameterBuffer.shapedLike(neuralNet.getLayers());
+        List<SynMatrix> gradients = gradientBuffer.toMatrices();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            BatchedDataSet batches = batchingStrategy.getBatchedDataSet(shard);
+            checkSameNumberOfBatches(batches.size());
+            while (batches.hasNext()) {
+                trainBatch(neuralNet, batches.getNextBatch(), gradientBuffer, gradients);
+            }
+        }
+        return neuralNet;
+    }
+
+    private void trainBatch(NeuralNet neuralNet, DataSet batch, ParameterBuffer gradientBuffer,
+                            List<SynMatrix> gradients) {
+        double[] numExamples = {batch.numRows()};
+        List<CompletableFuture<Void>> reductions = new ArrayList<>();
+        reductions.add(ring.allReduceAsync(numExamples, 0, 1));
+
+        ExecutionContext context = neuralNet.trainForward(batch);
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        double[] gradientData = gradientBuffer.getData();
+        deltaCalculator.calcDeltas(context, batch.getLabels(), neuralNet, (deltas, layer) -> {
+            SynMatrix gradient = gradientCalculator.calcGradient(deltas, nodeValues.get(layer));
+            // Summed, not averaged, over the batch, so batches of different sizes combine correctly
+            gradient.elementMultInPlace(batch.numRows()).copyTo(gradientData, gradientBuffer.offset(layer));
+            reductions.add(ring.allReduceCompressedAsync(gradientData, gradientBuffer.offset(layer),
+                    gradientBuffer.offset(layer + 1)));
+        });
+        join(reductions);
+
+        gradientBuffer.scaleInPlace(1.0 / numExamples[0]).scatter(gradients);
+        List<SynMatrix> corrections = optimizationStrategy.calcCorrections(gradients);
+        List<SynMatrix> layers = neuralNet.getLayers();
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).minusInPlace(corrections.get(i));
+        }
+    }
+
+    /**
+     * Replaces the weights with those of rank 0, as a sum in which every other peer contributes zeros. Averaging
+     * the peers' weights instead would shrink the spread of independently initialized weights by up to sqrt(n).
+     */
+    private void broadcastRankZerosWeights(NeuralNet neuralNet) {
+        ParameterBuffer parameters = neuralNet.getParameters();
+        if (ring.getRank() != 0) {
+            Arrays.fill(parameters.getData(), 0);
+        }
+        ring.allReduce(parameters.getData(), 0, parameters.size());
+        neuralNet.setParameters(parameters);
+    }
+
+    /** n * sum(b^2) == sum(b)^2 only when every peer's b is the same. A mismatch would otherwise deadlock the ring. */
+    private void checkSameNumberOfBatches(int numBatches) {
+        double[] counts = {numBatches, (double) numBatches * numBatches};
+        ring.allReduce(counts);
+        if (ring.getWorldSize() * counts[1] != counts[0] * counts[0]) {
+            throw new IllegalStateException("Every worker must train the same number of batches per iteration, but "
+                    + "this worker has " + numBatches + " and the mean is " + counts[0] / ring.getWorldSize());
+        }
+    }
+
+    private static void join(List<CompletableFuture<Void>> reductions) {
+        try {
+            CompletableFuture.allOf(reductions.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public RingAllReducer getRing() {
+        return ring;
+    }
+
+    public BatchingStrategy getBatchingStrategy() {
+        return batchingStrategy;
+    }
+
+    public OptimizationStrategy getOptimizationStrategy() {
+        return optimizationStrategy;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public DeltaCalculator getDeltaCalculator() {
+        return deltaCalculator;
+    }
+
+    public void setDeltaCalculator(DeltaCalculator deltaCalculator) {
+        this.deltaCalculator = deltaCalculator;
+    }
+
+    public GradientCalculator getGradientCalculator() {
+        return gradientCalculator;
+    }
+
+    public void setGradientCalculator(GradientCalculator gradientCalculator) {
+        this.gradientCalculator = gradientCalculator;
+    }
+}
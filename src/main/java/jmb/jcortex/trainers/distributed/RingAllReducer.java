@@ -0,0 +1,310 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sums arrays of doubles across a ring of peers, typically one per JVM, with no central node. Each peer only sends
+ * to the next peer in the ring and receives from the previous one. A range is split into one chunk per peer and
+ * reduced in two passes: a reduce-scatter that leaves each peer with the full sum of one chunk, then an all-gather
+ * that passes the summed chunks around. Each peer sends and receives 2 * (n - 1) / n times the range per reduction,
+ * which stays roughly constant as peers are added.
+ * <p>
+ * Reductions run one at a time on a background thread, in the order they are submitted, so every peer must submit
+ * the same ranges in the same order. The sends of each step run on a second thread while the receives are summed,
+ * in blocks, as they arrive.
+ * <p>
+ * allReduceCompressedAsync() sends every hop of both passes with the ring's GradientCompressor, which must be
+ * exactly re-encodable (see GradientCompressor.isExactlyReencodable()), as Float16GradientCompressor and
+ * Int8GradientCompressor are, so every peer ends with identical sums. Others, such as TopKGradientCompressor, are
+ * rejected by connect(). Each summed chunk is
+ * rounded through the compressor by the peer that owns it before the all-gather, so the owner holds what the
+ * others receive. The sums lose the compressor's precision at each of the n - 1 additions.
+ */
+public class RingAllReducer implements AutoCloseable {
+
+    private static final int MAGIC = 0x4A435252;
+
+    private final int rank;
+    private final int worldSize;
+    private final Socket nextSocket;
+    private final Socket previousSocket;
+    private final DataOutputStream toNext;
+    private final DataInputStream fromPrevious;
+    private final ExecutorService reducer;
+    private final ExecutorService sender;
+    private final GradientCompressor compressor;
+    // Only used on the reducer thread
+    private double[] received = new double[0];
+
+    /**
+     * Joins the ring as peer number rank, listening on peers.get(rank) and connecting to the next peer. Waits up to
+     * timeoutMillis for the neighbouring peers to start.
+     */
+    public static RingAllReducer connect(int rank, List<InetSocketAddress> peers, long timeoutMillis) throws IOException {
+        return connect(rank, peers, timeoutMillis, new NoGradientCompressor());
+    }
+
+    /**
+     * As above, with the compressor used by allReduceCompressedAsync(). Every peer must use the same kind of
+     * compressor, which is checked when the peers connect. Throws an IllegalArgumentException if the compressor
+     * isn't exactly re-encodable.
+     */
+    public static RingAllReducer connect(int rank, List<InetSocketAddress> peers, long timeoutMillis,
+                                         GradientCompressor compressor) throws IOException {
+        try (ServerSocket listener = new ServerSocket()) {
+            listener.bind(peers.get(rank));
+            return connect(rank, listener, peers, timeoutMillis, compressor);
+        }
+    }
+
+    /** As above, but accepts the previous peer on an already bound socket, for example one bound to port 0. */
+    public static RingAllReducer connect(int rank, ServerSocket listener, List<InetSocketAddress> peers,
+                                         long timeoutMillis) throws IOException {
+        return connect(rank, listener, peers, timeoutMillis, new NoGradientCompressor());
+    }
+
+    public static RingAllReducer connect(int rank, ServerSocket listener, List<InetSocketAddress> peers,
+                                         long timeoutMillis, GradientCompressor compressor) throws IOException {
+        if (!compressor.isExactlyReencodable()) {
+            throw new IllegalArgumentException(compressor.getName() + " can't be used in a ring, since forwarding "
+                    + "its decoded chunks would change them");
+        }
+        int worldSize = peers.size();
+        if (rank < 0 || rank >= worldSize) throw new IllegalArgumentException("rank must be from 0 to " + (worldSize - 1) + ": " + rank);
+        if (worldSize == 1) {
+            return new RingAllReducer(rank, 1, null, null, compressor);
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Socket next = connectWithRetry(peers.get((rank + 1) % worldSize), deadline);
+        Socket previous = null;
+        try {
+            next.setTcpNoDelay(true);
+            DataOutputStream handshake = new DataOutputStream(next.getOutputStream());
+            handshake.writeInt(MAGIC);
+            handshake.writeInt(rank);
+            handshake.writeInt(worldSize);
+            handshake.writeUTF(compressor.getName());
+            handshake.flush();
+
+            listener.setSoTimeout((int) Math.max(1, deadline - System.currentTimeMillis()));
+            previous = listener.accept();
+            previous.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(previous.getInputStream());
+            int expectedRank = (rank + worldSize - 1) % worldSize;
+            if (in.readInt() != MAGIC) throw new IOException("Not a ring all-reduce peer");
+            int previousRank = in.readInt();
+            int previousWorldSize = in.readInt();
+            if (previousRank != expectedRank || previousWorldSize != worldSize) {
+                throw new IOException("Expected peer " + expectedRank + " of " + worldSize + ", but peer "
+                        + previousRank + " of " + previousWorldSize + " connected");
+            }
+            String previousCompressor = in.readUTF();
+            if (!previousCompressor.equals(compressor.getName())) {
+                throw new IOException("Peer " + previousRank + " compresses with " + previousCompressor
+                        + ", but this peer uses " + compressor.getName());
+            }
+            return new RingAllReducer(rank, worldSize, next, previous, compressor);
+        } catch (IOException | RuntimeException e) {
+            next.close();
+            if (previous != null) previous.close();
+            throw e;
+        }
+    }
+
+    private static Socket connectWithRetry(InetSocketAddress address, long deadline) throws IOException {
+        while (true) {
+            try {
+                return new Socket(address.getAddress(), address.getPort());
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new SocketTimeoutException("Timed out connecting to " + address);
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to " + address, interrupted);
+                }
+            }
+        }
+    }
+
+    private RingAllReducer(int rank, int worldSize, Socket nextSocket, Socket previousSocket,
+                           GradientCompressor compressor) throws IOException {
+        this.rank = rank;
+        this.worldSize = worldSize;
+        this.nextSocket = nextSocket;
+        this.previousSocket = previousSocket;
+        this.toNext = nextSocket == null ? null : new DataOutputStream(new BufferedOutputStream(nextSocket.getOutputStream()));
+        this.fromPrevious = previousSocket == null ? null : new DataInputStream(new BufferedInputStream(previousSocket.getInputStream()));
+        this.reducer = Executors.newSingleThreadExecutor(runnable -> newDaemonThread(runnable, "reducer"));
+        this.sender = Executors.newSingleThreadExecutor(runnable -> newDaemonThread(runnable, "sender"));
+        this.compressor = compressor;
+    }
+
+    private Thread newDaemonThread(Runnable runnable, String role) {
+        Thread thread = new Thread(runnable, "jcortex-ring-" + rank + "-" + role);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getWorldSize() {
+        return worldSize;
+    }
+
+    public GradientCompressor getCompressor() {
+        return compressor;
+    }
+
+    /** Replaces values[from] up to values[to] with their sums across every peer. */
+    public void allReduce(double[] values, int from, int to) {
+        try {
+            allReduceAsync(values, from, to).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public void allReduce(double[] values) {
+        allReduce(values, 0, values.length);
+    }
+
+    /**
+     * Queues a reduction of values[from] up to values[to] after any already queued. The range must not be touched
+     * until the future completes. Fails the future with an UncheckedIOException if the ring breaks.
+     */
+    public CompletableFuture<Void> allReduceAsync(double[] values, int from, int to) {
+        return reduceAsync(values, from, to, null);
+    }
+
+    /**
+     * As allReduceAsync(), but every hop is sent with the ring's compressor, so the sums are only as precise as
+     * the compressor. Meant for gradients, not for counts or weights that must be exact.
+     */
+    public CompletableFuture<Void> allReduceCompressedAsync(double[] values, int from, int to) {
+        return reduceAsync(values, from, to, compressor);
+    }
+
+    private CompletableFuture<Void> reduceAsync(double[] values, int from, int to, GradientCompressor codec) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                reduce(values, from, to, codec);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ring all-reduce failed", e);
+            }
+        }, reducer);
+    }
+
+    /** codec is null to send full precision doubles. */
+    private void reduce(double[] values, int from, int to, GradientCompressor codec) throws IOException {
+        if (worldSize == 1) return;
+        // Reduce-scatter: after step s, this peer holds the sum over s + 2 peers of chunk rank - s - 1
+        for (int step = 0; step < worldSize - 1; step++) {
+            exchange(values, from, to, chunk(rank - step), chunk(rank - step - 1), true, codec);
+        }
+        if (codec != null) {
+            // This peer now holds the full sum of chunk rank + 1
+            int owned = chunk(rank + 1);
+            roundTrip(codec, values, chunkStart(from, to, owned), chunkStart(from, to, owned + 1));
+        }
+        // All-gather: pass the fully summed chunks around the ring
+        for (int step = 0; step < worldSize - 1; step++) {
+            exchange(values, from, to, chunk(rank + 1 - step), chunk(rank - step), false, codec);
+        }
+    }
+
+    /** Replaces values[from] up to values[to] with what a peer would decode from them. */
+    private static void roundTrip(GradientCompressor codec, double[] values, int from, int to) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), values, from, to);
+        codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), values, from, to);
+    }
+
+    private void exchange(double[] values, int from, int to, int sendChunk, int receiveChunk, boolean add,
+                          GradientCompressor codec) throws IOException {
+        int sendStart = chunkStart(from, to, sendChunk);
+        int sendEnd = chunkStart(from, to, sendChunk + 1);
+        Future<?> send = sender.submit(() -> {
+            if (codec == null) {
+                ParameterStreams.write(toNext, values, sendStart, sendEnd);
+            } else {
+                codec.write(toNext, values, sendStart, sendEnd);
+            }
+            toNext.flush();
+            return null;
+        });
+        int receiveStart = chunkStart(from, to, receiveChunk);
+        int receiveEnd = chunkStart(from, to, receiveChunk + 1);
+        if (codec == null && add) {
+            ParameterStreams.readAndAdd(fromPrevious, values, receiveStart, receiveEnd);
+        } else if (codec == null) {
+            ParameterStreams.read(fromPrevious, values, receiveStart, receiveEnd);
+        } else if (add) {
+            readAndAdd(codec, values, receiveStart, receiveEnd);
+        } else {
+            codec.read(fromPrevious, values, receiveStart, receiveEnd);
+        }
+        try {
+            send.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void readAndAdd(GradientCompressor codec, double[] values, int from, int to) throws IOException {
+        if (received.length < to - from) received = new double[to - from];
+        codec.read(fromPrevious, received, 0, to - from);
+        for (int i = from; i < to; i++) {
+            values[i] += received[i - from];
+        }
+    }
+
+    private int chunk(int index) {
+        return Math.floorMod(index, worldSize);
+    }
+
+    private int chunkStart(int from, int to, int chunk) {
+        return from + (int) ((long) (to - from) * chunk / worldSize);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reducer.shutdownNow();
+        sender.shutdownNow();
+        if (nextSocket != null) nextSocket.close();
+        if (previousSocket != null) previousSocket.close();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sends only the largest fraction of each range's gradients by magnitude, as (index, float value) pairs, and zeros
+ * for the rest. Sending 1% of the values cuts the bytes about 100 times.
+ * <p>
+ * With error feedback, the part of each gradient that wasn't sent is kept and added to the next gradient for the
+ * same position, so small but consistent gradients still get through, a step or a few late. Error feedback is
+ * keyed by the position in the sender's array, so an instance belongs to one sender whose ranges don't move.
+ */
+public class TopKGradientCompressor implements GradientCompressor {
+
+    private static final int ENTRY_BYTES = Integer.BYTES + Float.BYTES;
+
+    private final double fraction;
+    private final boolean errorFeedback;
+    private double[] residuals = new double[0];
+    private double[] magnitudes = new double[0];
+
+    /** Sends the given fraction (0-1] of the values, with error feedback. */
+    public TopKGradientCompressor(double fraction) {
+        this(fraction, true);
+    }
+
+    public TopKGradientCompressor(double fraction, boolean errorFeedback) {
+        if (!(fraction > 0 && fraction <= 1)) throw new IllegalArgumentException("fraction must be in (0, 1]: " + fraction);
+        this.fraction = fraction;
+        this.errorFeedback = errorFeedback;
+    }
+
+    @Override
+    public void write(DataOutputStream out, double[] values, int from, int to) throws IOException {
+        int length = to - from;
+        double[] pending = values;
+        if (errorFeedback) {
+            if (residuals.length < to) residuals = Arrays.copyOf(residuals, to);
+            for (int i = from; i < to; i++) {
+                residuals[i] += values[i];
+            }
+            pending = residuals;
+        }
+        int k = (int) Math.min(length, Math.max(length > 0 ? 1 : 0, Math.ceil(length * fraction)));
+        double threshold = kthLargestMagnitude(pending, from, to, k);
+
+        ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES + k * ENTRY_BYTES);
+        bytes.putInt(k);
+        int sent = 0;
+        for (int i = from; i < to && sent < k; i++) {
+            if (Math.abs(pending[i]) >= threshold) {
+                float value = (float) pending[i];
+                bytes.putInt(i - from);
+                bytes.putFloat(value);
+                if (errorFeedback) {
+                    residuals[i] -= value;
+                }
+                sent++;
+            }
+        }
+        out.write(bytes.array(), 0, bytes.position());
+    }
+
+    @Override
+    public void read(DataInputStream in, double[] values, int from, int to) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > to - from) throw new IOException("Invalid number of values: " + count);
+        Arrays.fill(values, from, to, 0);
+        byte[] bytes = new byte[count * ENTRY_BYTES];
+        in.readFully(bytes);
+        ByteBuffer entries = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < count; i++) {
+            int index = entries.getInt();
+            if (index < 0 || index >= to - from) throw new IOException("Invalid index: " + index);
+            values[from + index] = entries.getFloat();
+        }
+    }
+
+    /** Quickselect over a scratch copy of the magnitudes. */
+    private double kthLargestMagnitude(double[] values, int from, int to, int k) {
+        int length = to - from;
+        if (k == 0) return Double.POSITIVE_INFINITY;
+        if (magnitudes.length < length) magnitudes = new double[length];
+        for (int i = 0; i < length; i++) {
+            magnitudes[i] = Math.abs(values[from + i]);
+        }
+        // The kth largest is at index length - k in ascending order
+        int target = length - k;
+        int left = 0;
+        int right = length - 1;
+        while (left < right) {
+            double pivot = magnitudes[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (magnitudes[i] < pivot) i++;
+                while (magnitudes[j] > pivot) j--;
+                if (i <= j) {
+                    double swap = magnitudes[i];
+                    magnitudes[i] = magnitudes[j];
+                    magnitudes[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return magnitudes[target];
+    }
+
+    public double getFraction() {
+        return fraction;
+    }
+
+    public boolean usesErrorFeedback() {
+        return errorFeedback;
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+/**
+ * Chooses the MatrixKernels implementation. This is the Java 17+ version from the multi-release jar. It uses the
+ * Vector API when the jdk.incubator.vector module has been added to the JVM (--add-modules jdk.incubator.vector)
+ * and falls back to the scalar loops otherwise.
+ */
+final class MatrixKernelsProvider {
+
+    static final MatrixKernels INSTANCE = create();
+
+    private static MatrixKernels create() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("jcortex.vectorKernels", "true"));
+        if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return new VectorMatrixKernels();
+        }
+        return new ScalarMatrixKernels();
+    }
+
+    private MatrixKernelsProvider() {}
+}
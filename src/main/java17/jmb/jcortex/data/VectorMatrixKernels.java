@@ -0,0 +1,251 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the kernels, using the widest vector shape the CPU supports (4 doubles on AVX2,
+ * 8 on AVX-512). Each loop handles whole vectors and finishes the remainder with scalar code. Kernels that don't
+ * benefit from vectorizing (e.g. argMaxInto, which has to track int indexes) are inherited from the scalar version.
+ */
+class VectorMatrixKernels extends ScalarMatrixKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public double sum(double[] data, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            sums = sums.add(DoubleVector.fromArray(SPECIES, data, i));
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + super.sum(data, i, toExclusive);
+    }
+
+    @Override
+    public double max(double[] data, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        DoubleVector maxes = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            maxes = maxes.max(DoubleVector.fromArray(SPECIES, data, i));
+        }
+        return Math.max(maxes.reduceLanes(VectorOperators.MAX), super.max(data, i, toExclusive));
+    }
+
+    @Override
+    public double sumSquaredDeviations(double[] data, int fromInclusive, int toExclusive, double mean) {
+        int i = fromInclusive;
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector deviations = DoubleVector.fromArray(SPECIES, data, i).sub(mean);
+            sums = deviations.fma(deviations, sums);
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + super.sumSquaredDeviations(data, i, toExclusive, mean);
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        int i = 0;
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            sums = DoubleVector.fromArray(SPECIES, a, aOffset + i).fma(DoubleVector.fromArray(SPECIES, b, bOffset + i), sums);
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + super.dot(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    @Override
+    public void addInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, target, targetOffset + i)
+                    .add(DoubleVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        super.addInto(target, targetOffset + i, source, sourceOffset + i, length - i);
+    }
+
+    @Override
+    public void subtractInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, target, targetOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        super.subtractInto(target, targetOffset + i, source, sourceOffset + i, length - i);
+    }
+
+    @Override
+    public void multiplyInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, target, targetOffset + i)
+                    .mul(DoubleVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        super.multiplyInto(target, targetOffset + i, source, sourceOffset + i, length - i);
+    }
+
+    @Override
+    public void maxInto(double[] target, int targetOffset, double[] source, int sourceOffset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, target, targetOffset + i)
+                    .max(DoubleVector.fromArray(SPECIES, source, sourceOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        super.maxInto(target, targetOffset + i, source, sourceOffset + i, length - i);
+    }
+
+    @Override
+    public void addSquaredDeviationsInto(double[] target, int targetOffset, double[] source, int sourceOffset,
+                                         double[] means, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector deviations = DoubleVector.fromArray(SPECIES, source, sourceOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, means, targetOffset + i));
+            deviations.fma(deviations, DoubleVector.fromArray(SPECIES, target, targetOffset + i))
+                    .intoArray(target, targetOffset + i);
+        }
+        super.addSquaredDeviationsInto(target, targetOffset + i, source, sourceOffset + i, means, length - i);
+    }
+
+    @Override
+    public void softMaxAccumulate(double[] maxes, double[] sums, int targetOffset, double[] source, int sourceOffset,
+                                  int length) {
+        // Branch free version of the scalar loop: one of the two exponents is always e^0
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector values = DoubleVector.fromArray(SPECIES, source, sourceOffset + i);
+            DoubleVector oldMaxes = DoubleVector.fromArray(SPECIES, maxes, targetOffset + i);
+            DoubleVector newMaxes = oldMaxes.max(values);
+            DoubleVector rescale = oldMaxes.sub(newMaxes).lanewise(VectorOperators.EXP);
+            DoubleVector exp = values.sub(newMaxes).lanewise(VectorOperators.EXP);
+            DoubleVector.fromArray(SPECIES, sums, targetOffset + i).fma(rescale, exp).intoArray(sums, targetOffset + i);
+            newMaxes.intoArray(maxes, targetOffset + i);
+        }
+        super.softMaxAccumulate(maxes, sums, targetOffset + i, source, sourceOffset + i, length - i);
+    }
+
+    @Override
+    public void softMaxNormalize(double[] data, int dataOffset, double[] maxes, double[] sums, int targetOffset,
+                                 int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, data, dataOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, maxes, targetOffset + i))
+                    .lanewise(VectorOperators.EXP)
+                    .div(DoubleVector.fromArray(SPECIES, sums, targetOffset + i))
+                    .intoArray(data, dataOffset + i);
+        }
+        super.softMaxNormalize(data, dataOffset + i, maxes, sums, targetOffset + i, length - i);
+    }
+
+    @Override
+    public void add(double[] data, int fromInclusive, int toExclusive, double value) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, data, i).add(value).intoArray(data, i);
+        }
+        super.add(data, i, toExclusive, value);
+    }
+
+    @Override
+    public void scale(double[] data, int fromInclusive, int toExclusive, double factor) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, data, i).mul(factor).intoArray(data, i);
+        }
+        super.scale(data, i, toExclusive, factor);
+    }
+
+    @Override
+    public void divide(double[] data, int fromInclusive, int toExclusive, double divisor) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, data, i).div(divisor).intoArray(data, i);
+        }
+        super.divide(data, i, toExclusive, divisor);
+    }
+
+    @Override
+    public void oneMinus(double[] data, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, data, i).neg().add(1.0).intoArray(data, i);
+        }
+        super.oneMinus(data, i, toExclusive);
+    }
+
+    @Override
+    public void sigmoid(double[] data, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector exp = DoubleVector.fromArray(SPECIES, data, i).neg().lanewise(VectorOperators.EXP);
+            DoubleVector.broadcast(SPECIES, 1.0).div(exp.add(1.0)).intoArray(data, i);
+        }
+        super.sigmoid(data, i, toExclusive);
+    }
+
+    @Override
+    public void sigmoidDerivative(double[] data, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector y = DoubleVector.fromArray(SPECIES, data, i);
+            y.mul(y.neg().add(1.0)).intoArray(data, i);
+        }
+        super.sigmoidDerivative(data, i, toExclusive);
+    }
+
+    @Override
+    public void sigmoidWithDerivative(double[] data, double[] derivatives, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector exp = DoubleVector.fromArray(SPECIES, data, i).neg().lanewise(VectorOperators.EXP);
+            DoubleVector y = DoubleVector.broadcast(SPECIES, 1.0).div(exp.add(1.0));
+            y.intoArray(data, i);
+            y.mul(y.neg().add(1.0)).intoArray(derivatives, i);
+        }
+        super.sigmoidWithDerivative(data, derivatives, i, toExclusive);
+    }
+
+    @Override
+    public void rectifiedLinear(double[] data, int fromInclusive, int toExclusive) {
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, data, i).max(0.0).intoArray(data, i);
+        }
+        super.rectifiedLinear(data, i, toExclusive);
+    }
+
+    @Override
+    public void rectifiedLinearDerivative(double[] data, int fromInclusive, int toExclusive) {
+        DoubleVector zeros = DoubleVector.zero(SPECIES);
+        DoubleVector ones = DoubleVector.broadcast(SPECIES, 1.0);
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector y = DoubleVector.fromArray(SPECIES, data, i);
+            zeros.blend(ones, y.compare(VectorOperators.GT, 0.0)).intoArray(data, i);
+        }
+        super.rectifiedLinearDerivative(data, i, toExclusive);
+    }
+
+    @Override
+    public void rectifiedLinearWithDerivative(double[] data, double[] derivatives, int fromInclusive, int toExclusive) {
+        DoubleVector zeros = DoubleVector.zero(SPECIES);
+        DoubleVector ones = DoubleVector.broadcast(SPECIES, 1.0);
+        int i = fromInclusive;
+        for (int bound = fromInclusive + SPECIES.loopBound(toExclusive - fromInclusive); i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, data, i);
+            x.max(0.0).intoArray(data, i);
+            zeros.blend(ones, x.compare(VectorOperators.GT, 0.0)).intoArray(derivatives, i);
+        }
+        super.rectifiedLinearWithDerivative(data, derivatives, i, toExclusive);
+    }
+}
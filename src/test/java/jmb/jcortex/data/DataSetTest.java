@@ -85,4 +85,14 @@ public class DataSetTest {
         assertThat(Arrays.asList(shuffledLabels)).containsExactlyInAnyOrder(originalLabels);
     }
 
+    @Test
+    public void shuffleRows_WithTheSameSeed_GivesTheSameOrder() {
+        DataSet first = dataSet.shuffleRows(new XorShiftRandom(5));
+        DataSet second = dataSet.shuffleRows(new XorShiftRandom(5));
+
+        assertThat(second.getFeatures()).isEqualTo(first.getFeatures());
+        assertThat(second.getLabels()).isEqualTo(first.getLabels());
+        assertThat(Arrays.asList(first.getFeatures().getData())).containsExactlyInAnyOrder(featureData);
+    }
+
 }
\ No newline at end of file
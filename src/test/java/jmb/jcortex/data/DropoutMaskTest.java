@@ -0,0 +1,70 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DropoutMaskTest {
+
+    @Test
+    public void fromMatrix_KeepsNonZeroElements() {
+        DropoutMask mask = DropoutMask.fromMatrix(new SynMatrix(new double[][]{
+                {1, 0, 1},
+                {0, 1, 0}
+        }));
+
+        SynMatrix result = mask.applyInPlace(new SynMatrix(new double[][]{
+                {2, 3, 4},
+                {5, 6, 7}
+        }));
+
+        assertThat(mask.isKept(0, 0)).isTrue();
+        assertThat(mask.isKept(1, 0)).isFalse();
+        assertThat(result.getRow(0)).containsExactly(2, 0, 4);
+        assertThat(result.getRow(1)).containsExactly(0, 6, 0);
+    }
+
+    @Test
+    public void generate_ScalesKeptElements() {
+        DropoutMask mask = DropoutMask.generate(10, 10, 0.75, new XorShiftRandom(1));
+
+        SynMatrix result = mask.applyInPlace(SynMatrix.ones(10, 10));
+
+        assertThat(mask.getScale()).isEqualTo(4.0);
+        for (int row = 0; row < 10; row++) {
+            for (int col = 0; col < 10; col++) {
+                assertThat(result.get(row, col)).isEqualTo(mask.isKept(row, col) ? 4.0 : 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void generate_IsReproducibleFromSeed() {
+        DropoutMask mask1 = DropoutMask.generate(7, 13, 0.5, new XorShiftRandom(5));
+        DropoutMask mask2 = DropoutMask.generate(7, 13, 0.5, new XorShiftRandom(5));
+
+        assertThat(mask1.applyInPlace(SynMatrix.ones(7, 13))).isEqualTo(mask2.applyInPlace(SynMatrix.ones(7, 13)));
+    }
+
+    @Test
+    public void generate_WithZeroPercent_KeepsEverything() {
+        DropoutMask mask = DropoutMask.generate(3, 50, 0.0, new XorShiftRandom(5));
+
+        assertThat(mask.applyInPlace(SynMatrix.ones(3, 50))).isEqualTo(SynMatrix.ones(3, 50));
+    }
+
+    @Test
+    public void applyInPlace_RejectsWrongDimensions() {
+        DropoutMask mask = DropoutMask.generate(2, 2, 0.5, new XorShiftRandom(5));
+
+        assertThatThrownBy(() -> mask.applyInPlace(SynMatrix.ones(2, 3)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MatrixKernelsTest {
+    // The precision required for double calculations
+    private Offset<Double> precision = Offset.offset(0.00000000001);
+
+    private MatrixKernels kernels = MatrixKernels.getInstance();
+
+    // Surefire runs against target/classes, where the multi-release VectorMatrixKernels (META-INF/versions/17) is
+    // never loaded, so these tests only cover ScalarMatrixKernels. The odd length would also reach the scalar
+    // remainder of the vector kernels if they were run against the packaged jar.
+    private double[] values = {-3, -2.5, -1, -0.5, 0, 0.5, 1, 1.5, 2, 2.5, 3};
+
+    @Test
+    public void sum_OnlySumsTheGivenRange() {
+        assertThat(kernels.sum(values, 0, values.length)).isEqualTo(3.5, precision);
+        assertThat(kernels.sum(values, 1, 10)).isEqualTo(3.5, precision);
+        assertThat(kernels.sum(values, 4, 4)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void max_ReturnsLargestValueInRange() {
+        assertThat(kernels.max(values, 0, values.length)).isEqualTo(3);
+        assertThat(kernels.max(values, 0, 9)).isEqualTo(2);
+    }
+
+    @Test
+    public void sumSquaredDeviations_SumsSquaredDistanceFromMean() {
+        assertThat(kernels.sumSquaredDeviations(values, 0, values.length, 0)).isEqualTo(39.25, precision);
+        assertThat(kernels.sumSquaredDeviations(values, 4, 7, 0.5)).isEqualTo(0.5, precision);
+    }
+
+    @Test
+    public void dot_MultipliesAndSumsTheGivenRanges() {
+        double[] ones = {1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+        assertThat(kernels.dot(values, 0, ones, 0, values.length)).isEqualTo(kernels.sum(values, 0, values.length), precision);
+        assertThat(kernels.dot(values, 1, values, 2, 5)).isEqualTo(-2.5 * -1 + -1 * -0.5 + -0.5 * 0 + 0 * 0.5 + 0.5 * 1, precision);
+    }
+
+    @Test
+    public void addInto_AddsSourceRangeToTargetRange() {
+        double[] target = {1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+        kernels.addInto(target, 1, values, 2, 9);
+        assertThat(target).containsExactly(new double[]{1, 0, 0.5, 1, 1.5, 2, 2.5, 3, 3.5, 4}, precision);
+    }
+
+    @Test
+    public void maxInto_KeepsLargerOfTargetAndSource() {
+        double[] target = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        kernels.maxInto(target, 1, values, 0, 9);
+        assertThat(target).containsExactly(0, 0, 0, 0, 0, 0, 0.5, 1, 1.5, 2);
+    }
+
+    @Test
+    public void argMaxInto_TracksIndexOfLargestSource() {
+        double[] maxes = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        int[] indexes = new int[3];
+        kernels.argMaxInto(maxes, indexes, 0, new double[]{1, 5, 2}, 0, 3, 0);
+        kernels.argMaxInto(maxes, indexes, 0, new double[]{4, 5, 1}, 0, 3, 1);
+        kernels.argMaxInto(maxes, indexes, 0, new double[]{0, 0, 9}, 0, 3, 2);
+        assertThat(maxes).containsExactly(4, 5, 9);
+        assertThat(indexes).containsExactly(1, 0, 2);
+    }
+
+    @Test
+    public void scale_MultipliesOnlyTheGivenRange() {
+        double[] data = values.clone();
+        kernels.scale(data, 1, 10, 2);
+        assertThat(data).containsExactly(new double[]{-3, -5, -2, -1, 0, 1, 2, 3, 4, 5, 3}, precision);
+    }
+
+    @Test
+    public void sigmoidWithDerivative_MatchesSeparatePasses() {
+        double[] data = values.clone();
+        double[] derivatives = new double[data.length];
+        kernels.sigmoidWithDerivative(data, derivatives, 0, data.length);
+        double[] expected = values.clone();
+        kernels.sigmoid(expected, 0, expected.length);
+        double[] expectedDerivatives = expected.clone();
+        kernels.sigmoidDerivative(expectedDerivatives, 0, expectedDerivatives.length);
+        assertThat(data).containsExactly(expected, precision);
+        assertThat(derivatives).containsExactly(expectedDerivatives, precision);
+    }
+
+    @Test
+    public void rectifiedLinearWithDerivative_MatchesSeparatePasses() {
+        double[] data = values.clone();
+        double[] derivatives = new double[data.length];
+        kernels.rectifiedLinearWithDerivative(data, derivatives, 1, data.length);
+        assertThat(data).containsExactly(-3, 0, 0, 0, 0, 0.5, 1, 1.5, 2, 2.5, 3);
+        assertThat(derivatives).containsExactly(0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1);
+    }
+
+    @Test
+    public void sigmoid_MatchesSigmoidFormula() {
+        double[] data = values.clone();
+        kernels.sigmoid(data, 0, data.length);
+        for (int i = 0; i < data.length; i++) {
+            assertThat(data[i]).isEqualTo(1 / (1 + Math.exp(-values[i])), precision);
+        }
+    }
+
+    @Test
+    public void sigmoidDerivative_IsCalculatedFromTheSigmoidOutput() {
+        double[] data = values.clone();
+        kernels.sigmoidDerivative(data, 0, data.length);
+        for (int i = 0; i < data.length; i++) {
+            assertThat(data[i]).isEqualTo(values[i] * (1 - values[i]), precision);
+        }
+    }
+
+    @Test
+    public void rectifiedLinear_ZeroesNegativeValues() {
+        double[] data = values.clone();
+        kernels.rectifiedLinear(data, 0, data.length);
+        assertThat(data).containsExactly(0, 0, 0, 0, 0, 0.5, 1, 1.5, 2, 2.5, 3);
+    }
+
+    @Test
+    public void rectifiedLinearDerivative_IsOneForPositiveValues() {
+        double[] data = values.clone();
+        kernels.rectifiedLinearDerivative(data, 0, data.length);
+        assertThat(data).containsExactly(0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1);
+    }
+
+}
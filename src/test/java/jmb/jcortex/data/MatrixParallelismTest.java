@@ -0,0 +1,97 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MatrixParallelismTest {
+
+    private ForkJoinPool originalPool;
+    private int originalThreshold;
+    private ForkJoinPool testPool = new ForkJoinPool(4);
+
+    @Before
+    public void setUp() {
+        originalPool = MatrixParallelism.getPool();
+        originalThreshold = MatrixParallelism.getThreshold();
+        // Small enough that the test matrices get split across threads
+        MatrixParallelism.setPool(testPool);
+        MatrixParallelism.setThreshold(16);
+    }
+
+    @After
+    public void tearDown() {
+        MatrixParallelism.setPool(originalPool);
+        MatrixParallelism.setThreshold(originalThreshold);
+        testPool.shutdown();
+    }
+
+    @Test
+    public void applyInPlace_AboveThreshold_SplitsIntoRangesCoveringEveryElementOnce() {
+        SynMatrix synMatrix = new SynMatrix(37, 11);
+        AtomicInteger numRanges = new AtomicInteger();
+        synMatrix.applyInPlace((data, from, to) -> {
+            numRanges.incrementAndGet();
+            for (int i = from; i < to; i++) {
+                data[i] += 1;
+            }
+        });
+        assertThat(numRanges.get()).isGreaterThan(1);
+        assertThat(synMatrix.getAll()).containsOnly(1);
+    }
+
+    @Test
+    public void applyInPlace_AboveThreshold_RunsOnConfiguredPool() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        new SynMatrix(100, 100).applyInPlace((data, from, to) -> threads.add(Thread.currentThread()));
+        assertThat(threads).allMatch(thread -> thread.getName().startsWith("ForkJoinPool-"));
+    }
+
+    @Test
+    public void applyInPlace_BelowThreshold_RunsOnCallingThread() {
+        MatrixParallelism.setThreshold(1000);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        new SynMatrix(10, 10).applyInPlace((data, from, to) -> threads.add(Thread.currentThread()));
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    public void elementWiseOperations_AboveThreshold_GiveSameResultsAsSequential() {
+        double[][] values = new double[50][20];
+        for (int row = 0; row < values.length; row++) {
+            for (int col = 0; col < values[row].length; col++) {
+                values[row][col] = row - col;
+            }
+        }
+        SynMatrix synMatrix = new SynMatrix(values);
+        SynMatrix twos = new SynMatrix(50, 20, 2.0);
+
+        SynMatrix result = synMatrix.copy().plusInPlace(twos).elementMultInPlace(twos).minusInPlace(twos)
+                .elementDivideInPlace(2).oneMinusThis();
+
+        for (int row = 0; row < values.length; row++) {
+            for (int col = 0; col < values[row].length; col++) {
+                assertThat(result.get(row, col)).isEqualTo(1 - ((values[row][col] + 2) * 2 - 2) / 2);
+            }
+        }
+    }
+
+    @Test
+    public void setThreshold_RejectsNonPositiveValues() {
+        assertThatThrownBy(() -> MatrixParallelism.setThreshold(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParameterBufferTest {
+
+    private List<SynMatrix> matrices = Arrays.asList(
+            new SynMatrix(new double[][]{{1, 2}, {3, 4}}),
+            new SynMatrix(new double[][]{{5, 6, 7}}));
+
+    @Test
+    public void of_PacksMatricesEndToEndInColumnMajorOrder() {
+        ParameterBuffer buffer = ParameterBuffer.of(matrices);
+
+        assertThat(buffer.getData()).containsExactly(1, 3, 2, 4, 5, 6, 7);
+        assertThat(buffer.size()).isEqualTo(7);
+        assertThat(buffer.numMatrices()).isEqualTo(2);
+        assertThat(buffer.offset(1)).isEqualTo(4);
+    }
+
+    @Test
+    public void scatter_CopiesValuesBackIntoMatrices() {
+        ParameterBuffer buffer = ParameterBuffer.of(matrices).scaleInPlace(2);
+        List<SynMatrix> targets = Arrays.asList(new SynMatrix(2, 2), new SynMatrix(1, 3));
+
+        assertThat(buffer.scatter(targets)).isSameAs(targets);
+        assertThat(targets.get(0)).isEqualTo(new SynMatrix(new double[][]{{2, 4}, {6, 8}}));
+        assertThat(targets.get(1)).isEqualTo(new SynMatrix(new double[][]{{10, 12, 14}}));
+        assertThat(buffer.toMatrices()).isEqualTo(targets);
+    }
+
+    @Test
+    public void plusInPlace_AddsElementWise() {
+        ParameterBuffer buffer = ParameterBuffer.of(matrices);
+
+        buffer.plusInPlace(ParameterBuffer.of(matrices));
+
+        assertThat(buffer.getData()).containsExactly(2, 6, 4, 8, 10, 12, 14);
+    }
+
+    @Test
+    public void copy_HasNoSharedState() {
+        ParameterBuffer buffer = ParameterBuffer.of(matrices);
+        ParameterBuffer copy = buffer.copy();
+
+        copy.scaleInPlace(0);
+
+        assertThat(buffer.getData()).containsExactly(1, 3, 2, 4, 5, 6, 7);
+        assertThat(copy.hasSameShapes(buffer)).isTrue();
+    }
+
+    @Test
+    public void mismatchedShapes_AreRejected() {
+        ParameterBuffer buffer = ParameterBuffer.of(matrices);
+        ParameterBuffer other = ParameterBuffer.of(Arrays.asList(new SynMatrix(2, 2), new SynMatrix(3, 1)));
+
+        assertThatThrownBy(() -> buffer.plusInPlace(other)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> buffer.scatter(matrices.subList(0, 1))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
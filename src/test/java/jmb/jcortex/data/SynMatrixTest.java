@@ -9,7 +9,15 @@ import jmb.jcortex.mapfunctions.DoublingActivationFunction;
 import org.assertj.core.data.Offset;
 import org.junit.Test;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -64,6 +72,18 @@ public class SynMatrixTest {
         assertThat(copy.getAll()).containsExactly(1, 3, 2, 4);
     }
 
+    @Test
+    public void overBuffer_SharesTheLeadingValuesOfALongerBuffer() {
+        double[] buffer = {1, 2, 3, 4, 5, 6, 7, 8};
+        SynMatrix synMatrix = SynMatrix.overBuffer(buffer, 2, 3);
+
+        assertThat(synMatrix.getData()).isEqualTo(new double[][]{{1, 3, 5}, {2, 4, 6}});
+        assertThat(synMatrix.copy().getAll()).containsExactly(1, 2, 3, 4, 5, 6);
+        synMatrix.elementMultInPlace(2);
+        assertThat(buffer).containsExactly(2, 4, 6, 8, 10, 12, 7, 8);
+        assertThatThrownBy(() -> SynMatrix.overBuffer(buffer, 3, 3)).isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     public void sliceRows_ReturnsASubset() {
         double[][] values = new double[][] {
@@ -549,4 +569,181 @@ public class SynMatrixTest {
         assertThat(sums.get(2, 0)).isEqualTo(4.5);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getRowMaxesAndColMaxes_ReturnLargestValues() {
+        double[][] values = new double[][] {
+                {1, -2, 3},
+                {-4, 5, -6}
+        };
+        SynMatrix synMatrix = new SynMatrix(values);
+        assertThat(synMatrix.getRowMaxes().getAll()).containsExactly(3, 5);
+        assertThat(synMatrix.getColMaxes().getAll()).containsExactly(1, 5, 3);
+    }
+
+    @Test
+    public void getRowArgMaxes_ReturnsFirstIndexOfLargestValue() {
+        double[][] values = new double[][] {
+                {0.1, 0.7, 0.2},
+                {-3, -2, -1},
+                {0.4, 0.2, 0.4}
+        };
+        SynMatrix synMatrix = new SynMatrix(values);
+        assertThat(synMatrix.getRowArgMaxes()).containsExactly(1, 2, 0);
+        assertThat(synMatrix.getColArgMaxes()).containsExactly(2, 0, 2);
+    }
+
+    @Test
+    public void getRowVariancesAndColVariances_ReturnSampleVariance() {
+        double[][] values = new double[][] {
+                {1, 2, 6},
+                {3, 6, 0}
+        };
+        SynMatrix synMatrix = new SynMatrix(values);
+        assertThat(synMatrix.getRowVariances().getAll()).containsExactly(new double[]{7, 9}, precision);
+        assertThat(synMatrix.getColVariances().getAll()).containsExactly(new double[]{2, 8, 18}, precision);
+    }
+
+    @Test
+    public void getRowVariancesAndColVariances_WithOneValue_ReturnZero() {
+        SynMatrix oneRow = new SynMatrix(new double[][]{{1, 2, 6}});
+        assertThat(oneRow.getColVariances().getAll()).containsExactly(0, 0, 0);
+        assertThat(oneRow.transpose().getRowVariances().getAll()).containsExactly(0, 0, 0);
+    }
+
+    @Test
+    public void reductions_OnLargeMatrix_MatchRowByRowCalculation() {
+        // Big enough to be split into blocks and reduced in parallel
+        Random random = new Random(42);
+        double[][] values = new double[1000][300];
+        for (double[] row : values) {
+            for (int col = 0; col < row.length; col++) {
+                row[col] = random.nextGaussian();
+            }
+        }
+        SynMatrix synMatrix = new SynMatrix(values);
+
+        SynMatrix rowSums = synMatrix.sumRows();
+        SynMatrix rowMaxes = synMatrix.getRowMaxes();
+        int[] rowArgMaxes = synMatrix.getRowArgMaxes();
+        for (int row = 0; row < values.length; row++) {
+            assertThat(rowSums.get(row)).isEqualTo(Arrays.stream(values[row]).sum(), precision);
+            assertThat(rowMaxes.get(row)).isEqualTo(Arrays.stream(values[row]).max().getAsDouble());
+            assertThat(values[row][rowArgMaxes[row]]).isEqualTo(rowMaxes.get(row));
+        }
+        SynMatrix colSums = synMatrix.sumColumns();
+        for (int col = 0; col < values[0].length; col++) {
+            assertThat(colSums.get(col)).isEqualTo(synMatrix.getColStream(col).sum(), precision);
+        }
+    }
+
+    @Test
+    public void multiplyInto_WritesProductIntoResult() {
+        SynMatrix a = new SynMatrix(new double[][]{{1, 2}, {3, 4}, {5, 6}});
+        SynMatrix b = new SynMatrix(new double[][]{{1, 0, 2}, {0, 1, 3}});
+        SynMatrix result = new SynMatrix(3, 3);
+
+        assertThat(a.multiplyInto(b, result)).isSameAs(result).isEqualTo(a.multiply(b));
+        assertThatThrownBy(() -> a.multiplyInto(b, new SynMatrix(3, 2))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void multiplyRowInto_MatchesMatrixMultiplication() {
+        SynMatrix matrix = new SynMatrix(new double[][]{{1, 0, 2}, {0, 1, 3}, {-1, 4, 0.5}});
+        double[] row = {2, -1, 3};
+
+        double[] result = matrix.multiplyRowInto(row, new double[3]);
+
+        assertThat(result).containsExactly(new SynMatrix(new double[][]{row}).multiply(matrix).getRow(0));
+        assertThatThrownBy(() -> matrix.multiplyRowInto(new double[2], new double[3]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void multiplyBiasedRowInto_TreatsFirstRowAsBias() {
+        SynMatrix matrix = new SynMatrix(new double[][]{{10, 20, 30}, {0, 1, 3}, {-1, 4, 0.5}});
+        double[] row = {-1, 3};
+
+        double[] result = matrix.multiplyBiasedRowInto(row, new double[3]);
+
+        SynMatrix expected = new SynMatrix(new double[][]{row}).addBiasColumn().multiply(matrix);
+        assertThat(result).containsExactly(expected.getRow(0));
+    }
+
+    @Test
+    public void copyInto_OverwritesTargetInPlace() {
+        SynMatrix original = new SynMatrix(new double[][]{{1, 2}, {3, 4}});
+        SynMatrix target = new SynMatrix(2, 2);
+
+        assertThat(original.copyInto(target)).isSameAs(target).isEqualTo(original);
+        target.set(0, 0, 9);
+        assertThat(original.get(0, 0)).isEqualTo(1);
+        assertThatThrownBy(() -> original.copyInto(new SynMatrix(2, 3))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void copyToAndCopyFrom_UseColumnMajorOrder() {
+        SynMatrix matrix = new SynMatrix(new double[][]{{1, 2, 3}, {4, 5, 6}});
+        DoubleBuffer buffer = DoubleBuffer.allocate(6);
+
+        matrix.copyTo(buffer);
+        assertThat(buffer.array()).containsExactly(1, 4, 2, 5, 3, 6);
+
+        buffer.flip();
+        assertThat(new SynMatrix(2, 3).copyFrom(buffer)).isEqualTo(matrix);
+    }
+
+    @Test
+    public void writeToAndReadFrom_RestoreTheMatrix() throws IOException {
+        SynMatrix matrix = new SynMatrix(new double[][]{{1, 2, 3}, {4, 5, 6}});
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        matrix.writeTo(new DataOutputStream(bytes));
+
+        assertThat(SynMatrix.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))))
+                .isEqualTo(matrix);
+    }
+
+    @Test
+    public void getRowInto_CopiesRow() {
+        SynMatrix matrix = new SynMatrix(new double[][]{{1, 2, 3}, {4, 5, 6}});
+
+        assertThat(matrix.getRowInto(1, new double[3])).containsExactly(4, 5, 6);
+    }
+
+    @Test
+    public void addRowVectorInPlace_AddsToEveryRow_ThenAppliesOperation() {
+        SynMatrix matrix = new SynMatrix(new double[][]{{1, 2}, {3, 4}});
+        SynMatrix bias = new SynMatrix(new double[][]{{10, -10}});
+
+        matrix.addRowVectorInPlace(bias);
+        assertThat(matrix).isEqualTo(new SynMatrix(new double[][]{{11, -8}, {13, -6}}));
+
+        matrix.addRowVectorInPlace(bias, RangeOperation.forEachElement(x -> x * 2));
+        assertThat(matrix).isEqualTo(new SynMatrix(new double[][]{{42, -36}, {46, -32}}));
+    }
+
+    @Test
+    public void getRowTopIndexes_ReturnsLargestFirst() {
+        SynMatrix matrix = new SynMatrix(new double[][]{
+                {0.1, 0.5, 0.3, 0.9},
+                {4, 3, 2, 1},
+                {1, 1, 2, 1}
+        });
+
+        int[][] top = matrix.getRowTopIndexes(2);
+
+        assertThat(top[0]).containsExactly(3, 1);
+        assertThat(top[1]).containsExactly(0, 1);
+        assertThat(top[2]).containsExactly(2, 0);
+        assertThat(matrix.getRowTopIndexes(10)[1]).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void getRowTopIndexes_WithKLessThanOne_Throws() {
+        SynMatrix matrix = new SynMatrix(new double[][]{{0.1, 0.5}});
+
+        assertThatThrownBy(() -> matrix.getRowTopIndexes(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> matrix.getRowTopIndexes(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
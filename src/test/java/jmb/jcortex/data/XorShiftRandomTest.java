@@ -0,0 +1,92 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.data;
+
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class XorShiftRandomTest {
+
+    @Test
+    public void sameSeed_GivesSameSequence() {
+        XorShiftRandom random1 = new XorShiftRandom(42);
+        XorShiftRandom random2 = new XorShiftRandom(42);
+        for (int i = 0; i < 100; i++) {
+            assertThat(random1.nextLong()).isEqualTo(random2.nextLong());
+        }
+    }
+
+    @Test
+    public void nextDouble_IsUniformFromZeroToOne() {
+        XorShiftRandom random = new XorShiftRandom(1);
+        int[] buckets = new int[10];
+        for (int i = 0; i < 100_000; i++) {
+            double value = random.nextDouble();
+            assertThat(value).isGreaterThanOrEqualTo(0.0).isLessThan(1.0);
+            buckets[(int) (value * 10)]++;
+        }
+        for (int count : buckets) {
+            assertThat(count).isBetween(9500, 10500);
+        }
+    }
+
+    @Test
+    public void nextInt_IsUniformBelowTheBound() {
+        XorShiftRandom random = new XorShiftRandom(2);
+        int[] counts = new int[7];
+        for (int i = 0; i < 70_000; i++) {
+            counts[random.nextInt(7)]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isBetween(9500, 10500);
+        }
+    }
+
+    @Test
+    public void nextGaussian_HasMeanZeroAndStandardDeviationOne() {
+        XorShiftRandom random = new XorShiftRandom(4);
+        double sum = 0;
+        double sumOfSquares = 0;
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            double value = random.nextGaussian();
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        assertThat(sum / count).isCloseTo(0, offset(0.02));
+        assertThat(Math.sqrt(sumOfSquares / count)).isCloseTo(1, offset(0.02));
+    }
+
+    @Test
+    public void split_GivesADifferentSequence() {
+        XorShiftRandom random = new XorShiftRandom(7);
+        XorShiftRandom split = random.split();
+        assertThat(split.nextLong()).isNotEqualTo(random.nextLong());
+    }
+
+
+    @Test
+    public void readState_ContinuesTheSavedSequence() throws IOException {
+        XorShiftRandom random = new XorShiftRandom(3);
+        random.nextLong();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        random.writeState(new DataOutputStream(bytes));
+
+        XorShiftRandom restored = new XorShiftRandom(99);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(restored.nextLong()).isEqualTo(random.nextLong());
+        }
+    }
+}
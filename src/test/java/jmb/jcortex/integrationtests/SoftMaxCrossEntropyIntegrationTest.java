@@ -0,0 +1,71 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.integrationtests;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
+import jmb.jcortex.strategies.batchingstrategies.FullTrainingSetBatchingStrategy;
+import jmb.jcortex.strategies.haltingstrategies.ValidationSetHaltingStrategy;
+import jmb.jcortex.strategies.lossfunctions.SoftMaxCrossEntropyLossFunction;
+import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrategy;
+import jmb.jcortex.strategies.performanceevaluators.ClassificationPerformanceEvaluator;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import jmb.jcortex.trainers.GradientDescentTrainerBuilder;
+import jmb.jcortex.trainers.SupervisedTrainer;
+import org.junit.Test;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Trains a softmax classifier with cross-entropy loss to pick which of three points each example is closest to.
+ */
+public class SoftMaxCrossEntropyIntegrationTest {
+
+    private static final double[][] CENTERS = {{0, 0}, {1, 0}, {0, 1}};
+
+    @Test
+    public void shouldClassifyThreeClusters() {
+        int numRows = 60;
+        double[][] features = new double[numRows][];
+        double[][] labels = new double[numRows][3];
+        for (int row = 0; row < numRows; row++) {
+            int cluster = row % 3;
+            double offset = (row / 3 % 5 - 2) * 0.05;
+            features[row] = new double[]{CENTERS[cluster][0] + offset, CENTERS[cluster][1] - offset};
+            labels[row][cluster] = 1;
+        }
+        DataSet dataSet = new DataSet(new SynMatrix(features), new SynMatrix(labels));
+
+        NeuralNet untrainedNetwork = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(2, 6, 3)
+                .withActivationFunction(SIGMOID_MATRIX_FUNCTION)
+                .withOutputFunction(SOFTMAX_MATRIX_FUNCTION)
+                .withLossFunction(new SoftMaxCrossEntropyLossFunction())
+                .withWeightInitializer(new LinearRandomWeightInitializer(-0.5, 0.5))
+                .build();
+
+        double untrainedLoss = untrainedNetwork.getLossFunction()
+                .calcLoss(untrainedNetwork.analyzeData(dataSet), dataSet.getLabels());
+
+        SupervisedTrainer trainer = GradientDescentTrainerBuilder.createTrainer()
+                .withBatchingStrategy(new FullTrainingSetBatchingStrategy())
+                .withOptimizationStrategy(new MomentumOptimizationStrategy(0.5, 0.9))
+                .withHaltingStrategy(new ValidationSetHaltingStrategy(dataSet, dataSet,
+                        new ClassificationPerformanceEvaluator(), 2000))
+                .build();
+
+        NeuralNet trainedNetwork = trainer.train(untrainedNetwork, dataSet);
+
+        double error = new ClassificationPerformanceEvaluator().getError(trainedNetwork, dataSet);
+        assertThat(error).isZero();
+        assertThat(trainedNetwork.getLossFunction().calcLoss(trainedNetwork.analyzeData(dataSet), dataSet.getLabels()))
+                .isLessThan(untrainedLoss);
+    }
+}
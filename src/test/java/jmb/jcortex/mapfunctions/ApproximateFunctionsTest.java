@@ -0,0 +1,57 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+import org.apache.commons.math3.util.FastMath;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApproximateFunctionsTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void exp_IsWithinDocumentedRelativeError() {
+        for (int i = 0; i < 100_000; i++) {
+            double x = random.nextDouble() * 1400 - 700;
+            double expected = FastMath.exp(x);
+            assertThat(Math.abs(ApproximateFunctions.exp(x) - expected) / expected).isLessThan(1e-9);
+        }
+    }
+
+    @Test
+    public void exp_HandlesEdgeCases() {
+        assertThat(ApproximateFunctions.exp(0)).isEqualTo(1.0);
+        assertThat(ApproximateFunctions.exp(1000)).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(ApproximateFunctions.exp(-1000)).isEqualTo(0.0);
+        assertThat(ApproximateFunctions.exp(Double.NaN)).isNaN();
+    }
+
+    @Test
+    public void sigmoid_IsWithinDocumentedAbsoluteError() {
+        for (int i = 0; i < 100_000; i++) {
+            double x = random.nextDouble() * 60 - 30;
+            double expected = 1 / (1 + FastMath.exp(-x));
+            assertThat(Math.abs(ApproximateFunctions.sigmoid(x) - expected)).isLessThan(1e-10);
+        }
+        assertThat(ApproximateFunctions.sigmoid(-1000)).isEqualTo(0.0);
+        assertThat(ApproximateFunctions.sigmoid(1000)).isEqualTo(1.0);
+    }
+
+    @Test
+    public void tanh_IsWithinDocumentedAbsoluteError() {
+        for (int i = 0; i < 100_000; i++) {
+            double x = random.nextDouble() * 40 - 20;
+            assertThat(Math.abs(ApproximateFunctions.tanh(x) - FastMath.tanh(x))).isLessThan(1e-9);
+        }
+        assertThat(ApproximateFunctions.tanh(-1000)).isEqualTo(-1.0);
+        assertThat(ApproximateFunctions.tanh(1000)).isEqualTo(1.0);
+    }
+
+}
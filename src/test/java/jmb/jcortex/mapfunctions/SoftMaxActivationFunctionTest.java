@@ -10,6 +10,7 @@ import org.assertj.core.data.Offset;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -24,7 +25,7 @@ public class SoftMaxActivationFunctionTest {
     @Test
     public void testApplyRow() {
         assertThat(softmax.apply(input)).containsExactly(expectedOutput, precision);
-        assertThat(Arrays.stream(softmax.apply(input)).sum()).isEqualTo(1.0);
+        assertThat(Arrays.stream(softmax.apply(input)).sum()).isEqualTo(1.0, precision);
     }
 
     @Test
@@ -39,6 +40,44 @@ public class SoftMaxActivationFunctionTest {
         assertThat(result.numRows()).isEqualTo(1);
         assertThat(result.numCols()).isEqualTo(6);
         assertThat(result.getRow(0)).containsExactly(expectedOutput, precision);
-        assertThat(Arrays.stream(result.getAll()).sum()).isEqualTo(1.0);
+        assertThat(Arrays.stream(result.getAll()).sum()).isEqualTo(1.0, precision);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testApplyMatrix_WithApproximateExp() {
+        SoftMaxActivationFunction fastSoftmax = new SoftMaxActivationFunction(ApproximateFunctions::exp);
+        Offset<Double> approximate = Offset.offset(1e-9);
+
+        SynMatrix result = new SynMatrix(new double[][]{input}).apply(fastSoftmax);
+
+        assertThat(result.getRow(0)).containsExactly(expectedOutput, approximate);
+        assertThat(fastSoftmax.apply(input)).containsExactly(expectedOutput, approximate);
+    }
+
+    @Test
+    public void testApplyMatrix_IsStableForLargeInputs() {
+        SynMatrix result = new SynMatrix(new double[][]{{1000, 1001, 999}, {-1000, -1001, -999}}).apply(softmax);
+
+        double[] expected = softmax.apply(new double[]{1, 2, 0});
+        assertThat(result.getRow(0)).containsExactly(expected, precision);
+        assertThat(result.getRow(1)).containsExactly(softmax.apply(new double[]{-1, -2, 0}), precision);
+    }
+
+    @Test
+    public void testApplyMatrix_OnLargeMatrix_MatchesRowByRow() {
+        // Big enough to be split into row blocks that run in parallel
+        Random random = new Random(7);
+        double[][] input2d = new double[10000][10];
+        for (double[] row : input2d) {
+            for (int col = 0; col < row.length; col++) {
+                row[col] = random.nextGaussian() * 3;
+            }
+        }
+
+        SynMatrix result = new SynMatrix(input2d).apply(softmax);
+
+        for (int row = 0; row < input2d.length; row++) {
+            assertThat(result.getRow(row)).containsExactly(softmax.apply(input2d[row]), Offset.offset(0.0000000000001));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.mapfunctions;
+
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TanhActivationFunctionTest {
+    private Offset<Double> precision = Offset.offset(0.0001);
+
+    @Test
+    public void testFunction() {
+        assertTanh(new TanhActivationFunction().getFunction());
+    }
+
+    @Test
+    public void testFastFunction() {
+        assertTanh(new FastTanhActivationFunction().getFunction());
+    }
+
+    @Test
+    public void testDerivative() {
+        DoubleUnaryOperator derivative = new TanhActivationFunction().getDerivative();
+        assertThat(derivative.applyAsDouble(-1)).isEqualTo(0, precision);
+        assertThat(derivative.applyAsDouble(0)).isEqualTo(1, precision);
+        assertThat(derivative.applyAsDouble(0.5)).isEqualTo(0.75, precision);
+        assertThat(derivative.applyAsDouble(1)).isEqualTo(0, precision);
+    }
+
+    private void assertTanh(DoubleUnaryOperator function) {
+        assertThat(function.applyAsDouble(-10)).isEqualTo(-1, precision);
+        assertThat(function.applyAsDouble(-1)).isEqualTo(-0.7616, precision);
+        assertThat(function.applyAsDouble(0)).isEqualTo(0, precision);
+        assertThat(function.applyAsDouble(0.5)).isEqualTo(0.4621, precision);
+        assertThat(function.applyAsDouble(1)).isEqualTo(0.7616, precision);
+        assertThat(function.applyAsDouble(10)).isEqualTo(1, precision);
+    }
+
+}
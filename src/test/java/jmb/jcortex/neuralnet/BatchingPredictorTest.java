@@ -0,0 +1,134 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchingPredictorTest {
+    private Offset<Double> precision = Offset.offset(1e-12);
+
+    private NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+            .withDimensions(3, 5, 4)
+            .withActivationFunction(SIGMOID_MATRIX_FUNCTION)
+            .withOutputFunction(SOFTMAX_MATRIX_FUNCTION)
+            .withWeightInitializer(new LinearRandomWeightInitializer(-1, 1))
+            .build();
+    private CompiledNeuralNet compiled = neuralNet.compileForInference();
+
+    @Test
+    public void predict_CoalescesRequestsIntoBatches() throws Exception {
+        List<double[]> rows = new ArrayList<>();
+        List<CompletableFuture<double[]>> results = new ArrayList<>();
+        // Holds up the batching thread at the first batch's completion until every request is queued, so the rest
+        // have to wait together
+        CountDownLatch allQueued = new CountDownLatch(1);
+        AtomicInteger completions = new AtomicInteger();
+        Executor completionExecutor = command -> {
+            completions.incrementAndGet();
+            try {
+                allQueued.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            command.run();
+        };
+        try (BatchingPredictor predictor =
+                     new BatchingPredictor(compiled, 8, 200, TimeUnit.MILLISECONDS, 100, completionExecutor)) {
+            for (int i = 0; i < 20; i++) {
+                double[] row = {i * 0.1, -i * 0.2, 0.5};
+                rows.add(row);
+                results.add(predictor.predict(row));
+            }
+            allQueued.countDown();
+            for (int i = 0; i < rows.size(); i++) {
+                double[] expected = compiled.predict(new SynMatrix(new double[][]{rows.get(i)})).getRow(0);
+                assertThat(results.get(i).get(5, TimeUnit.SECONDS)).containsExactly(expected, precision);
+            }
+            assertThat(predictor.getRequestCount()).isEqualTo(20);
+            assertThat(predictor.getBatchCount()).isBetween(3L, 10L);
+            assertThat(completions.get()).isEqualTo((int) predictor.getBatchCount());
+            assertThat(predictor.getMaxQueueDepth()).isGreaterThan(1);
+            assertThat(predictor.getQueueDepth()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void predictClass_ReturnsIndexOfLargestOutput() throws Exception {
+        double[] row = {0.3, -0.7, 0.9};
+        int expected = compiled.predictClasses(new SynMatrix(new double[][]{row}))[0];
+        try (BatchingPredictor predictor = new BatchingPredictor(neuralNet, 4, 0, TimeUnit.MILLISECONDS, 10)) {
+            assertThat(predictor.predictClass(row).get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void predict_CopiesTheFeatures_SoTheCallerCanReuseTheArray() throws Exception {
+        double[] row = {0.3, -0.7, 0.9};
+        double[] expected = compiled.predict(new SynMatrix(new double[][]{row})).getRow(0);
+        try (BatchingPredictor predictor = new BatchingPredictor(compiled, 4, 200, TimeUnit.MILLISECONDS, 10)) {
+            CompletableFuture<double[]> result = predictor.predict(row);
+            row[0] = 100;
+
+            assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly(expected, precision);
+        }
+    }
+
+    @Test
+    public void predict_FailsForWrongNumberOfFeatures() throws Exception {
+        try (BatchingPredictor predictor = new BatchingPredictor(compiled, 4, 0, TimeUnit.MILLISECONDS, 10)) {
+            assertThatThrownBy(() -> predictor.predict(new double[2]).get())
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void close_FinishesQueuedRequests_ThenRejectsNewOnes() throws Exception {
+        BatchingPredictor predictor = new BatchingPredictor(compiled, 2, 50, TimeUnit.MILLISECONDS, 10);
+        CompletableFuture<double[]> queued = predictor.predict(new double[]{1, 2, 3});
+        predictor.close();
+
+        assertThat(queued.get(5, TimeUnit.SECONDS)).hasSize(4);
+        assertThatThrownBy(() -> predictor.predict(new double[]{1, 2, 3}).get())
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(predictor.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void close_WhenInterrupted_StillSettlesTheQueuedRequests_AndKeepsTheInterrupt() throws Exception {
+        BatchingPredictor predictor = new BatchingPredictor(compiled, 2, 50, TimeUnit.MILLISECONDS, 10);
+        CompletableFuture<double[]> queued = predictor.predict(new double[]{1, 2, 3});
+
+        Thread.currentThread().interrupt();
+        predictor.close();
+
+        assertThat(Thread.interrupted()).isTrue();
+        // Either run by the batching thread or rejected by close(), but never left pending
+        CompletableFuture<Object> settled = queued.handle((outputs, failure) -> failure == null ? outputs : failure);
+        assertThat(settled.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThatThrownBy(() -> predictor.predict(new double[]{1, 2, 3}).get())
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+}
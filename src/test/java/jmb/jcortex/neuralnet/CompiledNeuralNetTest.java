@@ -0,0 +1,193 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.RECIFIED_LINEAR_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompiledNeuralNetTest {
+    private Offset<Double> precision = Offset.offset(1e-12);
+
+    private NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+            .withDimensions(6, 8, 5, 4)
+            .withActivationFunction(SIGMOID_MATRIX_FUNCTION)
+            .withOutputFunction(SOFTMAX_MATRIX_FUNCTION)
+            .withWeightInitializer(new LinearRandomWeightInitializer(-1, 1))
+            .withDropout(0.5)
+            .build();
+
+    private SynMatrix features = randomFeatures(20, 6, 3);
+
+    @Test
+    public void predict_MatchesAnalyzeData() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+
+        SynMatrix expected = neuralNet.analyzeData(new DataSet(features, features));
+
+        assertThat(compiled.predict(features).getAll()).containsExactly(expected.getAll(), precision);
+        // and again, reusing this thread's buffers
+        assertThat(compiled.predict(features).getAll()).containsExactly(expected.getAll(), precision);
+        // a single row uses new buffers
+        assertThat(compiled.predict(features.sliceRows(2, 3)).getRow(0)).containsExactly(expected.getRow(2), precision);
+    }
+
+    @Test
+    public void predict_WithOneRow_MatchesMatrixPath() {
+        SynMatrix row = features.sliceRows(5, 6);
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+        int threshold = NeuralNet.getSingleRowThreshold();
+        NeuralNet.setSingleRowThreshold(0);
+        CompiledNeuralNet matrixOnly;
+        try {
+            matrixOnly = neuralNet.compileForInference();
+        } finally {
+            NeuralNet.setSingleRowThreshold(threshold);
+        }
+
+        assertThat(compiled.predict(row).getAll()).containsExactly(matrixOnly.predict(row).getAll(), precision);
+        assertThat(compiled.predictClasses(row)).containsExactly(matrixOnly.predictClasses(row));
+        assertThat(compiled.predictTopClasses(row, 2)[0]).containsExactly(matrixOnly.predictTopClasses(row, 2)[0]);
+    }
+
+    @Test
+    public void predict_WithFewerRowsThanAnEarlierBatch_UsesTheLeadingRowsOfTheBuffers() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+        SynMatrix fewerRows = features.sliceRows(3, 10);
+        SynMatrix expected = neuralNet.analyzeData(new DataSet(fewerRows, fewerRows));
+
+        compiled.predict(features);
+
+        assertThat(compiled.predict(fewerRows).getAll()).containsExactly(expected.getAll(), precision);
+        assertThat(compiled.predictClasses(fewerRows)).containsExactly(expected.getRowArgMaxes());
+        assertThat(compiled.predict(features).getAll())
+                .containsExactly(neuralNet.analyzeData(new DataSet(features, features)).getAll(), precision);
+    }
+
+    @Test
+    public void releaseBuffers_LeavesTheCompiledNetUsable() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+        SynMatrix expected = compiled.predict(features);
+
+        compiled.releaseBuffers();
+
+        assertThat(compiled.predict(features)).isEqualTo(expected);
+    }
+
+    @Test
+    public void predict_WithElementWiseOutputFunction_MatchesAnalyzeData() {
+        neuralNet.setOutputFunction(RECIFIED_LINEAR_MATRIX_FUNCTION);
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+
+        SynMatrix expected = neuralNet.analyzeData(new DataSet(features, features));
+
+        assertThat(compiled.predict(features).getAll()).containsExactly(expected.getAll(), precision);
+    }
+
+    @Test
+    public void predictClasses_MatchesArgMaxOfOutputs() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+
+        int[] expected = neuralNet.analyzeData(new DataSet(features, features)).getRowArgMaxes();
+
+        assertThat(compiled.predictClasses(features)).containsExactly(expected);
+        int[] classes = new int[features.numRows()];
+        assertThat(compiled.predictClasses(features, classes)).isSameAs(classes).containsExactly(expected);
+    }
+
+    @Test
+    public void predictTopClasses_ReturnsLargestOutputsFirst() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+        SynMatrix outputs = neuralNet.analyzeData(new DataSet(features, features));
+
+        int[][] top = compiled.predictTopClasses(features, 2);
+
+        assertThat(top.length).isEqualTo(features.numRows());
+        for (int row = 0; row < features.numRows(); row++) {
+            assertThat(top[row]).hasSize(2);
+            assertThat(top[row][0]).isEqualTo(outputs.getRowArgMaxes()[row]);
+            double[] values = outputs.getRow(row);
+            for (double value : values) {
+                if (value > values[top[row][1]]) {
+                    assertThat(value).isEqualTo(values[top[row][0]]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void predictTopClasses_WithKLessThanOne_Throws() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+
+        assertThatThrownBy(() -> compiled.predictTopClasses(features, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compiled.predictTopClasses(features.sliceRows(0, 1), -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void compiledNet_IsNotAffectedByLaterTraining() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+        SynMatrix before = compiled.predict(features);
+
+        neuralNet.getLayers().forEach(layer -> layer.elementMultInPlace(2));
+
+        assertThat(compiled.predict(features)).isEqualTo(before);
+    }
+
+    @Test
+    public void predict_RejectsWrongNumberOfFeatures() {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+
+        assertThatThrownBy(() -> compiled.predict(new SynMatrix(2, 5))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void predict_IsThreadsafe() throws Exception {
+        CompiledNeuralNet compiled = neuralNet.compileForInference();
+        SynMatrix expected = compiled.predict(features);
+        SynMatrix oneRow = features.sliceRows(0, 1);
+        SynMatrix expectedOneRow = compiled.predict(oneRow);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // alternate batch sizes so threads keep resizing their buffers
+            results.add(executor.submit(() -> compiled.predict(features).equals(expected)
+                    && compiled.predict(oneRow).equals(expectedOneRow)));
+        }
+        for (Future<Boolean> result : results) {
+            assertThat(result.get()).isTrue();
+        }
+        executor.shutdown();
+    }
+
+    private static SynMatrix randomFeatures(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        double[][] values = new double[rows][cols];
+        for (double[] row : values) {
+            for (int col = 0; col < cols; col++) {
+                row[col] = random.nextGaussian();
+            }
+        }
+        return new SynMatrix(values);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.DropoutMask;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.mapfunctions.ActivatedValues;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
+import static jmb.jcortex.trainers.TrainingFixtures.newBatch;
+import static jmb.jcortex.trainers.TrainingFixtures.newNeuralNetBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExecutionContextTest {
+
+    @Test
+    public void checkpointedContext_RecomputesTheSameNodeValuesAndDerivatives_WithTheSameDropoutMasks() {
+        for (int checkpointInterval = 1; checkpointInterval <= 6; checkpointInterval++) {
+            ExecutionContext expected = newNeuralNet(0).trainForward(newBatch(7), new XorShiftRandom(9));
+            ExecutionContext actual = newNeuralNet(checkpointInterval).trainForward(newBatch(7), new XorShiftRandom(9));
+
+            assertThat(expected.recomputesActivations()).isFalse();
+            assertThat(actual.recomputesActivations()).isTrue();
+            assertThat(actual.getOutputs()).isEqualTo(expected.getOutputs());
+            assertThat(actual.getDropoutMasks()).hasSameSizeAs(expected.getDropoutMasks());
+            // Read from the outputs back, the way backpropagation does
+            List<SynMatrix> actualDerivatives = actual.getActivationDerivatives();
+            List<SynMatrix> actualNodeValues = actual.getNodeValues();
+            assertThat(actualDerivatives).hasSameSizeAs(expected.getActivationDerivatives());
+            assertThat(actualNodeValues).hasSameSizeAs(expected.getNodeValues());
+            for (int layer = actualDerivatives.size() - 1; layer >= 0; layer--) {
+                assertThat(actualDerivatives.get(layer)).isEqualTo(expected.getActivationDerivatives().get(layer));
+                assertThat(actualNodeValues.get(layer)).isEqualTo(expected.getNodeValues().get(layer));
+            }
+        }
+    }
+
+    @Test
+    public void checkpointedContext_KeepsOnlyCheckpoints_AndRecomputesEachSegmentOnce() {
+        AtomicInteger layerPasses = new AtomicInteger();
+        SynMatrix inputs = new SynMatrix(new double[][]{{1, 2}});
+        ExecutionContext context = new ExecutionContext(2, 5, (index, layerInputs, dropoutMask) -> {
+            layerPasses.incrementAndGet();
+            SynMatrix values = layerInputs.elementMult(2);
+            return new ActivatedValues(values, values.copy());
+        });
+        context.addNodeValues(inputs);
+        SynMatrix values = inputs;
+        for (int layer = 0; layer < 5; layer++) {
+            values = values.elementMult(2);
+            context.addActivationDerivatives(values);
+            context.addNodeValues(values);
+        }
+
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        assertThat(nodeValues.get(0)).isSameAs(inputs);
+        assertThat(nodeValues.get(5)).isSameAs(values);
+        assertThat(layerPasses.get()).isZero();
+
+        for (int layer = 4; layer >= 0; layer--) {
+            assertThat(nodeValues.get(layer + 1).get(0)).isEqualTo(Math.pow(2, layer + 1));
+            assertThat(context.getActivationDerivatives().get(layer).get(0)).isEqualTo(Math.pow(2, layer + 1));
+        }
+        assertThat(layerPasses.get()).isEqualTo(5);
+    }
+
+    private NeuralNet newNeuralNet(int checkpointInterval) {
+        return newNeuralNetBuilder(41, 3, 6, 5, 6, 4, 5, 2)
+                .withOutputFunction(LINEAR_MATRIX_FUNCTION)
+                .withDropout(0.3)
+                .withActivationCheckpointing(checkpointInterval)
+                .build();
+    }
+}
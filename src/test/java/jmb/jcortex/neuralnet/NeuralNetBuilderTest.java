@@ -6,33 +6,40 @@
 package jmb.jcortex.neuralnet;
 
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.strategies.lossfunctions.SoftMaxCrossEntropyLossFunction;
 import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
 import org.junit.Test;
 
 import java.util.List;
 
+import static jmb.jcortex.mapfunctions.MatrixFunctions.FAST_SIGMOID_MATRIX_FUNCTION;
 import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
 import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class NeuralNetBuilderTest {
 
     @Test
     public void testBuilder() {
         LinearRandomWeightInitializer weightInitializer = new LinearRandomWeightInitializer(-0.6, 0.6);
+        SoftMaxCrossEntropyLossFunction lossFunction = new SoftMaxCrossEntropyLossFunction();
 
         NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
                 .withDimensions(8, 6, 4, 2)
                 .withWeightInitializer(weightInitializer)
                 .withActivationFunction(SIGMOID_MATRIX_FUNCTION)
-                .withOutputFunction(LINEAR_MATRIX_FUNCTION)
+                .withOutputFunction(SOFTMAX_MATRIX_FUNCTION)
                 .withDropout(0.5)
+                .withLossFunction(lossFunction)
                 .build();
 
         assertThat(neuralNet.getWeightInitializer()).isSameAs(weightInitializer);
         assertThat(neuralNet.getActivationFunction()).isSameAs(SIGMOID_MATRIX_FUNCTION);
-        assertThat(neuralNet.getOutputFunction()).isSameAs(LINEAR_MATRIX_FUNCTION);
+        assertThat(neuralNet.getOutputFunction()).isSameAs(SOFTMAX_MATRIX_FUNCTION);
         assertThat(neuralNet.getHiddenDropoutPercent()).isEqualTo(0.5);
+        assertThat(neuralNet.getLossFunction()).isSameAs(lossFunction);
         List<SynMatrix> layers = neuralNet.getLayers();
         assertThat(layers).hasSize(3);
         assertThat(layers.get(0).numRows()).isEqualTo(9);   // + 1 for bias node
@@ -43,4 +50,27 @@ public class NeuralNetBuilderTest {
         assertThat(layers.get(2).numCols()).isEqualTo(2);
     }
 
+    @Test
+    public void build_WithCrossEntropyLossAndNonSoftMaxOutput_Throws() {
+        NeuralNetBuilder builder = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(8, 6, 2)
+                .withOutputFunction(SIGMOID_MATRIX_FUNCTION)
+                .withLossFunction(new SoftMaxCrossEntropyLossFunction());
+
+        assertThatThrownBy(builder::build).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void withApproximateFunctions_SwapsInFastFunctions() {
+        NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(8, 6, 4, 2)
+                .withActivationFunction(SIGMOID_MATRIX_FUNCTION)
+                .withOutputFunction(LINEAR_MATRIX_FUNCTION)
+                .withApproximateFunctions()
+                .build();
+
+        assertThat(neuralNet.getActivationFunction()).isSameAs(FAST_SIGMOID_MATRIX_FUNCTION);
+        assertThat(neuralNet.getOutputFunction()).isSameAs(LINEAR_MATRIX_FUNCTION);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.neuralnet;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.mapfunctions.SimpleDifferentiableMatrixFunction;
+import jmb.jcortex.mapfunctions.SimpleMatrixFunction;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.FAST_TANH_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class NeuralNetSerializerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+            .withDimensions(5, 7, 3)
+            .withActivationFunction(FAST_TANH_MATRIX_FUNCTION)
+            .withOutputFunction(SOFTMAX_MATRIX_FUNCTION)
+            .withWeightInitializer(new LinearRandomWeightInitializer(-1, 1))
+            .withDropout(0.25)
+            .build();
+
+    @Test
+    public void saveAndLoad_RestoresTheNeuralNet() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.bin");
+
+        NeuralNetSerializer.save(neuralNet, path);
+        NeuralNet loaded = NeuralNetSerializer.load(path);
+
+        assertRestored(loaded);
+    }
+
+    @Test
+    public void writeAndRead_RestoresTheNeuralNet() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        NeuralNetSerializer.write(neuralNet, bytes);
+        NeuralNet loaded = NeuralNetSerializer.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertRestored(loaded);
+    }
+
+    @Test
+    public void saveAndWrite_ProduceTheSameBytes() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.bin");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        NeuralNetSerializer.save(neuralNet, path);
+        NeuralNetSerializer.write(neuralNet, bytes);
+
+        assertThat(Files.readAllBytes(path)).isEqualTo(bytes.toByteArray());
+    }
+
+    @Test
+    public void read_RejectsOtherFiles() {
+        byte[] notAModel = "Not a model, but long enough to read a header from".getBytes();
+
+        assertThatThrownBy(() -> NeuralNetSerializer.read(new ByteArrayInputStream(notAModel)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a saved NeuralNet");
+    }
+
+    @Test
+    public void read_RejectsTruncatedFiles() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NeuralNetSerializer.write(neuralNet, bytes);
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 8);
+
+        assertThatThrownBy(() -> NeuralNetSerializer.read(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void write_RejectsUnregisteredFunctions() {
+        neuralNet.setActivationFunction(new SimpleDifferentiableMatrixFunction(
+                new SimpleMatrixFunction(x -> x), new SimpleMatrixFunction(x -> 1)));
+
+        assertThatThrownBy(() -> NeuralNetSerializer.write(neuralNet, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unregistered function");
+    }
+
+    private void assertRestored(NeuralNet loaded) {
+        assertThat(loaded).isEqualTo(neuralNet);
+        assertThat(loaded.getActivationFunction()).isSameAs(FAST_TANH_MATRIX_FUNCTION);
+        assertThat(loaded.getOutputFunction()).isSameAs(SOFTMAX_MATRIX_FUNCTION);
+        assertThat(loaded.getHiddenDropoutPercent()).isEqualTo(0.25);
+        SynMatrix features = new SynMatrix(new double[][]{{0.1, 0.2, -0.3, 0.4, 0.5}, {1, 0, 1, 0, 1}});
+        DataSet dataSet = new DataSet(features, features);
+        assertThat(loaded.analyzeData(dataSet)).isEqualTo(neuralNet.analyzeData(dataSet));
+    }
+}
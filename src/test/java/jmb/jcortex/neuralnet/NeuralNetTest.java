@@ -6,18 +6,28 @@
 package jmb.jcortex.neuralnet;
 
 import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.DropoutMask;
+import jmb.jcortex.data.ParameterBuffer;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
 import jmb.jcortex.strategies.weightinitializers.OnesWeightInitializer;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.RECIFIED_LINEAR_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SOFTMAX_MATRIX_FUNCTION;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
 
 public class NeuralNetTest {
 
@@ -71,7 +81,7 @@ public class NeuralNetTest {
         // Sample 1: each middle node = 22, each output node = 22 * 2 * 3 + 2 = 134
         // Sample 2: each middle node = 54, each output node = 54 * 2 * 3 + 2 = 326
 
-        List<SynMatrix> output = neuralNet.trainForward(dataSet);
+        List<SynMatrix> output = neuralNet.trainForward(dataSet).getNodeValues();
 
         assertThat(output).hasSize(3);  // middle nodes and output nodes
         SynMatrix inputNodes = output.get(0);
@@ -92,22 +102,31 @@ public class NeuralNetTest {
     }
 
     @Test
-    public void trainForward_WithDropout_BlanksMiddleLayerNodes() {
+    public void trainForward_SavesFunctionDerivatives() {
+        NeuralNet neuralNet = new NeuralNet(4, 3, 2);
+        neuralNet.setWeightInitializer(new OnesWeightInitializer());
+        neuralNet.setActivationFunction(SIGMOID_MATRIX_FUNCTION);
+        neuralNet.setOutputFunction(RECIFIED_LINEAR_MATRIX_FUNCTION);
+        DataSet dataSet = new DataSet(new SynMatrix(new double[][]{{0.1, -0.2, 0.3, -0.4}}), SynMatrix.ones(1, 2));
+
+        ExecutionContext context = neuralNet.trainForward(dataSet);
+        List<SynMatrix> nodeValues = context.getNodeValues();
+        List<SynMatrix> derivatives = context.getActivationDerivatives();
+
+        assertThat(derivatives).hasSize(2);
+        assertThat(derivatives.get(0)).isEqualTo(nodeValues.get(1).apply(SIGMOID_MATRIX_FUNCTION.getDerivative()));
+        assertThat(derivatives.get(1)).isEqualTo(nodeValues.get(2).apply(RECIFIED_LINEAR_MATRIX_FUNCTION.getDerivative()));
+    }
+
+    @Test
+    public void trainForward_WithDropout_BlanksAndScalesMiddleLayerNodes() {
         NeuralNet neuralNet = new NeuralNet(4, 3, 2);
         // Set every weight to 2
         neuralNet.setWeightInitializer(matrix -> SynMatrix.ones(matrix.numRows(), matrix.numCols()).elementMultInPlace(2));
         neuralNet.setActivationFunction(LINEAR_MATRIX_FUNCTION);
         neuralNet.setOutputFunction(LINEAR_MATRIX_FUNCTION);
-
         neuralNet.setHiddenDropoutPercent(0.5);
-        Random mockRandom = mock(Random.class);
-        // This should create a dropoutMask that looks like:
-        //      {{1.0, 0.0, 1.0},
-        //      {0.0, 1.0, 0.0}}
-        // Note that the order looks off because the apply to the 3x2 matrix does *columnwise*
-        when(mockRandom.nextDouble()).thenReturn(0.6).thenReturn(0.4).thenReturn(0.4)
-                                     .thenReturn(0.6).thenReturn(0.6).thenReturn(0.4);
-        neuralNet.setDropoutRandomizer(mockRandom);
+        neuralNet.setDropoutRandomizer(new XorShiftRandom(3));
 
         double[][] values = new double[][] {
                 {1, 2, 3, 4},
@@ -116,27 +135,86 @@ public class NeuralNetTest {
         SynMatrix features = new SynMatrix(values);
         DataSet dataSet = new DataSet(features, SynMatrix.ones(2, 4));
 
-        // Sample 1: middle nodes = {22, 0, 22}, each output node = 22 * 2 * 2 + 2 = 90
-        // Sample 2: middle nodes = {0, 54, 0}, each output node = 54 * 2 * 1 + 2 = 110
+        // Sample 1: each kept middle node = 22 / 0.5 = 44, each output node = 44 * 2 * numKept + 2
+        // Sample 2: each kept middle node = 54 / 0.5 = 108, each output node = 108 * 2 * numKept + 2
 
-        List<SynMatrix> output = neuralNet.trainForward(dataSet);
+        ExecutionContext context = neuralNet.trainForward(dataSet);
+        List<SynMatrix> output = context.getNodeValues();
 
-        assertThat(output).hasSize(3);  // middle nodes and output nodes
-        SynMatrix inputNodes = output.get(0);
-        assertThat(inputNodes.numRows()).isEqualTo(2);
-        assertThat(inputNodes.numCols()).isEqualTo(4);
-        assertThat(inputNodes.getRow(0)).containsExactly(1, 2, 3, 4);
-        assertThat(inputNodes.getRow(1)).containsExactly(5, 6, 7, 8);
+        assertThat(output).hasSize(3);
+        assertThat(context.getDropoutMasks()).hasSize(1);
+        DropoutMask mask = context.getDropoutMasks().get(0);
         SynMatrix middleNodes = output.get(1);
-        assertThat(middleNodes.numRows()).isEqualTo(2);
-        assertThat(middleNodes.numCols()).isEqualTo(3);
-        assertThat(middleNodes.getRow(0)).containsExactly(22, 0, 22);
-        assertThat(middleNodes.getRow(1)).containsExactly(0, 54, 0);
         SynMatrix outputNodes = output.get(2);
-        assertThat(outputNodes.numRows()).isEqualTo(2);
-        assertThat(outputNodes.numCols()).isEqualTo(2);
-        assertThat(outputNodes.getRow(0)).containsExactly(90, 90);
-        assertThat(outputNodes.getRow(1)).containsExactly(110, 110);
+        double[] keptValues = {44, 108};
+        for (int row = 0; row < 2; row++) {
+            int numKept = 0;
+            for (int col = 0; col < 3; col++) {
+                if (mask.isKept(row, col)) {
+                    numKept++;
+                    assertThat(middleNodes.get(row, col)).isEqualTo(keptValues[row]);
+                } else {
+                    assertThat(middleNodes.get(row, col)).isEqualTo(0);
+                }
+            }
+            double expectedOutput = keptValues[row] * 2 * numKept + 2;
+            assertThat(outputNodes.getRow(row)).containsExactly(expectedOutput, expectedOutput);
+        }
+    }
+
+    @Test
+    public void trainForward_WithDropout_DropsAboutTheGivenPercent() {
+        NeuralNet neuralNet = new NeuralNet(4, 100, 2);
+        neuralNet.setWeightInitializer(new OnesWeightInitializer());
+        neuralNet.setActivationFunction(LINEAR_MATRIX_FUNCTION);
+        neuralNet.setOutputFunction(LINEAR_MATRIX_FUNCTION);
+        neuralNet.setHiddenDropoutPercent(0.2);
+        neuralNet.setDropoutRandomizer(new XorShiftRandom(11));
+        DataSet dataSet = new DataSet(SynMatrix.ones(100, 4), SynMatrix.ones(100, 2));
+
+        SynMatrix middleNodes = neuralNet.trainForward(dataSet).getNodeValues().get(1);
+
+        long numDropped = Arrays.stream(middleNodes.getAll()).filter(value -> value == 0).count();
+        assertThat(numDropped).isBetween(1800L, 2200L);
+        // kept nodes = 5 / 0.8
+        assertThat(Arrays.stream(middleNodes.getAll()).filter(value -> value != 0)).containsOnly(6.25);
+    }
+
+    @Test
+    public void getAndSetParameters_PackAndUnpackEveryLayer() {
+        NeuralNet neuralNet = new NeuralNet(2, 3, 1);
+        neuralNet.setWeightInitializer(new OnesWeightInitializer());
+        List<SynMatrix> layers = neuralNet.getLayers();
+
+        ParameterBuffer parameters = neuralNet.getParameters();
+        assertThat(parameters.size()).isEqualTo(3 * 3 + 4 * 1);
+        neuralNet.setParameters(parameters.scaleInPlace(2));
+
+        assertThat(neuralNet.getLayers().get(0)).isSameAs(layers.get(0));
+        assertThat(neuralNet.getLayers().get(1).getAll()).containsOnly(2);
+        assertThatThrownBy(() -> neuralNet.getLayers().add(new SynMatrix(1, 1)))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void copyInto_ReusesTargetLayers_WhenShapesMatch() {
+        NeuralNet neuralNet = new NeuralNet(4, 3, 2);
+        neuralNet.setWeightInitializer(new OnesWeightInitializer());
+        neuralNet.setActivationFunction(SIGMOID_MATRIX_FUNCTION);
+        neuralNet.setOutputFunction(LINEAR_MATRIX_FUNCTION);
+        NeuralNet target = new NeuralNet(4, 3, 2);
+        List<SynMatrix> targetLayers = target.getLayers();
+
+        assertThat(neuralNet.copyInto(target)).isSameAs(target).isEqualTo(neuralNet);
+        for (int i = 0; i < targetLayers.size(); i++) {
+            assertThat(target.getLayers().get(i)).isSameAs(targetLayers.get(i));
+        }
+        neuralNet.getLayers().get(0).set(0, 0, 5);
+        assertThat(target.getLayers().get(0).get(0, 0)).isEqualTo(1);
+
+        NeuralNet otherShape = new NeuralNet(4, 2);
+        assertThat(neuralNet.copyInto(otherShape)).isEqualTo(neuralNet);
+        assertThat(neuralNet.copyInto(null)).isEqualTo(neuralNet).isNotSameAs(neuralNet);
     }
 
     @Test
@@ -164,7 +242,29 @@ public class NeuralNetTest {
     }
 
     @Test
-    public void analyzeData_WithDropout_HalvesTheNodeValues() {
+    public void analyzeData_WithOneRow_UsesSingleRowPath_AndMatchesMatrixPath() {
+        NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(5, 7, 3)
+                .withActivationFunction(SIGMOID_MATRIX_FUNCTION)
+                .withOutputFunction(SOFTMAX_MATRIX_FUNCTION)
+                .withWeightInitializer(new LinearRandomWeightInitializer(-1, 1))
+                .build();
+        DataSet dataSet = new DataSet(new SynMatrix(new double[][]{{0.3, -1, 2, 0.5, 0}}), SynMatrix.ones(1, 3));
+        SynMatrix rowResult = neuralNet.analyzeData(dataSet);
+
+        int threshold = NeuralNet.getSingleRowThreshold();
+        NeuralNet.setSingleRowThreshold(0);
+        try {
+            SynMatrix matrixResult = neuralNet.analyzeData(dataSet);
+            assertThat(rowResult.numRows()).isEqualTo(1);
+            assertThat(rowResult.getAll()).containsExactly(matrixResult.getAll(), offset(1e-12));
+        } finally {
+            NeuralNet.setSingleRowThreshold(threshold);
+        }
+    }
+
+    @Test
+    public void analyzeData_WithDropout_DoesNoDropoutWork() {
         NeuralNet neuralNet = new NeuralNet(4, 3, 2);
         // Set every weight to 2
         neuralNet.setWeightInitializer(matrix -> SynMatrix.ones(matrix.numRows(), matrix.numCols()).elementMultInPlace(2));
@@ -179,14 +279,37 @@ public class NeuralNetTest {
         SynMatrix features = new SynMatrix(values);
         DataSet dataSet = new DataSet(features, SynMatrix.ones(2, 4));
 
-        // Sample 1: each middle node = 22, each output node = 22 * 1 * 3 + 2 = 68
-        // Sample 2: each middle node = 54, each output node = 54 * 1 * 3 + 2 = 164
+        // Dropout is inverted (scaled at training time), so inference is the same as without dropout
+        // Sample 1: each middle node = 22, each output node = 22 * 2 * 3 + 2 = 134
+        // Sample 2: each middle node = 54, each output node = 54 * 2 * 3 + 2 = 326
 
         SynMatrix outputNodes = neuralNet.analyzeData(dataSet);
         assertThat(outputNodes.numRows()).isEqualTo(2);
         assertThat(outputNodes.numCols()).isEqualTo(2);
-        assertThat(outputNodes.getRow(0)).containsExactly(68, 68);
-        assertThat(outputNodes.getRow(1)).containsExactly(164, 164);
+        assertThat(outputNodes.getRow(0)).containsExactly(134, 134);
+        assertThat(outputNodes.getRow(1)).containsExactly(326, 326);
+    }
+
+    @Test
+    public void analyzeData_IsSafeToCallConcurrently_WhileTraining() throws Exception {
+        NeuralNet neuralNet = new NeuralNet(4, 8, 2);
+        neuralNet.setWeightInitializer(new OnesWeightInitializer());
+        neuralNet.setActivationFunction(SIGMOID_MATRIX_FUNCTION);
+        neuralNet.setOutputFunction(LINEAR_MATRIX_FUNCTION);
+        neuralNet.setHiddenDropoutPercent(0.5);
+        DataSet dataSet = new DataSet(new SynMatrix(new double[][]{{0.1, 0.2, 0.3, 0.4}}), SynMatrix.ones(1, 2));
+        SynMatrix expected = neuralNet.analyzeData(dataSet);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<SynMatrix>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(executor.submit(() -> neuralNet.analyzeData(dataSet)));
+            executor.submit(() -> neuralNet.trainForward(dataSet, new XorShiftRandom()));
+        }
+        for (Future<SynMatrix> result : results) {
+            assertThat(result.get()).isEqualTo(expected);
+        }
+        executor.shutdown();
     }
 
-}
\ No newline at end of file
+}
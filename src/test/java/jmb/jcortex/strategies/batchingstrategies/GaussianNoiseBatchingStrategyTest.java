@@ -17,6 +17,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Arrays;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -54,4 +55,35 @@ public class GaussianNoiseBatchingStrategyTest {
         assertThat(actualMeans).contains(SynMatrix.ones(1, 100).applyInPlace(x -> x * 3).getRow(0), precision);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getBatchedDataSet_WithOneRowTrainingSet_UsesTheMeanWithNoSpread() {
+        DataSet trainingSet = new DataSet(new SynMatrix(new double[][]{{1, 2, 3}}), new SynMatrix(new double[][]{{1}}));
+
+        GaussianNoiseBatchingStrategy batchingStrategy = new GaussianNoiseBatchingStrategy(1, 1, trainingSet);
+
+        DataSet batch = batchingStrategy.getBatchedDataSet(trainingSet).getNextBatch();
+        assertThat(batch.getFeatures().getRow(0)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void setRandom_WithTheSameSeed_DrawsTheSameBatches() {
+        SynMatrix features = new SynMatrix(new double[][]{{1, 2}, {3, 5}, {6, 9}, {10, 14}});
+        DataSet trainingSet = new DataSet(features, features.copy());
+        GaussianNoiseBatchingStrategy first = new GaussianNoiseBatchingStrategy(2, 0.5, trainingSet);
+        GaussianNoiseBatchingStrategy second = new GaussianNoiseBatchingStrategy(2, 0.5, trainingSet);
+
+        first.setRandom(new Random(7));
+        second.setRandom(new Random(7));
+
+        BatchedDataSet firstBatches = first.getBatchedDataSet(trainingSet);
+        BatchedDataSet secondBatches = second.getBatchedDataSet(trainingSet);
+        while (firstBatches.hasNext()) {
+            DataSet firstBatch = firstBatches.getNextBatch();
+            DataSet secondBatch = secondBatches.getNextBatch();
+            assertThat(firstBatch.getFeatures()).isEqualTo(secondBatch.getFeatures());
+            assertThat(firstBatch.getLabels()).isEqualTo(secondBatch.getLabels());
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.haltingstrategies;
+
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TrainingLossHaltingStrategyTest {
+
+    @Mock
+    private NeuralNet neuralNet;
+    @Mock
+    private NeuralNet bestNeuralNet;
+
+    private TrainingLossHaltingStrategy haltingStrategy = new TrainingLossHaltingStrategy(0.01, 2);
+
+    @Test
+    public void testHaltingStrategy() {
+        when(neuralNet.copy()).thenReturn(neuralNet);
+        when(bestNeuralNet.copyInto(any())).thenReturn(bestNeuralNet);
+        assertThat(haltingStrategy.usesTrainingLoss()).isTrue();
+
+        // Before training there is no loss, but the starting net is kept
+        assertThat(haltingStrategy.evaluate(neuralNet)).isNaN();
+        assertThat(haltingStrategy.getBestNeuralNet()).isSameAs(neuralNet);
+
+        haltingStrategy.recordTrainingLoss(0.5);
+        assertThat(haltingStrategy.evaluate(neuralNet)).isEqualTo(0.5);
+        assertThat(haltingStrategy.shouldHalt()).isFalse();
+
+        // A new best
+        haltingStrategy.recordTrainingLoss(0.3);
+        haltingStrategy.evaluate(bestNeuralNet);
+        assertThat(haltingStrategy.shouldHalt()).isFalse();
+
+        // Less than minImprovement: not an improvement
+        haltingStrategy.recordTrainingLoss(0.295);
+        haltingStrategy.evaluate(neuralNet);
+        assertThat(haltingStrategy.shouldHalt()).isFalse();
+
+        // Worse
+        haltingStrategy.recordTrainingLoss(0.4);
+        haltingStrategy.evaluate(neuralNet);
+        assertThat(haltingStrategy.shouldHalt()).isTrue();
+        assertThat(haltingStrategy.getBestNeuralNet()).isSameAs(bestNeuralNet);
+    }
+
+    @Test
+    public void readState_RestoresBestNetAndCounters() throws IOException {
+        NeuralNet realNeuralNet = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(2, 3, 1)
+                .withWeightInitializer(new LinearRandomWeightInitializer(-1, 1))
+                .build();
+        haltingStrategy.recordTrainingLoss(1.0);
+        haltingStrategy.evaluate(realNeuralNet);
+        haltingStrategy.recordTrainingLoss(1.0);
+        haltingStrategy.evaluate(realNeuralNet);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        haltingStrategy.writeState(new DataOutputStream(bytes));
+
+        TrainingLossHaltingStrategy restored = new TrainingLossHaltingStrategy(0.01, 2);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.getBestNeuralNet()).isEqualTo(realNeuralNet);
+        assertThat(restored.shouldHalt()).isFalse();
+        restored.recordTrainingLoss(1.0);
+        restored.evaluate(realNeuralNet);
+        assertThat(restored.shouldHalt()).isTrue();
+    }
+}
@@ -15,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -46,7 +47,7 @@ public class ValidationSetHaltingStrategyTest {
         assertThat(validationSetHaltingStrategy.shouldHalt()).isFalse();
 
         // A new best iteration on the validation set
-        when(bestNeuralNet.copy()).thenReturn(bestNeuralNet);
+        when(bestNeuralNet.copyInto(any())).thenReturn(bestNeuralNet);
         when(performanceEvaluator.getError(bestNeuralNet, trainingSet)).thenReturn(0.6);
         when(performanceEvaluator.getError(bestNeuralNet, validationSet)).thenReturn(0.5);
         validationSetHaltingStrategy.evaluate(bestNeuralNet);
@@ -0,0 +1,49 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.lossfunctions;
+
+import jmb.jcortex.data.SynMatrix;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class SoftMaxCrossEntropyLossFunctionTest {
+    private Offset<Double> precision = Offset.offset(1e-12);
+
+    private SoftMaxCrossEntropyLossFunction lossFunction = new SoftMaxCrossEntropyLossFunction();
+
+    private SynMatrix outputs = new SynMatrix(new double[][]{
+            {0.7, 0.2, 0.1},
+            {0.25, 0.25, 0.5}
+    });
+    private SynMatrix labels = new SynMatrix(new double[][]{
+            {1, 0, 0},
+            {0, 1, 0}
+    });
+
+    @Test
+    public void calcOutputDeltas_IsOutputsMinusLabels_WithoutTheDerivative() {
+        SynMatrix deltas = lossFunction.calcOutputDeltas(outputs, labels, () -> fail("derivative not needed"));
+
+        assertThat(deltas.getAll()).containsExactly(new double[]{-0.3, 0.25, 0.2, -0.75, 0.1, 0.5}, precision);
+    }
+
+    @Test
+    public void calcLoss_ReturnsMeanNegativeLogProbabilityOfLabels() {
+        double expected = -(Math.log(0.7) + Math.log(0.25)) / 2;
+        assertThat(lossFunction.calcLoss(outputs, labels)).isEqualTo(expected, precision);
+    }
+
+    @Test
+    public void calcLoss_IsFiniteForZeroProbability() {
+        SynMatrix certain = new SynMatrix(new double[][]{{1.0, 0.0}});
+        assertThat(lossFunction.calcLoss(certain, new SynMatrix(new double[][]{{0, 1}}))).isFinite();
+        assertThat(lossFunction.calcLoss(certain, new SynMatrix(new double[][]{{1, 0}}))).isEqualTo(0.0);
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.strategies.lossfunctions;
+
+import jmb.jcortex.data.SynMatrix;
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SquaredErrorLossFunctionTest {
+    private Offset<Double> precision = Offset.offset(1e-12);
+
+    private SquaredErrorLossFunction lossFunction = new SquaredErrorLossFunction();
+
+    private SynMatrix outputs = new SynMatrix(new double[][]{
+            {0.5, 1.0},
+            {-1.0, 2.0}
+    });
+    private SynMatrix labels = new SynMatrix(new double[][]{
+            {0.0, 1.0},
+            {1.0, 1.0}
+    });
+
+    @Test
+    public void calcOutputDeltas_MultipliesErrorByOutputDerivative() {
+        SynMatrix derivatives = new SynMatrix(2, 2, 2.0);
+
+        SynMatrix deltas = lossFunction.calcOutputDeltas(outputs, labels, () -> derivatives);
+
+        assertThat(deltas).isEqualTo(new SynMatrix(new double[][]{
+                {1.0, 0.0},
+                {-4.0, 2.0}
+        }));
+    }
+
+    @Test
+    public void calcLoss_ReturnsHalfTheMeanSquaredErrorPerExample() {
+        // (0.25 + 0 + 4 + 1) / 2 / 2 examples
+        assertThat(lossFunction.calcLoss(outputs, labels)).isEqualTo(1.3125, precision);
+    }
+
+}
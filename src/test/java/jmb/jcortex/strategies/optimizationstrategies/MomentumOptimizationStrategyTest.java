@@ -11,6 +11,11 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -51,4 +56,36 @@ public class MomentumOptimizationStrategyTest {
         assertThat(layer2Corrections2.getRow(1)).containsExactly(new double[]{0.03, -0.015}, precision);
     }
 
+    @Test
+    public void calcCorrection_MatchesCalcCorrectionsOneLayerAtATime() {
+        MomentumOptimizationStrategy allLayers = new MomentumOptimizationStrategy(0.1, 0.5);
+        MomentumOptimizationStrategy eachLayer = new MomentumOptimizationStrategy(0.1, 0.5);
+        SynMatrix layer1Gradients = new SynMatrix(new double[][]{{0.1, -0.2}, {0.2, -0.1}});
+        SynMatrix layer2Gradients = new SynMatrix(new double[][]{{0.3, 0.4}});
+
+        for (int round = 0; round < 3; round++) {
+            List<SynMatrix> expected = allLayers.calcCorrections(Arrays.asList(layer1Gradients, layer2Gradients));
+            // Backpropagation reaches the last layer first
+            SynMatrix layer2Corrections = eachLayer.calcCorrection(1, layer2Gradients);
+            SynMatrix layer1Corrections = eachLayer.calcCorrection(0, layer1Gradients);
+
+            assertThat(layer1Corrections.getAll()).containsExactly(expected.get(0).getAll(), precision);
+            assertThat(layer2Corrections.getAll()).containsExactly(expected.get(1).getAll(), precision);
+        }
+    }
+
+    @Test
+    public void readState_RestoresMomentum() throws IOException {
+        MomentumOptimizationStrategy original = new MomentumOptimizationStrategy(0.1, 0.5);
+        List<SynMatrix> gradients = Arrays.asList(new SynMatrix(new double[][]{{0.1, -0.2}, {0.2, -0.1}}));
+        original.calcCorrections(gradients);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeState(new DataOutputStream(bytes));
+
+        MomentumOptimizationStrategy restored = new MomentumOptimizationStrategy(0.1, 0.5);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.calcCorrections(gradients)).isEqualTo(original.calcCorrections(gradients));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.Checkpointable;
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
+import jmb.jcortex.strategies.batchingstrategies.FixedNumBatchingStrategy;
+import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.FixedLearningRateOptimizationStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrategy;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class CheckpointerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // One example, so the batch shuffle can't change which row each dropout mask row is applied to
+    private DataSet trainingSet = new DataSet(new SynMatrix(new double[][]{{1, 0}}), new SynMatrix(new double[][]{{1}}));
+
+    @Test
+    public void resume_ContinuesExactlyWhereTrainingStopped() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("training.ckpt");
+        NeuralNet uninterrupted = train(newNeuralNet(42), 6, null);
+
+        // Train 3 iterations, checkpointing every 3, then resume in fresh objects as a restarted job would
+        train(newNeuralNet(42), 3, new Checkpointer(path, 3));
+        NeuralNet restarted = newNeuralNet(7);
+        NeuralNet resumed = newTrainer(6, new Checkpointer(path, 3)).resume(restarted, trainingSet);
+
+        assertThat(resumed.getLayers().size()).isEqualTo(uninterrupted.getLayers().size());
+        for (int i = 0; i < resumed.getLayers().size(); i++) {
+            assertThat(resumed.getLayers().get(i).getAll())
+                    .containsExactly(uninterrupted.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    @Test
+    public void resume_WithShuffledBatches_DrawsTheSameBatchesAsAnUninterruptedRun() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("training.ckpt");
+        DataSet examples = new DataSet(
+                new SynMatrix(new double[][]{{1, 0}, {0, 1}, {1, 1}, {0, 0}, {0.5, 1}, {1, 0.5}}),
+                new SynMatrix(new double[][]{{1}, {1}, {0}, {0}, {1}, {0}}));
+        NeuralNet uninterrupted = newBatchingTrainer(6, 3, null).train(newNeuralNet(42), examples);
+
+        newBatchingTrainer(3, 3, new Checkpointer(path, 3)).train(newNeuralNet(42), examples);
+        // A different seed, so only the restored generator can give the original batches
+        NeuralNet resumed = newBatchingTrainer(6, 11, new Checkpointer(path, 3)).resume(newNeuralNet(7), examples);
+
+        for (int i = 0; i < resumed.getLayers().size(); i++) {
+            assertThat(resumed.getLayers().get(i).getAll())
+                    .containsExactly(uninterrupted.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    @Test
+    public void resume_WithoutACheckpoint_StartsTraining() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("training.ckpt");
+        IterationHaltingStrategy haltingStrategy = new IterationHaltingStrategy(2);
+        GradientDescentTrainer trainer = new GradientDescentTrainer(
+                new MomentumOptimizationStrategy(0.5, 0.5), haltingStrategy);
+        trainer.setCheckpointer(new Checkpointer(path, 1));
+
+        trainer.resume(newNeuralNet(1), trainingSet);
+
+        assertThat(haltingStrategy.iteration).isEqualTo(2);
+        assertThat(Files.exists(path)).isTrue();
+    }
+
+    @Test
+    public void resume_WithADifferentStrategy_Fails() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("training.ckpt");
+        train(newNeuralNet(1), 1, new Checkpointer(path, 1));
+
+        GradientDescentTrainer trainer = new GradientDescentTrainer(
+                new FixedLearningRateOptimizationStrategy(0.5), new IterationHaltingStrategy(2));
+        trainer.setCheckpointer(new Checkpointer(path, 1));
+
+        assertThatThrownBy(() -> trainer.resume(newNeuralNet(1), trainingSet))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(MomentumOptimizationStrategy.class.getName());
+    }
+
+    private NeuralNet train(NeuralNet neuralNet, int iterations, Checkpointer checkpointer) {
+        return newTrainer(iterations, checkpointer).train(neuralNet, trainingSet);
+    }
+
+    private GradientDescentTrainer newTrainer(int iterations, Checkpointer checkpointer) {
+        GradientDescentTrainer trainer = new GradientDescentTrainer(
+                new MomentumOptimizationStrategy(0.5, 0.5), new IterationHaltingStrategy(iterations));
+        trainer.setCheckpointer(checkpointer);
+        return trainer;
+    }
+
+    private GradientDescentTrainer newBatchingTrainer(int iterations, long shuffleSeed, Checkpointer checkpointer) {
+        GradientDescentTrainer trainer = new GradientDescentTrainer(new FixedNumBatchingStrategy(2, shuffleSeed),
+                new MomentumOptimizationStrategy(0.5, 0.5), new IterationHaltingStrategy(iterations));
+        trainer.setCheckpointer(checkpointer);
+        return trainer;
+    }
+
+    private NeuralNet newNeuralNet(long seed) {
+        NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(2, 4, 1)
+                .withWeightInitializer(new LinearRandomWeightInitializer(-1, 1))
+                .withDropout(0.25)
+                .build();
+        // Same starting weights for every seed, but the dropout randomizers differ unless restored
+        neuralNet.setLayers(newStartingLayers());
+        neuralNet.setDropoutRandomizer(new XorShiftRandom(seed));
+        return neuralNet;
+    }
+
+    private List<SynMatrix> newStartingLayers() {
+        return Arrays.asList(
+                new SynMatrix(new double[][]{{0.1, -0.2, 0.3, -0.4}, {0.5, 0.6, -0.7, 0.8}, {-0.9, 0.1, 0.2, 0.3}}),
+                new SynMatrix(new double[][]{{0.1}, {-0.2}, {0.3}, {-0.4}, {0.5}}));
+    }
+
+    /** Halts after a fixed number of iterations, and always returns the latest neural net. */
+    private static class IterationHaltingStrategy implements HaltingStrategy, Checkpointable {
+        private final int maxIterations;
+        private int iteration = -1;
+        private NeuralNet latest;
+
+        IterationHaltingStrategy(int maxIterations) {
+            this.maxIterations = maxIterations;
+        }
+
+        @Override
+        public boolean shouldHalt() {
+            return iteration >= maxIterations;
+        }
+
+        @Override
+        public double evaluate(NeuralNet neuralNet) {
+            iteration++;
+            latest = neuralNet;
+            return 0;
+        }
+
+        @Override
+        public NeuralNet getBestNeuralNet() {
+            return latest;
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeInt(iteration);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            iteration = in.readInt();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import org.junit.Test;
+
+import java.util.List;
+
+import static jmb.jcortex.trainers.TrainingFixtures.newBatch;
+import static jmb.jcortex.trainers.TrainingFixtures.newNeuralNetBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class DataParallelGradientCalculatorTest {
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+
+    @Test
+    public void calcGradients_MatchesASingleThreadedPass() {
+        NeuralNet neuralNet = newNeuralNet(0);
+        DataSet batch = newBatch(11);
+        ExecutionContext context = neuralNet.trainForward(batch);
+        List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, batch.getLabels(), neuralNet);
+        List<SynMatrix> expected = gradientCalculator.calcGradients(deltas, context.getNodeValues());
+        double expectedLoss = neuralNet.getLossFunction().calcLoss(context.getOutputs(), batch.getLabels()) * 11;
+
+        DataParallelGradientCalculator.BatchGradients actual = new DataParallelGradientCalculator(3)
+                .calcGradients(neuralNet, batch, true, deltaCalculator, gradientCalculator);
+
+        assertThat(actual.gradients).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.gradients.get(i).getAll()).containsExactly(expected.get(i).getAll(), offset(1e-12));
+        }
+        assertThat(actual.totalLoss).isCloseTo(expectedLoss, offset(1e-12));
+    }
+
+    @Test
+    public void calcGradients_WithDropout_IsDeterministicForAGivenNumberOfWorkers() {
+        DataSet batch = newBatch(10);
+
+        List<SynMatrix> first = new DataParallelGradientCalculator(4)
+                .calcGradients(newNeuralNet(0.5), batch, false, deltaCalculator, gradientCalculator).gradients;
+        List<SynMatrix> second = new DataParallelGradientCalculator(4)
+                .calcGradients(newNeuralNet(0.5), batch, false, deltaCalculator, gradientCalculator).gradients;
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    public void calcGradients_WithMoreWorkersThanRows_UsesOneShardPerRow() {
+        NeuralNet neuralNet = newNeuralNet(0);
+        DataSet batch = newBatch(2);
+        ExecutionContext context = neuralNet.trainForward(batch);
+        List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, batch.getLabels(), neuralNet);
+        List<SynMatrix> expected = gradientCalculator.calcGradients(deltas, context.getNodeValues());
+
+        List<SynMatrix> actual = new DataParallelGradientCalculator(5)
+                .calcGradients(neuralNet, batch, false, deltaCalculator, gradientCalculator).gradients;
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getAll()).containsExactly(expected.get(i).getAll(), offset(1e-12));
+        }
+    }
+
+    private NeuralNet newNeuralNet(double dropout) {
+        NeuralNet neuralNet = newNeuralNetBuilder(17, 3, 5, 2).withDropout(dropout).build();
+        neuralNet.setDropoutRandomizer(new XorShiftRandom(5));
+        return neuralNet;
+    }
+}
@@ -5,16 +5,21 @@
  */
 package jmb.jcortex.trainers;
 
+import jmb.jcortex.data.DropoutMask;
 import jmb.jcortex.data.SynMatrix;
 import jmb.jcortex.mapfunctions.DifferentiableMatrixFunction;
 import jmb.jcortex.mapfunctions.DoublingActivationFunction;
 import jmb.jcortex.mapfunctions.SimpleDifferentiableMatrixFunction;
+import jmb.jcortex.neuralnet.ExecutionContext;
 import jmb.jcortex.neuralnet.NeuralNet;
+import org.assertj.core.data.Offset;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -59,7 +64,9 @@ public class DeltaCalculatorTest {
         neuralNet.setActivationFunction(doublingActivationFunction);
         neuralNet.setOutputFunction(doublingActivationFunction);
 
-        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(nodeValues, labels, neuralNet);
+        ExecutionContext context = new ExecutionContext(nodeValues, emptyList(), emptyList());
+
+        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(context, labels, neuralNet);
 
         assertThat(actualDeltas).hasSize(1);
         assertThat(actualDeltas.get(0)).isEqualTo(deltas);
@@ -109,14 +116,15 @@ public class DeltaCalculatorTest {
 
         DeltaCalculator deltaCalculator = new DeltaCalculator();
         List<SynMatrix> nodeValues = Arrays.asList(input, middleNodeValues, output);
+        List<DropoutMask> dropoutMasks = singletonList(DropoutMask.fromMatrix(SynMatrix.ones(middleNodeValues.numRows(), middleNodeValues.numCols())));
+        ExecutionContext context = new ExecutionContext(nodeValues, dropoutMasks, emptyList());
         List<SynMatrix> layers = Arrays.asList(layer1, layer2);
         NeuralNet neuralNet = new NeuralNet();
-        neuralNet.setDropoutMasks(singletonList(SynMatrix.ones(middleNodeValues.numRows(), middleNodeValues.numCols())));
         neuralNet.setLayers(layers);
         neuralNet.setActivationFunction(doublingActivationFunction);
         neuralNet.setOutputFunction(doublingActivationFunction);
 
-        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(nodeValues, labels, neuralNet);
+        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(context, labels, neuralNet);
 
         assertThat(actualDeltas).hasSize(2);
         assertThat(actualDeltas.get(1)).isEqualTo(deltas1);
@@ -171,18 +179,107 @@ public class DeltaCalculatorTest {
 
         DeltaCalculator deltaCalculator = new DeltaCalculator();
         List<SynMatrix> nodeValues = Arrays.asList(input, middleNodeValues, output);
+        ExecutionContext context = new ExecutionContext(nodeValues, singletonList(DropoutMask.fromMatrix(dropoutMask)), emptyList());
         List<SynMatrix> layers = Arrays.asList(layer1, layer2);
         NeuralNet neuralNet = new NeuralNet();
-        neuralNet.setDropoutMasks(singletonList(dropoutMask));
         neuralNet.setLayers(layers);
         neuralNet.setActivationFunction(doublingActivationFunction);
         neuralNet.setOutputFunction(doublingActivationFunction);
 
-        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(nodeValues, labels, neuralNet);
+        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(context, labels, neuralNet);
 
         assertThat(actualDeltas).hasSize(2);
         assertThat(actualDeltas.get(1)).isEqualTo(deltas1);
         assertThat(actualDeltas.get(0)).isEqualTo(deltas2);
     }
 
+    @Test
+    public void testCalcDeltas_UsesSavedDerivatives() {
+        SynMatrix input = new SynMatrix(new double[][]{
+                {0.5, -1, -0.4}
+        });
+        SynMatrix layer1 = new SynMatrix(new double[][]{
+                {-0.1, 0.1},    // 1st row is the bias
+                {0.1, -0.2},
+                {-0.1, 0.2},
+                {0.15, -0.15}
+        });
+        SynMatrix middleNodeValues = new SynMatrix(new double[][]{
+                {-0.02, -0.28}
+        });
+        SynMatrix layer2 = new SynMatrix(new double[][]{
+                {-0.2, 0.1},    // 1st row is the bias
+                {-0.1, 0.2},
+                {0.15, -0.15}
+        });
+        SynMatrix output = new SynMatrix(new double[][]{
+                {-0.24, -0.138}
+        });
+        SynMatrix labels = new SynMatrix(new double[][]{
+                {-0.1, -0.3}
+        });
+        // Saved derivatives of 3 (instead of the doubling function's 2)
+        SynMatrix middleDerivatives = new SynMatrix(1, 2, 3.0);
+        SynMatrix outputDerivatives = new SynMatrix(1, 2, 3.0);
+        // deltas1 = (output - labels) * 3
+        SynMatrix deltas1 = new SynMatrix(new double[][]{
+                {-0.42, 0.486}
+        });
+        // deltas2 = deltas1 X layer2NoBias * 3
+        SynMatrix deltas2 = new SynMatrix(new double[][]{
+                {0.4176, -0.4077}
+        });
+
+        DeltaCalculator deltaCalculator = new DeltaCalculator();
+        NeuralNet neuralNet = new NeuralNet();
+        neuralNet.setLayers(Arrays.asList(layer1, layer2));
+        neuralNet.setActivationFunction(doublingActivationFunction);
+        neuralNet.setOutputFunction(doublingActivationFunction);
+
+        ExecutionContext context = new ExecutionContext(Arrays.asList(input, middleNodeValues, output),
+                singletonList(DropoutMask.fromMatrix(SynMatrix.ones(1, 2))), Arrays.asList(middleDerivatives, outputDerivatives));
+
+        List<SynMatrix> actualDeltas = deltaCalculator.calcDeltas(context, labels, neuralNet);
+
+        assertThat(actualDeltas).hasSize(2);
+        assertThat(actualDeltas.get(1).getAll()).containsExactly(deltas1.getAll(), Offset.offset(1e-12));
+        assertThat(actualDeltas.get(0).getAll()).containsExactly(deltas2.getAll(), Offset.offset(1e-12));
+    }
+
+    @Test
+    public void testCalcDeltas_PassesEachLayerToTheListenerFromTheOutputBack() {
+        SynMatrix input = new SynMatrix(new double[][]{
+                {0.5, -1, -0.4}
+        });
+        SynMatrix layer1 = new SynMatrix(4, 2, 0.1);
+        SynMatrix middleNodeValues = new SynMatrix(new double[][]{
+                {-0.02, -0.28}
+        });
+        SynMatrix layer2 = new SynMatrix(3, 2, -0.1);
+        SynMatrix output = new SynMatrix(new double[][]{
+                {-0.24, -0.138}
+        });
+        SynMatrix labels = new SynMatrix(new double[][]{
+                {-0.1, -0.3}
+        });
+        NeuralNet neuralNet = new NeuralNet();
+        neuralNet.setLayers(Arrays.asList(layer1, layer2));
+        neuralNet.setActivationFunction(doublingActivationFunction);
+        neuralNet.setOutputFunction(doublingActivationFunction);
+        ExecutionContext context = new ExecutionContext(Arrays.asList(input, middleNodeValues, output),
+                emptyList(), emptyList());
+        List<Integer> layerIndexes = new ArrayList<>();
+        List<SynMatrix> listenedDeltas = new ArrayList<>();
+
+        new DeltaCalculator().calcDeltas(context, labels, neuralNet, (deltas, layerIndex) -> {
+            layerIndexes.add(layerIndex);
+            listenedDeltas.add(deltas);
+        });
+        List<SynMatrix> expectedDeltas = new DeltaCalculator().calcDeltas(context, labels, neuralNet);
+
+        assertThat(layerIndexes).containsExactly(1, 0);
+        assertThat(listenedDeltas.get(0)).isEqualTo(expectedDeltas.get(1));
+        assertThat(listenedDeltas.get(1)).isEqualTo(expectedDeltas.get(0));
+    }
+
 }
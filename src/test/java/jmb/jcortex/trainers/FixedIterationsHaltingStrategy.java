@@ -0,0 +1,37 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
+
+/** Halts after a fixed number of training iterations. Returns the latest net. */
+class FixedIterationsHaltingStrategy implements HaltingStrategy {
+    private final int maxIterations;
+    private int evaluations;
+    private NeuralNet latest;
+
+    FixedIterationsHaltingStrategy(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    @Override
+    public boolean shouldHalt() {
+        return evaluations > maxIterations;
+    }
+
+    @Override
+    public double evaluate(NeuralNet neuralNet) {
+        evaluations++;
+        latest = neuralNet;
+        return 0;
+    }
+
+    @Override
+    public NeuralNet getBestNeuralNet() {
+        return latest;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.FixedNumBatchingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrategy;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static jmb.jcortex.trainers.TrainingFixtures.newBatch;
+import static jmb.jcortex.trainers.TrainingFixtures.newNeuralNet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class GradientAccumulatorTest {
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+
+    @Test
+    public void takeMeanGradients_MatchesTheGradientsOfTheWholeBatch() {
+        NeuralNet neuralNet = newNeuralNet(31, 3, 5, 2);
+        DataSet batch = newBatch(10);
+        List<SynMatrix> expected = calcGradients(neuralNet, batch);
+        GradientAccumulator accumulator = new GradientAccumulator(3);
+
+        accumulator.add(calcGradients(neuralNet, batch.sliceRows(0, 4)), 4);
+        accumulator.add(calcGradients(neuralNet, batch.sliceRows(4, 7)), 3);
+        assertThat(accumulator.isFull()).isFalse();
+        accumulator.add(calcGradients(neuralNet, batch.sliceRows(7, 10)), 3);
+        assertThat(accumulator.isFull()).isTrue();
+        assertThat(accumulator.getNumExamples()).isEqualTo(10);
+
+        List<SynMatrix> actual = accumulator.takeMeanGradients();
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getAll()).containsExactly(expected.get(i).getAll(), offset(1e-12));
+        }
+        assertThat(accumulator.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void takeMeanGradients_ReusesTheSameMatricesForEveryStep() {
+        NeuralNet neuralNet = newNeuralNet(31, 3, 5, 2);
+        DataSet batch = newBatch(6);
+        GradientAccumulator accumulator = new GradientAccumulator(2);
+        accumulator.add(calcGradients(neuralNet, batch.sliceRows(0, 3)), 3);
+        accumulator.add(calcGradients(neuralNet, batch.sliceRows(3, 6)), 3);
+        List<SynMatrix> first = accumulator.takeMeanGradients();
+
+        List<SynMatrix> expected = calcGradients(neuralNet, batch.sliceRows(0, 2));
+        accumulator.add(calcGradients(neuralNet, batch.sliceRows(0, 2)), 2);
+        List<SynMatrix> second = accumulator.takeMeanGradients();
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(second.get(i)).isSameAs(first.get(i));
+            assertThat(second.get(i).getAll()).containsExactly(expected.get(i).getAll(), offset(1e-12));
+        }
+    }
+
+    @Test
+    public void takeMeanGradients_WithNothingAdded_Throws() {
+        assertThatThrownBy(() -> new GradientAccumulator(2).takeMeanGradients())
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void trainer_AccumulatingEveryMicroBatch_MatchesFullBatchTraining() {
+        NeuralNet fullBatch = newNeuralNet(31, 3, 5, 2);
+        NeuralNet microBatches = newNeuralNet(31, 3, 5, 2);
+        DataSet trainingSet = newBatch(12);
+
+        GradientDescentTrainerBuilder.createTrainer()
+                .withOptimizationStrategy(new MomentumOptimizationStrategy(0.3, 0.5))
+                .withHaltingStrategy(new FixedIterationsHaltingStrategy(5))
+                .build()
+                .train(fullBatch, trainingSet);
+        GradientDescentTrainer trainer = GradientDescentTrainerBuilder.createTrainer()
+                .withBatchingStrategy(new FixedNumBatchingStrategy(4))
+                .withOptimizationStrategy(new MomentumOptimizationStrategy(0.3, 0.5))
+                .withHaltingStrategy(new FixedIterationsHaltingStrategy(5))
+                .withGradientAccumulation(3)
+                .build();
+        trainer.train(microBatches, trainingSet);
+
+        assertThat(trainer.getMicroBatchesPerStep()).isEqualTo(3);
+        for (int i = 0; i < fullBatch.getLayers().size(); i++) {
+            assertThat(microBatches.getLayers().get(i).getAll())
+                    .containsExactly(fullBatch.getLayers().get(i).getAll(), offset(1e-12));
+        }
+    }
+
+    @Test
+    public void trainer_WithBatchesLeftOver_StepsOnThemAtTheEndOfTheIteration() {
+        NeuralNet neuralNet = newNeuralNet(31, 3, 5, 2);
+        List<SynMatrix> before = Arrays.asList(neuralNet.getLayers().get(0).copy(), neuralNet.getLayers().get(1).copy());
+        GradientDescentTrainer trainer = GradientDescentTrainerBuilder.createTrainer()
+                .withBatchingStrategy(new FixedNumBatchingStrategy(4))
+                .withOptimizationStrategy(new MomentumOptimizationStrategy(0.3, 0.5))
+                .withHaltingStrategy(new FixedIterationsHaltingStrategy(1))
+                .withGradientAccumulation(5)
+                .build();
+
+        trainer.train(neuralNet, newBatch(12));
+
+        assertThat(neuralNet.getLayers().get(0)).isNotEqualTo(before.get(0));
+        assertThat(neuralNet.getLayers().get(1)).isNotEqualTo(before.get(1));
+    }
+
+    private List<SynMatrix> calcGradients(NeuralNet neuralNet, DataSet batch) {
+        ExecutionContext context = neuralNet.trainForward(batch);
+        List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, batch.getLabels(), neuralNet);
+        return gradientCalculator.calcGradients(deltas, context.getNodeValues());
+    }
+}
@@ -5,11 +5,17 @@
  */
 package jmb.jcortex.trainers;
 
+import jmb.jcortex.data.DataSet;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -56,4 +62,34 @@ public class GradientCalculatorTest {
         assertThat(actualGradients).isEqualTo(expectedGradients);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void calcGradients_WithCheckpointedContext_MatchesGradientsFromEveryActivation() {
+        DeltaCalculator deltaCalculator = new DeltaCalculator();
+        GradientCalculator gradientCalculator = new GradientCalculator();
+        DataSet batch = new DataSet(
+                new SynMatrix(new double[][]{{0.1, 0.9}, {-0.4, 0.3}, {0.7, -0.2}}),
+                new SynMatrix(new double[][]{{1, 0}, {0, 1}, {1, 0}}));
+        NeuralNet neuralNet = newNeuralNet(0);
+        ExecutionContext context = neuralNet.trainForward(batch, new XorShiftRandom(2));
+        List<SynMatrix> expected = gradientCalculator.calcGradients(
+                deltaCalculator.calcDeltas(context, batch.getLabels(), neuralNet), context.getNodeValues());
+
+        NeuralNet checkpointed = newNeuralNet(2);
+        List<SynMatrix> actual = gradientCalculator.calcGradients(
+                checkpointed.trainForward(batch, new XorShiftRandom(2)), batch.getLabels(), checkpointed, deltaCalculator);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private NeuralNet newNeuralNet(int checkpointInterval) {
+        return NeuralNetBuilder.createNeuralNet()
+                .withDimensions(2, 4, 3, 4, 2)
+                .withWeightInitializer(matrix -> {
+                    XorShiftRandom random = new XorShiftRandom(matrix.numRows() * 31 + matrix.numCols());
+                    return matrix.apply((DoubleUnaryOperator) value -> random.nextDouble() - 0.5);
+                })
+                .withDropout(0.25)
+                .withActivationCheckpointing(checkpointInterval)
+                .build();
+    }
+}
@@ -7,6 +7,7 @@ package jmb.jcortex.trainers;
 
 import jmb.jcortex.data.DataSet;
 import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
 import jmb.jcortex.neuralnet.NeuralNet;
 import jmb.jcortex.strategies.batchingstrategies.BatchedDataSet;
 import jmb.jcortex.strategies.batchingstrategies.BatchingStrategy;
@@ -22,7 +23,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.Arrays;
 import java.util.List;
 
+import static java.util.Collections.singletonList;
+import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -86,6 +90,7 @@ public class GradientDescentTrainerTest {
                 })
         );
         List<SynMatrix> nodeValues = mock(List.class);
+        ExecutionContext context = mock(ExecutionContext.class);
         SynMatrix labels = mock(SynMatrix.class);
         List<SynMatrix> deltas = mock(List.class);
         List<SynMatrix> gradients = mock(List.class);
@@ -120,9 +125,10 @@ public class GradientDescentTrainerTest {
         when(batch.hasNext()).thenReturn(true, false);  // one batch
         when(batch.getNextBatch()).thenReturn(trainingSet);
         when(trainingSet.getLabels()).thenReturn(labels);
-        when(startingNeuralNet.trainForward(trainingSet)).thenReturn(nodeValues);
+        when(startingNeuralNet.trainForward(trainingSet)).thenReturn(context);
+        when(context.getNodeValues()).thenReturn(nodeValues);
         when(startingNeuralNet.getLayers()).thenReturn(layers);
-        when(deltaCalculator.calcDeltas(nodeValues, labels, startingNeuralNet)).thenReturn(deltas);
+        when(deltaCalculator.calcDeltas(context, labels, startingNeuralNet)).thenReturn(deltas);
         when(gradientCalculator.calcGradients(deltas, nodeValues)).thenReturn(gradients);
         when(optimizationStrategy.calcCorrections(gradients)).thenReturn(corrections);
         ArgumentCaptor<List<SynMatrix>> layerCaptor = ArgumentCaptor.forClass(List.class);
@@ -136,4 +142,29 @@ public class GradientDescentTrainerTest {
         assertThat(actualLayers).isEqualTo(expectedLayers);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void train_RecordsMeanTrainingLoss_WhenHaltingStrategyUsesIt() {
+        NeuralNet neuralNet = new NeuralNet(1, 1);
+        neuralNet.setWeightInitializer(matrix -> SynMatrix.ones(matrix.numRows(), matrix.numCols()));
+        neuralNet.setActivationFunction(LINEAR_MATRIX_FUNCTION);
+        neuralNet.setOutputFunction(LINEAR_MATRIX_FUNCTION);
+        // Each output = feature + 1 (bias), so the errors are 1 and 2 and 0
+        DataSet batch1 = new DataSet(new SynMatrix(new double[][]{{1}, {2}}), new SynMatrix(new double[][]{{1}, {1}}));
+        DataSet batch2 = new DataSet(new SynMatrix(new double[][]{{3}}), new SynMatrix(new double[][]{{4}}));
+
+        when(haltingStrategy.shouldHalt()).thenReturn(false, true);
+        when(haltingStrategy.usesTrainingLoss()).thenReturn(true);
+        when(batchingStrategy.getBatchedDataSet(trainingSet)).thenReturn(batch);
+        when(batch.hasNext()).thenReturn(true, true, false);
+        when(batch.getNextBatch()).thenReturn(batch1, batch2);
+        when(optimizationStrategy.calcCorrections(any())).thenReturn(singletonList(new SynMatrix(2, 1)));
+        gradientDescentTrainer.setDeltaCalculator(new DeltaCalculator());
+        gradientDescentTrainer.setGradientCalculator(new GradientCalculator());
+
+        gradientDescentTrainer.train(neuralNet, trainingSet);
+
+        // Half the squared errors: (0.5 + 2 + 0) / 3 examples
+        verify(haltingStrategy).recordTrainingLoss(2.5 / 3);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
+import jmb.jcortex.strategies.batchingstrategies.FixedNumBatchingStrategy;
+import jmb.jcortex.strategies.batchingstrategies.FullTrainingSetBatchingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.FixedLearningRateOptimizationStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrategy;
+import jmb.jcortex.strategies.regularization.L2Regularization;
+import jmb.jcortex.strategies.weightinitializers.LinearRandomWeightInitializer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class HogwildTrainerTest {
+
+    @Test
+    public void train_ReducesTheTrainingLoss() {
+        LossRecordingHaltingStrategy haltingStrategy = new LossRecordingHaltingStrategy(30);
+        AtomicInteger strategiesCreated = new AtomicInteger();
+        HogwildTrainer trainer = new HogwildTrainer(new FixedNumBatchingStrategy(4), () -> {
+            strategiesCreated.incrementAndGet();
+            return new MomentumOptimizationStrategy(0.05, 0.5);
+        }, haltingStrategy, 3);
+
+        NeuralNet trained = trainer.train(newNeuralNet(), newTrainingSet());
+
+        assertThat(trained).isNotNull();
+        assertThat(strategiesCreated.get()).isEqualTo(3);
+        assertThat(haltingStrategy.evaluations).isEqualTo(31);
+        assertThat(haltingStrategy.losses).hasSize(30);
+        assertThat(haltingStrategy.losses.get(29)).isLessThan(haltingStrategy.losses.get(0) / 2);
+    }
+
+    @Test
+    public void train_WithMoreWorkersThanBatches_TrainsEveryBatchOnce() {
+        LossRecordingHaltingStrategy haltingStrategy = new LossRecordingHaltingStrategy(1);
+        HogwildTrainer trainer = new HogwildTrainer(new FixedNumBatchingStrategy(16),
+                () -> new MomentumOptimizationStrategy(0.05, 0.5), haltingStrategy, 4);
+
+        // Counts the batches by their labels, which are a different matrix for each batch
+        Map<SynMatrix, Integer> timesTrained = Collections.synchronizedMap(new IdentityHashMap<>());
+        trainer.setDeltaCalculator(new DeltaCalculator() {
+            @Override
+            public List<SynMatrix> calcDeltas(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet) {
+                timesTrained.merge(labels, 1, Integer::sum);
+                return super.calcDeltas(context, labels, neuralNet);
+            }
+        });
+
+        trainer.train(newNeuralNet(), newTrainingSet());
+
+        // 32 rows in batches of 16
+        assertThat(timesTrained).hasSize(2);
+        assertThat(timesTrained.values()).containsOnly(1);
+        assertThat(haltingStrategy.losses).hasSize(1);
+    }
+
+    @Test
+    public void train_WithOneWorkerAndAWeightAdjuster_MatchesGradientDescentTrainer() {
+        NeuralNet expected = newNeuralNet();
+        NeuralNet actual = expected.copy();
+        GradientDescentTrainer gradientDescentTrainer = new GradientDescentTrainer(
+                new FullTrainingSetBatchingStrategy(), new FixedLearningRateOptimizationStrategy(0.1),
+                new LossRecordingHaltingStrategy(3));
+        gradientDescentTrainer.setWeightAdjuster(new L2Regularization(2));
+        HogwildTrainer trainer = new HogwildTrainer(new FullTrainingSetBatchingStrategy(),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(3), 1);
+        trainer.setWeightAdjuster(new L2Regularization(2));
+
+        gradientDescentTrainer.train(expected, newTrainingSet());
+        trainer.train(actual, newTrainingSet());
+
+        for (int i = 0; i < expected.getLayers().size(); i++) {
+            assertThat(actual.getLayers().get(i).getAll())
+                    .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    private NeuralNet newNeuralNet() {
+        return NeuralNetBuilder.createNeuralNet()
+                .withDimensions(2, 4, 1)
+                .withActivationFunction(LINEAR_MATRIX_FUNCTION)
+                .withOutputFunction(LINEAR_MATRIX_FUNCTION)
+                .withWeightInitializer(new LinearRandomWeightInitializer(-0.5, 0.5))
+                .build();
+    }
+
+    /** y = x1 - 2 * x2 + 0.5 */
+    private DataSet newTrainingSet() {
+        double[][] features = new double[32][];
+        double[][] labels = new double[32][];
+        for (int row = 0; row < 32; row++) {
+            double x1 = (row % 8) / 8.0;
+            double x2 = (row / 8) / 4.0;
+            features[row] = new double[]{x1, x2};
+            labels[row] = new double[]{x1 - 2 * x2 + 0.5};
+        }
+        return new DataSet(new SynMatrix(features), new SynMatrix(labels));
+    }
+}
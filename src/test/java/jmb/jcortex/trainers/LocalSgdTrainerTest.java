@@ -0,0 +1,144 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.FixedNumBatchingStrategy;
+import jmb.jcortex.strategies.batchingstrategies.FullTrainingSetBatchingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.FixedLearningRateOptimizationStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrategy;
+import jmb.jcortex.strategies.regularization.L2Regularization;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class LocalSgdTrainerTest {
+
+    private DataSet trainingSet = newTrainingSet();
+
+    @Test(timeout = 30000)
+    public void train_AveragingEveryBatchOfEqualBatches_MatchesFullBatchGradientDescent() {
+        NeuralNet expected = newNeuralNet();
+        for (int step = 0; step < 4; step++) {
+            ExecutionContext context = expected.trainForward(trainingSet);
+            List<SynMatrix> deltas = new DeltaCalculator().calcDeltas(context, trainingSet.getLabels(), expected);
+            List<SynMatrix> gradients = new GradientCalculator().calcGradients(deltas, context.getNodeValues());
+            for (int i = 0; i < gradients.size(); i++) {
+                expected.getLayers().get(i).minusInPlace(gradients.get(i).elementMult(0.1));
+            }
+        }
+        // Two batches of 6, one per worker, so the average of the two steps is one full batch step
+        LocalSgdTrainer trainer = new LocalSgdTrainer(new FixedNumBatchingStrategy(6),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(4), 2, 1);
+
+        NeuralNet trained = trainer.train(newNeuralNet(), trainingSet);
+
+        for (int i = 0; i < expected.getLayers().size(); i++) {
+            assertThat(trained.getLayers().get(i).getAll())
+                    .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithOneWorkerAndAWeightAdjuster_MatchesGradientDescentTrainer() {
+        GradientDescentTrainer gradientDescentTrainer = new GradientDescentTrainer(
+                new FullTrainingSetBatchingStrategy(), new FixedLearningRateOptimizationStrategy(0.1),
+                new LossRecordingHaltingStrategy(3));
+        gradientDescentTrainer.setWeightAdjuster(new L2Regularization(2));
+        LocalSgdTrainer trainer = new LocalSgdTrainer(new FullTrainingSetBatchingStrategy(),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(3), 1, 1);
+        trainer.setWeightAdjuster(new L2Regularization(2));
+
+        NeuralNet expected = gradientDescentTrainer.train(newNeuralNet(), trainingSet);
+        NeuralNet trained = trainer.train(newNeuralNet(), trainingSet);
+
+        for (int i = 0; i < expected.getLayers().size(); i++) {
+            assertThat(trained.getLayers().get(i).getAll())
+                    .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithFewerBatchesThanWorkers_MatchesASingleWorkersSteps() {
+        LocalSgdTrainer singleWorker = new LocalSgdTrainer(new FullTrainingSetBatchingStrategy(),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(3), 1, 1);
+        // One batch per iteration, so three of the four workers have nothing to train
+        LocalSgdTrainer fourWorkers = new LocalSgdTrainer(new FullTrainingSetBatchingStrategy(),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(3), 4, 1);
+
+        NeuralNet expected = singleWorker.train(newNeuralNet(), trainingSet);
+        NeuralNet trained = fourWorkers.train(newNeuralNet(), trainingSet);
+
+        for (int i = 0; i < expected.getLayers().size(); i++) {
+            assertThat(trained.getLayers().get(i).getAll())
+                    .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_AveragingEveryFewBatches_ReducesTheTrainingLoss() {
+        LossRecordingHaltingStrategy haltingStrategy = new LossRecordingHaltingStrategy(30);
+        LocalSgdTrainer trainer = new LocalSgdTrainer(new FixedNumBatchingStrategy(1),
+                () -> new MomentumOptimizationStrategy(0.3, 0.5), haltingStrategy, 3, 2);
+
+        trainer.train(newNeuralNet(), trainingSet);
+
+        assertThat(haltingStrategy.evaluations).isEqualTo(31);
+        assertThat(haltingStrategy.losses.get(29)).isLessThan(haltingStrategy.losses.get(0) / 2);
+    }
+
+    @Test(timeout = 30000)
+    public void setAveragingInterval_AdaptsTheNumberOfBatchesBetweenAveragings() {
+        LocalSgdTrainer shortInterval = newIntervalTrainer(1, TimeUnit.NANOSECONDS);
+        LocalSgdTrainer longInterval = newIntervalTrainer(1, TimeUnit.HOURS);
+
+        shortInterval.train(newNeuralNet(), trainingSet);
+        longInterval.train(newNeuralNet(), trainingSet);
+
+        assertThat(shortInterval.getAverageEveryBatches()).isEqualTo(1);
+        assertThat(longInterval.getAverageEveryBatches()).isGreaterThan(4);
+    }
+
+    @Test(timeout = 30000)
+    public void train_WhenAWorkerFails_ThrowsItsException() {
+        LocalSgdTrainer trainer = new LocalSgdTrainer(new FullTrainingSetBatchingStrategy(),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(2), 3, 1);
+        trainer.setDeltaCalculator(new DeltaCalculator() {
+            @Override
+            public List<SynMatrix> calcDeltas(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet) {
+                throw new IllegalArgumentException("Failed on purpose");
+            }
+        });
+
+        assertThatThrownBy(() -> trainer.train(newNeuralNet(), trainingSet))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Failed on purpose");
+    }
+
+    private LocalSgdTrainer newIntervalTrainer(long interval, TimeUnit unit) {
+        LocalSgdTrainer trainer = new LocalSgdTrainer(new FixedNumBatchingStrategy(1),
+                () -> new FixedLearningRateOptimizationStrategy(0.1), new LossRecordingHaltingStrategy(2), 2, 4);
+        trainer.setAveragingInterval(interval, unit);
+        return trainer;
+    }
+
+    private static NeuralNet newNeuralNet() {
+        return TrainingFixtures.newNeuralNet(SIGMOID_MATRIX_FUNCTION);
+    }
+
+    private static DataSet newTrainingSet() {
+        return TrainingFixtures.newTrainingSet((x1, x2) -> x1 - 2 * x2 + 0.5);
+    }
+}
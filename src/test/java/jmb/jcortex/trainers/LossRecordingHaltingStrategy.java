@@ -0,0 +1,51 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.haltingstrategies.HaltingStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Halts after a fixed number of iterations, recording each iteration's training loss. Returns the latest net. */
+class LossRecordingHaltingStrategy implements HaltingStrategy {
+    final List<Double> losses = new ArrayList<>();
+    int evaluations;
+    private final int maxIterations;
+    private NeuralNet latest;
+
+    LossRecordingHaltingStrategy(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    @Override
+    public boolean shouldHalt() {
+        return losses.size() >= maxIterations;
+    }
+
+    @Override
+    public double evaluate(NeuralNet neuralNet) {
+        evaluations++;
+        latest = neuralNet;
+        return 0;
+    }
+
+    @Override
+    public NeuralNet getBestNeuralNet() {
+        return latest;
+    }
+
+    @Override
+    public boolean usesTrainingLoss() {
+        return true;
+    }
+
+    @Override
+    public void recordTrainingLoss(double loss) {
+        losses.add(loss);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.optimizationstrategies.FixedLearningRateOptimizationStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.MomentumOptimizationStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.OptimizationStrategy;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+
+import static jmb.jcortex.trainers.TrainingFixtures.newBatch;
+import static jmb.jcortex.trainers.TrainingFixtures.newNeuralNet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class PipelinedBackPropagationTest {
+
+    private DeltaCalculator deltaCalculator = new DeltaCalculator();
+    private GradientCalculator gradientCalculator = new GradientCalculator();
+
+    @Test
+    public void calcGradients_MatchesSequentialBackPropagation() {
+        NeuralNet neuralNet = newNeuralNet(23, 3, 6, 4, 2);
+        DataSet batch = newBatch(9);
+        ExecutionContext context = neuralNet.trainForward(batch);
+        List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, batch.getLabels(), neuralNet);
+        List<SynMatrix> expected = gradientCalculator.calcGradients(deltas, context.getNodeValues());
+
+        List<SynMatrix> actual = new PipelinedBackPropagation(3)
+                .calcGradients(neuralNet, context, batch.getLabels(), deltaCalculator, gradientCalculator);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void backPropagate_WithMomentum_MatchesSequentialUpdates() {
+        assertMatchesSequentialUpdates(new MomentumOptimizationStrategy(0.3, 0.8), new MomentumOptimizationStrategy(0.3, 0.8));
+    }
+
+    @Test
+    public void backPropagate_WithFixedLearningRate_MatchesSequentialUpdates() {
+        assertMatchesSequentialUpdates(new FixedLearningRateOptimizationStrategy(0.5), new FixedLearningRateOptimizationStrategy(0.5));
+    }
+
+    private void assertMatchesSequentialUpdates(OptimizationStrategy sequentialStrategy, OptimizationStrategy pipelinedStrategy) {
+        NeuralNet sequential = newNeuralNet(23, 3, 6, 4, 2);
+        NeuralNet pipelined = newNeuralNet(23, 3, 6, 4, 2);
+        PipelinedBackPropagation pipeline = new PipelinedBackPropagation(4);
+        DataSet batch = newBatch(9);
+
+        for (int step = 0; step < 5; step++) {
+            ExecutionContext context = sequential.trainForward(batch);
+            List<SynMatrix> deltas = deltaCalculator.calcDeltas(context, batch.getLabels(), sequential);
+            List<SynMatrix> gradients = gradientCalculator.calcGradients(deltas, context.getNodeValues());
+            List<SynMatrix> corrections = sequentialStrategy.calcCorrections(gradients);
+            for (int i = 0; i < corrections.size(); i++) {
+                sequential.getLayers().get(i).minusInPlace(corrections.get(i));
+            }
+
+            pipelined.setLayers(pipeline.backPropagate(pipelined, pipelined.trainForward(batch), batch.getLabels(),
+                    deltaCalculator, gradientCalculator, pipelinedStrategy, SynMatrix::minusInPlace));
+        }
+
+        for (int i = 0; i < sequential.getLayers().size(); i++) {
+            assertThat(pipelined.getLayers().get(i).getAll())
+                    .containsExactly(sequential.getLayers().get(i).getAll(), offset(1e-12));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void backPropagate_WhenTheDeltasFailPartway_RethrowsTheFailure_AfterSettlingEveryUpdate() {
+        NeuralNet neuralNet = newNeuralNet(23, 3, 6, 4, 2);
+        DataSet batch = newBatch(9);
+        int outputLayer = neuralNet.getLayers().size() - 1;
+        DeltaCalculator failing = new DeltaCalculator() {
+            @Override
+            public void calcDeltas(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet,
+                                   ObjIntConsumer<SynMatrix> listener) {
+                super.calcDeltas(context, labels, neuralNet, (deltas, layer) -> {
+                    listener.accept(deltas, layer);
+                    if (layer == outputLayer) throw new IllegalStateException("Deltas failed");
+                });
+            }
+        };
+        AtomicInteger updates = new AtomicInteger();
+
+        assertThatThrownBy(() -> new PipelinedBackPropagation(2).backPropagate(neuralNet,
+                neuralNet.trainForward(batch), batch.getLabels(), failing, gradientCalculator,
+                new FixedLearningRateOptimizationStrategy(0.5), (weights, correction) -> {
+                    updates.incrementAndGet();
+                    return weights.minusInPlace(correction);
+                }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Deltas failed");
+        // The output layer's weights were never released, so its update failed rather than waiting forever
+        assertThat(updates.get()).isZero();
+    }
+
+    @Test
+    public void trainer_WithStrategyWithoutLayerCorrections_FallsBackToCalcCorrections() {
+        OptimizationStrategy allLayersOnly = new OptimizationStrategy() {
+            private final OptimizationStrategy delegate = new FixedLearningRateOptimizationStrategy(0.5);
+
+            @Override
+            public List<SynMatrix> calcCorrections(List<SynMatrix> gradients) {
+                return delegate.calcCorrections(gradients);
+            }
+
+            @Override
+            public double getLearningRate() {
+                return delegate.getLearningRate();
+            }
+        };
+        NeuralNet sequential = newNeuralNet(23, 3, 6, 4, 2);
+        NeuralNet pipelined = newNeuralNet(23, 3, 6, 4, 2);
+        DataSet trainingSet = newBatch(9);
+
+        GradientDescentTrainerBuilder.createTrainer()
+                .withOptimizationStrategy(new FixedLearningRateOptimizationStrategy(0.5))
+                .withHaltingStrategy(new FixedIterationsHaltingStrategy(4))
+                .build()
+                .train(sequential, trainingSet);
+        GradientDescentTrainerBuilder.createTrainer()
+                .withOptimizationStrategy(allLayersOnly)
+                .withHaltingStrategy(new FixedIterationsHaltingStrategy(4))
+                .withPipelinedBackPropagation(3)
+                .build()
+                .train(pipelined, trainingSet);
+
+        for (int i = 0; i < sequential.getLayers().size(); i++) {
+            assertThat(pipelined.getLayers().get(i).getAll())
+                    .containsExactly(sequential.getLayers().get(i).getAll(), offset(1e-12));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.data.XorShiftRandom;
+import jmb.jcortex.mapfunctions.DifferentiableMatrixFunction;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
+import jmb.jcortex.strategies.weightinitializers.WeightInitializer;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
+
+/**
+ * A small network and training set shared by the trainer tests, with fixed values so that runs can be compared
+ * exactly.
+ */
+public final class TrainingFixtures {
+
+    private TrainingFixtures() {
+    }
+
+    /** A 2-3-1 network with a linear output and the same starting weights every time. */
+    public static NeuralNet newNeuralNet(DifferentiableMatrixFunction activationFunction) {
+        NeuralNet neuralNet = NeuralNetBuilder.createNeuralNet()
+                .withDimensions(2, 3, 1)
+                .withActivationFunction(activationFunction)
+                .withOutputFunction(LINEAR_MATRIX_FUNCTION)
+                .build();
+        neuralNet.setLayers(Arrays.asList(
+                new SynMatrix(new double[][]{{0.1, -0.2, 0.3}, {0.4, 0.1, -0.3}, {-0.2, 0.5, 0.2}}),
+                new SynMatrix(new double[][]{{0.1}, {0.3}, {-0.4}, {0.2}})));
+        return neuralNet;
+    }
+
+    /** 12 rows over a 4 x 3 grid of (x1, x2) in [0, 1), each labelled with target(x1, x2). */
+    public static DataSet newTrainingSet(DoubleBinaryOperator target) {
+        double[][] features = new double[12][];
+        double[][] labels = new double[12][];
+        for (int row = 0; row < 12; row++) {
+            double x1 = (row % 4) / 4.0;
+            double x2 = (row / 4) / 3.0;
+            features[row] = new double[]{x1, x2};
+            labels[row] = new double[]{target.applyAsDouble(x1, x2)};
+        }
+        return new DataSet(new SynMatrix(features), new SynMatrix(labels));
+    }
+
+    /** A network with weights drawn uniformly from [-1, 1) by a seeded generator, the same every time. */
+    public static NeuralNet newNeuralNet(long seed, int... dimensions) {
+        return newNeuralNetBuilder(seed, dimensions).build();
+    }
+
+    /** A builder for newNeuralNet(seed, dimensions), for tests that need other options as well. */
+    public static NeuralNetBuilder newNeuralNetBuilder(long seed, int... dimensions) {
+        return NeuralNetBuilder.createNeuralNet()
+                .withDimensions(dimensions)
+                .withWeightInitializer(seededWeightInitializer(seed));
+    }
+
+    /** rows rows of 3 features, each labelled with one of 2 classes in turn. */
+    public static DataSet newBatch(int rows) {
+        double[][] features = new double[rows][3];
+        double[][] labels = new double[rows][2];
+        for (int row = 0; row < rows; row++) {
+            features[row] = new double[]{row * 0.1, 1 - row * 0.2, (row % 3) - 1};
+            labels[row][row % 2] = 1;
+        }
+        return new DataSet(new SynMatrix(features), new SynMatrix(labels));
+    }
+
+    /**
+     * The layers are initialized in parallel, so each one gets its own generator, seeded from the seed and the
+     * layer's shape. Layers of the same shape start with the same weights.
+     */
+    private static WeightInitializer seededWeightInitializer(long seed) {
+        return matrix -> {
+            XorShiftRandom random = new XorShiftRandom(seed ^ ((long) matrix.numRows() << 32 | matrix.numCols()));
+            for (int row = 0; row < matrix.numRows(); row++) {
+                for (int col = 0; col < matrix.numCols(); col++) {
+                    matrix.set(row, col, random.nextDouble() * 2 - 1);
+                }
+            }
+            return matrix;
+        };
+    }
+}
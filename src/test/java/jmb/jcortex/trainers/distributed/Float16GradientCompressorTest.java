@@ -0,0 +1,97 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.XorShiftRandom;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Float16GradientCompressorTest {
+
+    private Float16GradientCompressor compressor = new Float16GradientCompressor();
+
+    @Test
+    public void writeAndRead_KeepAboutThreeSignificantDigitsInAQuarterOfTheBytes() throws IOException {
+        double[] gradients = new double[1000];
+        XorShiftRandom random = new XorShiftRandom(3);
+        for (int i = 0; i < gradients.length; i++) {
+            // Small gradients, below the smallest normal half precision value
+            gradients[i] = (random.nextDouble() - 0.5) * 1e-5;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), gradients, 0, gradients.length);
+
+        double[] received = new double[gradients.length];
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 0, received.length);
+
+        assertThat(bytes.size()).isLessThan(gradients.length * Double.BYTES / 3);
+        double largest = Float16GradientCompressor.maxMagnitude(gradients, 0, gradients.length);
+        for (int i = 0; i < gradients.length; i++) {
+            assertThat(Math.abs(received[i] - gradients[i])).isLessThanOrEqualTo(largest / 1024);
+        }
+    }
+
+    @Test
+    public void writeAndRead_OfZeros_GivesZeros() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), new double[10], 0, 10);
+        double[] received = {1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
+
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 1, 11);
+
+        assertThat(received).containsExactly(1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1);
+    }
+
+    @Test
+    public void toHalf_RoundsLikeIeeeHalfPrecision() {
+        assertThat(Float16GradientCompressor.toHalf(1f)).isEqualTo((short) 0x3c00);
+        assertThat(Float16GradientCompressor.toHalf(-2f)).isEqualTo((short) 0xc000);
+        assertThat(Float16GradientCompressor.toHalf(65504f)).isEqualTo((short) 0x7bff);
+        assertThat(Float16GradientCompressor.toHalf(1e6f)).isEqualTo((short) 0x7c00);
+        assertThat(Float16GradientCompressor.toHalf(0x1p-24f)).isEqualTo((short) 0x0001);
+        // Halfway between 1 and the next half, so rounds to the even 1
+        assertThat(Float16GradientCompressor.toHalf(1f + 0x1p-11f)).isEqualTo((short) 0x3c00);
+        assertThat(Float16GradientCompressor.toHalf(1f + 0x1p-11f + 0x1p-20f)).isEqualTo((short) 0x3c01);
+    }
+
+    @Test
+    public void fromHalf_InvertsToHalfForEveryFiniteHalf() {
+        for (int bits = 0; bits < 0x10000; bits++) {
+            if ((bits & 0x7c00) == 0x7c00) continue;
+            float value = Float16GradientCompressor.fromHalf((short) bits);
+            assertThat(Float16GradientCompressor.toHalf(value) & 0xffff).isEqualTo(bits);
+        }
+    }
+
+    @Test
+    public void writeAndRead_OfDecodedValues_GiveTheSameValues() throws IOException {
+        assertThat(compressor.isExactlyReencodable()).isTrue();
+        double[] gradients = new double[1000];
+        XorShiftRandom random = new XorShiftRandom(5);
+        for (int i = 0; i < gradients.length; i++) {
+            gradients[i] = (random.nextDouble() - 0.5) * 1e-3;
+        }
+
+        double[] decoded = roundTrip(gradients);
+
+        assertThat(roundTrip(decoded)).containsExactly(decoded);
+    }
+
+    private double[] roundTrip(double[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), values, 0, values.length);
+        double[] received = new double[values.length];
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 0, received.length);
+        return received;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.XorShiftRandom;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+public class Int8GradientCompressorTest {
+
+    private Int8GradientCompressor compressor = new Int8GradientCompressor();
+
+    @Test
+    public void writeAndRead_AreWithinHalfAStepInAnEighthOfTheBytes() throws IOException {
+        double[] gradients = new double[1000];
+        XorShiftRandom random = new XorShiftRandom(3);
+        for (int i = 0; i < gradients.length; i++) {
+            gradients[i] = (random.nextDouble() - 0.5) * 0.02;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), gradients, 0, gradients.length);
+
+        double[] received = new double[gradients.length];
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 0, received.length);
+
+        assertThat(bytes.size()).isLessThan(gradients.length * Double.BYTES / 7);
+        for (int start = 0; start < gradients.length; start += Int8GradientCompressor.BLOCK_VALUES) {
+            int end = Math.min(gradients.length, start + Int8GradientCompressor.BLOCK_VALUES);
+            double halfStep = Float16GradientCompressor.maxMagnitude(gradients, start, end) / 254;
+            for (int i = start; i < end; i++) {
+                assertThat(Math.abs(received[i] - gradients[i])).isLessThanOrEqualTo(halfStep * 1.0001);
+            }
+        }
+    }
+
+    @Test
+    public void writeAndRead_KeepTheLargestValueOfEachBlock() throws IOException {
+        double[] gradients = {0.5, -2, 1e-3, 0};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), gradients, 0, gradients.length);
+
+        double[] received = new double[4];
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 0, 4);
+
+        assertThat(received[1]).isCloseTo(-2, offset(1e-6));
+        assertThat(received[3]).isEqualTo(0);
+    }
+
+    @Test
+    public void writeAndRead_OfDecodedValues_GiveTheSameValues() throws IOException {
+        assertThat(compressor.isExactlyReencodable()).isTrue();
+        double[] gradients = new double[1000];
+        XorShiftRandom random = new XorShiftRandom(5);
+        for (int i = 0; i < gradients.length; i++) {
+            gradients[i] = (random.nextDouble() - 0.5) * 0.02;
+        }
+
+        double[] decoded = roundTrip(gradients);
+
+        assertThat(roundTrip(decoded)).containsExactly(decoded);
+    }
+
+    private double[] roundTrip(double[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), values, 0, values.length);
+        double[] received = new double[values.length];
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 0, received.length);
+        return received;
+    }
+}
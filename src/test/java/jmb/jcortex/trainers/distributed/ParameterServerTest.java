@@ -0,0 +1,281 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.neuralnet.NeuralNetBuilder;
+import jmb.jcortex.strategies.batchingstrategies.FixedNumBatchingStrategy;
+import jmb.jcortex.strategies.batchingstrategies.FullTrainingSetBatchingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.FixedLearningRateOptimizationStrategy;
+import jmb.jcortex.trainers.DeltaCalculator;
+import jmb.jcortex.trainers.GradientCalculator;
+import jmb.jcortex.trainers.TrainingFixtures;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.LINEAR_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class ParameterServerTest {
+
+    private DataSet trainingSet = newTrainingSet();
+
+    @Test(timeout = 30000)
+    public void synchronous_MatchesFullBatchGradientDescent() throws Exception {
+        NeuralNet expected = trainFullBatch(newNeuralNet(), 5);
+
+        try (ParameterServer server = ParameterServer.synchronous(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.1), 2).start(0)) {
+            // Uneven shards, to check each worker's gradient is weighted by its number of examples
+            CompletableFuture<NeuralNet> first = trainInBackground(server, trainingSet.sliceRows(0, 5), 5);
+            CompletableFuture<NeuralNet> second = trainInBackground(server, trainingSet.sliceRows(5, 12), 5);
+            NeuralNet trained = server.awaitCompletion();
+
+            assertThat(server.getVersion()).isEqualTo(5);
+            assertSameWeights(trained, expected);
+            assertSameWeights(first.get(), expected);
+            assertSameWeights(second.get(), expected);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void synchronous_WithCheckpointedActivations_StreamsTheDeltas() throws Exception {
+        NeuralNet expected = trainFullBatch(newNeuralNet(), 3);
+        // Fails if the worker backpropagates through the list of every layer's deltas
+        DeltaCalculator streamingOnly = new DeltaCalculator() {
+            @Override
+            public List<SynMatrix> calcDeltas(ExecutionContext context, SynMatrix labels, NeuralNet neuralNet) {
+                throw new AssertionError("Expected the deltas to be streamed");
+            }
+        };
+
+        try (ParameterServer server = ParameterServer.synchronous(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.1), 1).start(0)) {
+            ParameterServerWorker worker = new ParameterServerWorker("localhost", server.getPort(),
+                    new FullTrainingSetBatchingStrategy(), 3);
+            worker.setDeltaCalculator(streamingOnly);
+            NeuralNet checkpointed = newNeuralNet();
+            checkpointed.setCheckpointInterval(1);
+
+            worker.train(checkpointed, trainingSet);
+
+            assertSameWeights(server.awaitCompletion(), expected);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void boundedStaleness_HoldsBackWorkersThatGetTooFarAhead() throws Exception {
+        try (ParameterServer server = ParameterServer.boundedStaleness(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.1), 2, 1).start(0);
+             Socket slowWorker = new Socket("localhost", server.getPort())) {
+            DataOutputStream slowOut = new DataOutputStream(slowWorker.getOutputStream());
+            slowOut.writeInt(ParameterServer.MAGIC);
+            slowOut.writeInt(ParameterServer.VERSION);
+            slowOut.writeInt(newNeuralNet().getParameters().size());
+            slowOut.writeUTF(new NoGradientCompressor().getName());
+            slowOut.writeUTF(new NoGradientCompressor().getName());
+            new DataInputStream(slowWorker.getInputStream()).readInt();
+
+            // 12 batches of 1, but only 2 pushes can be applied before the slow worker's first
+            CompletableFuture<NeuralNet> fastWorker = CompletableFuture.supplyAsync(() ->
+                    new ParameterServerWorker("localhost", server.getPort(), new FixedNumBatchingStrategy(1), 1)
+                            .train(newNeuralNet(), trainingSet));
+            waitForVersion(server, 2);
+            Thread.sleep(200);
+            assertThat(server.getVersion()).isEqualTo(2);
+            assertThat(fastWorker.isDone()).isFalse();
+
+            slowOut.writeByte(ParameterServer.DONE);
+            slowOut.flush();
+            fastWorker.get(10, TimeUnit.SECONDS);
+            server.awaitCompletion();
+
+            assertThat(server.getVersion()).isEqualTo(12);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void boundedStaleness_ReducesTheLoss() throws Exception {
+        NeuralNet start = newNeuralNet();
+        double startingLoss = loss(start);
+        try (ParameterServer server = ParameterServer.boundedStaleness(start,
+                new FixedLearningRateOptimizationStrategy(0.05), 3, 2).start(0)) {
+            trainInBackground(server, trainingSet.sliceRows(0, 4), 20, 2);
+            trainInBackground(server, trainingSet.sliceRows(4, 8), 20, 2);
+            trainInBackground(server, trainingSet.sliceRows(8, 12), 20, 2);
+
+            NeuralNet trained = server.awaitCompletion();
+
+            assertThat(server.getVersion()).isEqualTo(3 * 20 * 2);
+            assertThat(loss(trained)).isLessThan(startingLoss / 2);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithADifferentlyShapedNeuralNet_Fails() throws Exception {
+        try (ParameterServer server = ParameterServer.synchronous(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.1), 1).start(0)) {
+            NeuralNet otherShape = NeuralNetBuilder.createNeuralNet().withDimensions(2, 4, 1).build();
+            ParameterServerWorker worker = new ParameterServerWorker("localhost", server.getPort(),
+                    new FullTrainingSetBatchingStrategy(), 1);
+
+            assertThatThrownBy(() -> worker.train(otherShape, trainingSet)).isInstanceOf(UncheckedIOException.class);
+            assertThatThrownBy(server::awaitCompletion)
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("parameters");
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void synchronous_WithCompressedGradients_TrainsAsWellAsUncompressed() throws Exception {
+        double uncompressedLoss = loss(trainSynchronously(NoGradientCompressor::new, NoGradientCompressor::new));
+        double compressedLoss = loss(trainSynchronously(Int8GradientCompressor::new, NoGradientCompressor::new));
+
+        assertThat(uncompressedLoss).isLessThan(loss(newNeuralNet()) / 2);
+        assertThat(compressedLoss).isCloseTo(uncompressedLoss, offset(uncompressedLoss * 0.02));
+    }
+
+    @Test(timeout = 30000)
+    public void synchronous_WithCompressedWeights_KeepsTheWorkersCloseToTheServer() throws Exception {
+        double uncompressedLoss = loss(trainSynchronously(NoGradientCompressor::new, NoGradientCompressor::new));
+        List<NeuralNet> workers = new ArrayList<>();
+        NeuralNet trained = trainSynchronously(Int8GradientCompressor::new, Int8GradientCompressor::new, workers);
+
+        assertThat(loss(trained)).isCloseTo(uncompressedLoss, offset(uncompressedLoss * 0.02));
+        // The rounding of each change is carried into the next, so it doesn't build up over the 100 steps
+        for (NeuralNet worker : workers) {
+            for (int i = 0; i < trained.getLayers().size(); i++) {
+                assertThat(worker.getLayers().get(i).getAll())
+                        .containsExactly(trained.getLayers().get(i).getAll(), offset(1e-3));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithADifferentWeightCompressor_Fails() throws Exception {
+        try (ParameterServer server = ParameterServer.synchronous(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.1), 1).withWeightCompressor(Int8GradientCompressor::new).start(0)) {
+            ParameterServerWorker worker = new ParameterServerWorker("localhost", server.getPort(),
+                    new FullTrainingSetBatchingStrategy(), 1);
+
+            assertThatThrownBy(() -> worker.train(newNeuralNet(), trainingSet)).isInstanceOf(UncheckedIOException.class);
+            assertThatThrownBy(server::awaitCompletion)
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining(Int8GradientCompressor.class.getName());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithADifferentCompressor_Fails() throws Exception {
+        try (ParameterServer server = ParameterServer.synchronous(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.1), 1).withGradientCompressor(new Int8GradientCompressor()).start(0)) {
+            ParameterServerWorker worker = new ParameterServerWorker("localhost", server.getPort(),
+                    new FullTrainingSetBatchingStrategy(), 1);
+
+            assertThatThrownBy(() -> worker.train(newNeuralNet(), trainingSet)).isInstanceOf(UncheckedIOException.class);
+            assertThatThrownBy(server::awaitCompletion)
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining(Int8GradientCompressor.class.getName());
+        }
+    }
+
+    private NeuralNet trainSynchronously(Supplier<GradientCompressor> gradientCompressors,
+                                         Supplier<GradientCompressor> weightCompressors) throws Exception {
+        return trainSynchronously(gradientCompressors, weightCompressors, new ArrayList<>());
+    }
+
+    /** Trains with 2 workers for 100 steps, adding the workers' final nets to workers. */
+    private NeuralNet trainSynchronously(Supplier<GradientCompressor> gradientCompressors,
+                                         Supplier<GradientCompressor> weightCompressors,
+                                         List<NeuralNet> workers) throws Exception {
+        try (ParameterServer server = ParameterServer.synchronous(newNeuralNet(),
+                new FixedLearningRateOptimizationStrategy(0.2), 2)
+                .withGradientCompressor(gradientCompressors.get())
+                .withWeightCompressor(weightCompressors)
+                .start(0)) {
+            List<CompletableFuture<NeuralNet>> trained = new ArrayList<>();
+            for (DataSet shard : Arrays.asList(trainingSet.sliceRows(0, 6), trainingSet.sliceRows(6, 12))) {
+                trained.add(CompletableFuture.supplyAsync(() -> {
+                    ParameterServerWorker worker = new ParameterServerWorker("localhost", server.getPort(),
+                            new FullTrainingSetBatchingStrategy(), 100);
+                    worker.setGradientCompressor(gradientCompressors.get());
+                    worker.setWeightCompressor(weightCompressors.get());
+                    return worker.train(newNeuralNet(), shard);
+                }));
+            }
+            NeuralNet neuralNet = server.awaitCompletion();
+            for (CompletableFuture<NeuralNet> worker : trained) {
+                workers.add(worker.get());
+            }
+            return neuralNet;
+        }
+    }
+
+    private CompletableFuture<NeuralNet> trainInBackground(ParameterServer server, DataSet shard, int iterations) {
+        return CompletableFuture.supplyAsync(() -> new ParameterServerWorker("localhost", server.getPort(),
+                new FullTrainingSetBatchingStrategy(), iterations).train(newNeuralNet(), shard));
+    }
+
+    private CompletableFuture<NeuralNet> trainInBackground(ParameterServer server, DataSet shard, int iterations,
+                                                           int batchSize) {
+        return CompletableFuture.supplyAsync(() -> new ParameterServerWorker("localhost", server.getPort(),
+                new FixedNumBatchingStrategy(batchSize), iterations).train(newNeuralNet(), shard));
+    }
+
+    private NeuralNet trainFullBatch(NeuralNet neuralNet, int steps) {
+        for (int step = 0; step < steps; step++) {
+            ExecutionContext context = neuralNet.trainForward(trainingSet);
+            List<SynMatrix> deltas = new DeltaCalculator().calcDeltas(context, trainingSet.getLabels(), neuralNet);
+            List<SynMatrix> gradients = new GradientCalculator().calcGradients(deltas, context.getNodeValues());
+            for (int i = 0; i < gradients.size(); i++) {
+                neuralNet.getLayers().get(i).minusInPlace(gradients.get(i).elementMult(0.1));
+            }
+        }
+        return neuralNet;
+    }
+
+    private static void waitForVersion(ParameterServer server, long version) throws InterruptedException {
+        while (server.getVersion() < version) {
+            Thread.sleep(5);
+        }
+    }
+
+    private double loss(NeuralNet neuralNet) {
+        return neuralNet.getLossFunction().calcLoss(neuralNet.analyzeData(trainingSet), trainingSet.getLabels());
+    }
+
+    private static void assertSameWeights(NeuralNet actual, NeuralNet expected) {
+        for (int i = 0; i < expected.getLayers().size(); i++) {
+            assertThat(actual.getLayers().get(i).getAll())
+                    .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-9));
+        }
+    }
+
+    private static NeuralNet newNeuralNet() {
+        return TrainingFixtures.newNeuralNet(LINEAR_MATRIX_FUNCTION);
+    }
+
+    /** y = x1 - 2 * x2 + 0.5 */
+    private static DataSet newTrainingSet() {
+        return TrainingFixtures.newTrainingSet((x1, x2) -> x1 - 2 * x2 + 0.5);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.DataSet;
+import jmb.jcortex.data.SynMatrix;
+import jmb.jcortex.neuralnet.ExecutionContext;
+import jmb.jcortex.neuralnet.NeuralNet;
+import jmb.jcortex.strategies.batchingstrategies.FixedNumBatchingStrategy;
+import jmb.jcortex.strategies.batchingstrategies.FullTrainingSetBatchingStrategy;
+import jmb.jcortex.strategies.optimizationstrategies.FixedLearningRateOptimizationStrategy;
+import jmb.jcortex.trainers.DeltaCalculator;
+import jmb.jcortex.trainers.GradientCalculator;
+import jmb.jcortex.trainers.TrainingFixtures;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jmb.jcortex.mapfunctions.MatrixFunctions.SIGMOID_MATRIX_FUNCTION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class RingAllReduceWorkerTest {
+
+    private ExecutorService peers = Executors.newCachedThreadPool();
+    private List<RingAllReducer> rings = new ArrayList<>();
+    private DataSet trainingSet = newTrainingSet();
+
+    @After
+    public void tearDown() throws IOException {
+        for (RingAllReducer ring : rings) {
+            ring.close();
+        }
+        peers.shutdownNow();
+    }
+
+    @Test(timeout = 30000)
+    public void train_MatchesFullBatchGradientDescent() throws Exception {
+        NeuralNet expected = trainFullBatch(newNeuralNet(), 5);
+
+        List<RingAllReducer> rings = RingAllReducerTest.connectRing(3, peers, this.rings);
+        // Uneven shards, to check each worker's gradient is weighted by its number of examples
+        int[] shardEnds = {0, 3, 7, 12};
+        List<Future<NeuralNet>> trained = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            DataSet shard = trainingSet.sliceRows(shardEnds[ring.getRank()], shardEnds[ring.getRank() + 1]);
+            trained.add(peers.submit(() -> new RingAllReduceWorker(ring, new FullTrainingSetBatchingStrategy(),
+                    new FixedLearningRateOptimizationStrategy(0.1), 5).train(newNeuralNet(), shard)));
+        }
+
+        assertAllMatch(trained, expected);
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithDifferentStartingWeights_StartsEveryPeerFromRankZerosWeights() throws Exception {
+        NeuralNet expected = trainFullBatch(newNeuralNet(), 3);
+
+        List<RingAllReducer> rings = RingAllReducerTest.connectRing(3, peers, this.rings);
+        List<Future<NeuralNet>> trained = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            DataSet shard = trainingSet.sliceRows(ring.getRank() * 4, ring.getRank() * 4 + 4);
+            NeuralNet start = newNeuralNet();
+            // Only rank 0 keeps the shared starting weights
+            for (SynMatrix layer : start.getLayers()) {
+                layer.elementMultInPlace(1 + ring.getRank() * 0.5);
+            }
+            trained.add(peers.submit(() -> new RingAllReduceWorker(ring, new FullTrainingSetBatchingStrategy(),
+                    new FixedLearningRateOptimizationStrategy(0.1), 3).train(start, shard)));
+        }
+
+        assertAllMatch(trained, expected);
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithCompressedGradients_KeepsEveryPeerIdentical_AndClose() throws Exception {
+        NeuralNet expected = trainFullBatch(newNeuralNet(), 5);
+
+        List<RingAllReducer> rings = RingAllReducerTest.connectRing(3, peers, this.rings,
+                rank -> new Int8GradientCompressor());
+        List<Future<NeuralNet>> trained = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            DataSet shard = trainingSet.sliceRows(ring.getRank() * 4, ring.getRank() * 4 + 4);
+            trained.add(peers.submit(() -> new RingAllReduceWorker(ring, new FullTrainingSetBatchingStrategy(),
+                    new FixedLearningRateOptimizationStrategy(0.1), 5).train(newNeuralNet(), shard)));
+        }
+
+        NeuralNet first = trained.get(0).get();
+        for (int i = 0; i < expected.getLayers().size(); i++) {
+            assertThat(first.getLayers().get(i).getAll())
+                    .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-3));
+        }
+        for (Future<NeuralNet> neuralNet : trained) {
+            for (int i = 0; i < first.getLayers().size(); i++) {
+                assertThat(neuralNet.get().getLayers().get(i).getAll()).containsExactly(first.getLayers().get(i).getAll());
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void train_WithDifferentNumbersOfBatches_Fails() throws Exception {
+        List<RingAllReducer> rings = RingAllReducerTest.connectRing(2, peers, this.rings);
+        List<Future<NeuralNet>> trained = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            DataSet shard = ring.getRank() == 0 ? trainingSet.sliceRows(0, 4) : trainingSet.sliceRows(4, 12);
+            trained.add(peers.submit(() -> new RingAllReduceWorker(ring, new FixedNumBatchingStrategy(2),
+                    new FixedLearningRateOptimizationStrategy(0.1), 1).train(newNeuralNet(), shard)));
+        }
+
+        for (Future<NeuralNet> neuralNet : trained) {
+            assertThatThrownBy(neuralNet::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    private NeuralNet trainFullBatch(NeuralNet neuralNet, int steps) {
+        for (int step = 0; step < steps; step++) {
+            ExecutionContext context = neuralNet.trainForward(trainingSet);
+            List<SynMatrix> deltas = new DeltaCalculator().calcDeltas(context, trainingSet.getLabels(), neuralNet);
+            List<SynMatrix> gradients = new GradientCalculator().calcGradients(deltas, context.getNodeValues());
+            for (int i = 0; i < gradients.size(); i++) {
+                neuralNet.getLayers().get(i).minusInPlace(gradients.get(i).elementMult(0.1));
+            }
+        }
+        return neuralNet;
+    }
+
+    private static void assertAllMatch(List<Future<NeuralNet>> trained, NeuralNet expected) throws Exception {
+        for (Future<NeuralNet> neuralNet : trained) {
+            for (int i = 0; i < expected.getLayers().size(); i++) {
+                assertThat(neuralNet.get().getLayers().get(i).getAll())
+                        .containsExactly(expected.getLayers().get(i).getAll(), offset(1e-9));
+            }
+        }
+    }
+
+    private static NeuralNet newNeuralNet() {
+        return TrainingFixtures.newNeuralNet(SIGMOID_MATRIX_FUNCTION);
+    }
+
+    private static DataSet newTrainingSet() {
+        return TrainingFixtures.newTrainingSet((x1, x2) -> x1 * x2 - x1 + 0.5);
+    }
+}
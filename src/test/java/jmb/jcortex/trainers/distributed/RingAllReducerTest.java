@@ -0,0 +1,198 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class RingAllReducerTest {
+
+    private ExecutorService peers = Executors.newCachedThreadPool();
+    private List<RingAllReducer> rings = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        for (RingAllReducer ring : rings) {
+            ring.close();
+        }
+        peers.shutdownNow();
+    }
+
+    @Test(timeout = 30000)
+    public void allReduce_SumsAcrossEveryPeer() throws Exception {
+        List<RingAllReducer> rings = connectRing(3);
+        // 10 values don't split evenly into 3 chunks
+        List<Future<double[]>> results = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            results.add(peers.submit(() -> {
+                double[] values = new double[10];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (ring.getRank() + 1) * i;
+                }
+                ring.allReduce(values);
+                return values;
+            }));
+        }
+
+        for (Future<double[]> result : results) {
+            double[] values = result.get();
+            for (int i = 0; i < values.length; i++) {
+                assertThat(values[i]).isEqualTo(6.0 * i);
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void allReduceAsync_ReducesRangesInSubmissionOrder() throws Exception {
+        List<RingAllReducer> rings = connectRing(4);
+        List<Future<double[]>> results = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            results.add(peers.submit(() -> {
+                // Fewer values in the first range than peers, so some chunks are empty
+                double[] values = {1, 2, 10, 20, 30, 40, 50, 100};
+                CompletableFuture<Void> first = ring.allReduceAsync(values, 0, 2);
+                CompletableFuture<Void> second = ring.allReduceAsync(values, 2, 7);
+                CompletableFuture.allOf(first, second).join();
+                return values;
+            }));
+        }
+
+        for (Future<double[]> result : results) {
+            assertThat(result.get()).containsExactly(4, 8, 40, 80, 120, 160, 200, 100);
+        }
+    }
+
+    @Test
+    public void allReduce_WithOnePeer_LeavesTheValues() throws Exception {
+        RingAllReducer ring = connectRing(1).get(0);
+        double[] values = {1, 2, 3};
+
+        ring.allReduce(values);
+
+        assertThat(values).containsExactly(1, 2, 3);
+    }
+
+    @Test(timeout = 30000)
+    public void allReduceCompressedAsync_SumsToTheCompressorsPrecision_WithTheSameResultOnEveryPeer() throws Exception {
+        for (IntFunction<GradientCompressor> compressors : Arrays.<IntFunction<GradientCompressor>>asList(
+                rank -> new Float16GradientCompressor(), rank -> new Int8GradientCompressor())) {
+            List<RingAllReducer> rings = connectRing(3, peers, new ArrayList<>(), compressors);
+            this.rings.addAll(rings);
+            List<Future<double[]>> results = new ArrayList<>();
+            for (RingAllReducer ring : rings) {
+                results.add(peers.submit(() -> {
+                    double[] values = new double[1000];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = Math.sin(i * (ring.getRank() + 1));
+                    }
+                    ring.allReduceCompressedAsync(values, 0, values.length).join();
+                    return values;
+                }));
+            }
+
+            double[] first = results.get(0).get();
+            for (int i = 0; i < first.length; i++) {
+                // Each of the 2 additions and the all-gather loses up to 1/254 of a block's largest magnitude
+                assertThat(first[i]).isCloseTo(Math.sin(i) + Math.sin(2 * i) + Math.sin(3 * i), offset(0.05));
+            }
+            for (Future<double[]> result : results) {
+                assertThat(result.get()).containsExactly(first);
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void allReduce_WithCompressedRing_StaysExact() throws Exception {
+        List<RingAllReducer> rings = connectRing(3, peers, this.rings, rank -> new Int8GradientCompressor());
+        List<Future<double[]>> results = new ArrayList<>();
+        for (RingAllReducer ring : rings) {
+            results.add(peers.submit(() -> {
+                double[] values = {1, 1000, 0.001 * (ring.getRank() + 1)};
+                ring.allReduce(values);
+                return values;
+            }));
+        }
+
+        for (Future<double[]> result : results) {
+            assertThat(result.get()).containsExactly(3, 3000, 0.001 + 0.002 + 0.003);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void connect_WithDifferentCompressors_Fails() throws Exception {
+        assertThatThrownBy(() -> connectRing(2, peers, rings,
+                rank -> rank == 0 ? new Int8GradientCompressor() : new Float16GradientCompressor()))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasMessageContaining("compresses with");
+    }
+
+    @Test
+    public void connect_WithACompressorThatIsNotExactlyReencodable_Fails() throws Exception {
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), listener.getLocalPort()));
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), listener.getLocalPort()));
+
+            assertThatThrownBy(() -> RingAllReducer.connect(0, listener, addresses, 1000,
+                    new TopKGradientCompressor(0.1)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining(TopKGradientCompressor.class.getName());
+        }
+    }
+
+    /** Connects a ring of peers on loopback ports, each in its own thread as separate JVMs would. */
+    List<RingAllReducer> connectRing(int worldSize) throws Exception {
+        return connectRing(worldSize, peers, rings);
+    }
+
+    static List<RingAllReducer> connectRing(int worldSize, ExecutorService peers, List<RingAllReducer> rings)
+            throws Exception {
+        return connectRing(worldSize, peers, rings, rank -> new NoGradientCompressor());
+    }
+
+    static List<RingAllReducer> connectRing(int worldSize, ExecutorService peers, List<RingAllReducer> rings,
+                                            IntFunction<GradientCompressor> compressors) throws Exception {
+        List<ServerSocket> listeners = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int rank = 0; rank < worldSize; rank++) {
+            ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            listeners.add(listener);
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), listener.getLocalPort()));
+        }
+        List<Future<RingAllReducer>> connecting = new ArrayList<>();
+        for (int rank = 0; rank < worldSize; rank++) {
+            int r = rank;
+            connecting.add(peers.submit(() -> RingAllReducer.connect(r, listeners.get(r), addresses, 10000,
+                    compressors.apply(r))));
+        }
+        for (Future<RingAllReducer> ring : connecting) {
+            rings.add(ring.get());
+        }
+        for (ServerSocket listener : listeners) {
+            listener.close();
+        }
+        return rings;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * James Brundege
+ * Date: 2026-10-19
+ * MIT license: https://opensource.org/licenses/MIT
+ */
+package jmb.jcortex.trainers.distributed;
+
+import jmb.jcortex.data.XorShiftRandom;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class TopKGradientCompressorTest {
+
+    @Test
+    public void writeAndRead_SendOnlyTheLargestValues() throws IOException {
+        TopKGradientCompressor compressor = new TopKGradientCompressor(0.3, false);
+        double[] gradients = {0.1, -5, 0.2, 3, -0.3, 0.05, 4, 0, -0.01, 0.02};
+
+        double[] received = roundTrip(compressor, gradients);
+
+        assertThat(received).containsExactly(0, -5, 0, 3, 0, 0, 4, 0, 0, 0);
+    }
+
+    @Test
+    public void writeAndRead_OfAOnePercentFraction_SendAbout100TimesFewerBytes() throws IOException {
+        TopKGradientCompressor compressor = new TopKGradientCompressor(0.01);
+        double[] gradients = new double[10000];
+        XorShiftRandom random = new XorShiftRandom(3);
+        for (int i = 0; i < gradients.length; i++) {
+            gradients[i] = random.nextDouble() - 0.5;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        compressor.write(new DataOutputStream(bytes), gradients, 0, gradients.length);
+
+        // 100 (index, float) pairs and a count
+        assertThat(bytes.size()).isEqualTo(4 + 100 * 8);
+        assertThat(gradients.length * Double.BYTES / bytes.size()).isGreaterThanOrEqualTo(99);
+    }
+
+    @Test
+    public void errorFeedback_EventuallySendsWhatWasHeldBack() throws IOException {
+        TopKGradientCompressor compressor = new TopKGradientCompressor(0.25);
+        double[] gradients = {1, 0.3, 0.2, 0.1};
+        double[] totalReceived = new double[4];
+
+        for (int step = 0; step < 40; step++) {
+            double[] received = roundTrip(compressor, gradients);
+            for (int i = 0; i < 4; i++) {
+                totalReceived[i] += received[i];
+            }
+        }
+
+        // Only one value is sent per step, but every value's total arrives, less what is still held back
+        for (int i = 0; i < 4; i++) {
+            assertThat(totalReceived[i]).isCloseTo(40 * gradients[i], offset(1.5));
+            assertThat(totalReceived[i]).isPositive();
+        }
+    }
+
+    @Test
+    public void write_WithoutErrorFeedback_DropsTheSmallValues() throws IOException {
+        TopKGradientCompressor compressor = new TopKGradientCompressor(0.25, false);
+        double[] gradients = {1, 0.3, 0.2, 0.1};
+
+        for (int step = 0; step < 10; step++) {
+            assertThat(roundTrip(compressor, gradients)).containsExactly(1, 0, 0, 0);
+        }
+    }
+
+    @Test
+    public void write_OfARangeOfTheArray_OnlySendsThatRange() throws IOException {
+        TopKGradientCompressor compressor = new TopKGradientCompressor(0.5, false);
+        double[] gradients = {100, 1, -2, 3, -4, 100};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), gradients, 1, 5);
+
+        double[] received = new double[6];
+        Arrays.fill(received, 7);
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 1, 5);
+
+        assertThat(received).containsExactly(7, 0, 0, 3, -4, 7);
+    }
+
+    @Test
+    public void constructor_RejectsFractionsOutsideZeroToOne() {
+        assertThatThrownBy(() -> new TopKGradientCompressor(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TopKGradientCompressor(1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double[] roundTrip(TopKGradientCompressor compressor, double[] gradients) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compressor.write(new DataOutputStream(bytes), gradients, 0, gradients.length);
+        double[] received = new double[gradients.length];
+        compressor.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), received, 0, received.length);
+        return received;
+    }
+}